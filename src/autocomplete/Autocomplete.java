@@ -3,9 +3,13 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.PriorityQueue;
 
 public class Autocomplete implements IAutocomplete {
 
@@ -65,6 +69,7 @@ public class Autocomplete implements IAutocomplete {
 		// DFS to add the word, stop when wordTemp is empty
 		while(wordTemp.length()!= 0) { 
 			temp.setPrefixes(temp.getPrefixes()+1);
+			temp.setMaxWeight(Math.max(temp.getMaxWeight(), weight));
 			int index = wordTemp.charAt(0) - 'a'; // Get the index of the char in the references
 			Node[] children = temp.getReferences();
 			if(children[index] == null) { //If there is no such Node yet, create it.
@@ -77,6 +82,7 @@ public class Autocomplete implements IAutocomplete {
 		// after reach the last char of the word, update the related atrributes
 		temp.setWords(temp.getWords()+1);
 		temp.setPrefixes(temp.getPrefixes()+1);
+		temp.setMaxWeight(Math.max(temp.getMaxWeight(), weight));
 		temp.setTerm(new Term(word, weight));		
 	}
 
@@ -91,6 +97,8 @@ public class Autocomplete implements IAutocomplete {
      * @return the root of the Trie You might find the readLine() method in
      *         BufferedReader useful in this situation as it will allow you to
      *         read a file one line at a time.
+     *         A binary dictionary file (DictionaryFile) is loaded by
+     *         buildTrie(Path, int).
      */
 	@Override
 	public Node buildTrie(String filename, int k) {
@@ -100,6 +108,10 @@ public class Autocomplete implements IAutocomplete {
 		this.numSuggestion = k;
 		
 		try {
+			Path file = Paths.get(filename);
+			if (DictionaryFile.isDictionary(file)) {
+				return buildTrie(file, k);
+			}
 			fr = new FileReader(filename);
 			br = new BufferedReader(fr);
 			String line = br.readLine(); // Ignore the first line
@@ -126,6 +138,80 @@ public class Autocomplete implements IAutocomplete {
 		return root;
 	}
 
+	/**
+	 * Initializes the Trie from a binary dictionary file, read from the
+	 * mapped file. The terms are sorted, so the nodes of the prefix a term
+	 * shares with the last term added are reused instead of walked from the
+	 * root again, and no String is built but the one of each Term.
+	 * 
+	 * @param file a file written by DictionaryFile.write
+	 * @param k the maximum number of suggestions that should be displayed
+	 * @return the root of the Trie
+	 * @throws IOException if the file cannot be read or is not a dictionary file
+	 */
+	public Node buildTrie(Path file, int k) throws IOException {
+		this.numSuggestion = k;
+		DictionaryFile.read(file, new TrieLoader());
+		return root;
+	}
+
+	/**
+	 * Adds the terms of a dictionary file to the Trie, as addWord would.
+	 * path[i] is the node after the first i letters of the last term added,
+	 * common the number of letters the current term shares with it: the
+	 * smallest prefix shared by the terms read since, the terms being sorted.
+	 */
+	private class TrieLoader implements DictionaryFile.TermHandler {
+		private Node[] path = new Node[65];
+		private int added = 0;
+		private int common = 0;
+
+		@Override
+		public void term(byte[] term, int length, int shared, long weight) {
+			common = Math.min(common, shared);
+			if (length == 0) {
+				return;
+			}
+			char[] word = new char[length];
+			for (int i = 0; i < length; i++) {
+				int c = term[i];
+				if (c >= 'A' && c <= 'Z') {
+					c += 'a' - 'A';
+				} else if (c < 'a' || c > 'z') {
+					return; // like addWord, only words of letters
+				}
+				word[i] = (char) c;
+			}
+			if (length >= path.length) {
+				path = Arrays.copyOf(path, Math.max(length + 1, path.length * 2));
+			}
+			path[0] = root;
+			int depth = Math.min(common, added);
+			for (int i = 0; i < depth; i++) {
+				path[i].setPrefixes(path[i].getPrefixes() + 1);
+				path[i].setMaxWeight(Math.max(path[i].getMaxWeight(), weight));
+			}
+			for (int i = depth; i < length; i++) {
+				Node node = path[i];
+				node.setPrefixes(node.getPrefixes() + 1);
+				node.setMaxWeight(Math.max(node.getMaxWeight(), weight));
+				Node[] children = node.getReferences();
+				int index = word[i] - 'a';
+				if (children[index] == null) {
+					children[index] = new Node();
+				}
+				path[i + 1] = children[index];
+			}
+			Node last = path[length];
+			last.setWords(last.getWords() + 1);
+			last.setPrefixes(last.getPrefixes() + 1);
+			last.setMaxWeight(Math.max(last.getMaxWeight(), weight));
+			last.setTerm(new Term(new String(word), weight));
+			added = length;
+			common = length;
+		}
+	}
+
 	/**
      * @return k the the maximum number of suggestions that should be displayed 
      */
@@ -211,6 +297,79 @@ public class Autocomplete implements IAutocomplete {
 		return suggestions;
 	}
 	
+	/**
+	 * The k words starting with prefix of highest weight, found best first:
+	 * subtries are visited by decreasing maxWeight and a word is returned
+	 * once no subtrie left can hold a heavier one, so only the branches
+	 * leading to the k words are walked, not the whole subtrie of the prefix.
+	 * 
+	 * @param prefix
+	 * @param k the maximum number of words
+	 * @return the words by reverse weight order, then lexicographic order
+	 */
+	public List<ITerm> topSuggestions(String prefix, int k) {
+		
+		ArrayList<ITerm> suggestions = new ArrayList<ITerm>();
+		Node subRoot = this.getSubTrie(prefix);
+		if (subRoot == null || k <= 0) {
+			return suggestions;
+		}
+		
+		PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+		queue.add(new Candidate(subRoot.getMaxWeight(), prefix.toLowerCase(), subRoot, null));
+		while (!queue.isEmpty() && suggestions.size() < k) {
+			Candidate next = queue.poll();
+			if (next.node == null) {
+				suggestions.add(next.term);
+				continue;
+			}
+			Node vertex = next.node;
+			if (vertex.getWords() != 0) {
+				queue.add(new Candidate(vertex.getTerm().getWeight(), next.key, null, vertex.getTerm()));
+			}
+			Node[] children = vertex.getReferences();
+			for (int i = 0; i < children.length; i++) {
+				if (children[i] != null && children[i].getPrefixes() != 0) {
+					queue.add(new Candidate(children[i].getMaxWeight(), next.key + (char) ('a' + i), children[i], null));
+				}
+			}
+		}
+		return suggestions;
+	}
+
+	/**
+	 * A word, or a subtrie with the weight of its heaviest word, in the queue
+	 * of topSuggestions. Candidates of equal weight are ordered by key, the
+	 * word or the prefix of the subtrie: the words of a subtrie are not
+	 * before its prefix, so words come out in lexicographic order.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+		final long weight;
+		final String key;
+		final Node node;
+		final Term term;
+
+		Candidate(long weight, String key, Node node, Term term) {
+			this.weight = weight;
+			this.key = key;
+			this.node = node;
+			this.term = term;
+		}
+
+		@Override
+		public int compareTo(Candidate that) {
+			int byWeight = Long.compare(that.weight, this.weight);
+			if (byWeight != 0) {
+				return byWeight;
+			}
+			int byKey = key.compareTo(that.key);
+			if (byKey != 0) {
+				return byKey;
+			}
+			return node == null ? -1 : that.node == null ? 1 : 0; // a word before the rest of its subtrie
+		}
+	}
+
 	/**
 	 * Helper function of getSuggestions
 	 * DFS the tree and find the words recursively
@@ -0,0 +1,247 @@
+package autocomplete;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Binary file format of the autocomplete dictionary: the terms and their
+ * weights, read by memory mapping the file.
+ * 
+ * header   int magic "NACD", int version, int termCount (big endian)
+ * terms    for each term, in increasing order of its UTF-8 bytes:
+ *          varint the number of bytes shared with the previous term,
+ *          varint the number of bytes that follow, the bytes,
+ *          varint the weight
+ * 
+ * Varints are 7 bits per byte, low bits first, the high bit set on every
+ * byte but the last. Sorted terms share long prefixes, so front coding
+ * stores most terms in a few bytes, and a reader building a trie knows how
+ * much of the path of the previous term it can reuse (Autocomplete.buildTrie).
+ * 
+ * A file is written through a FileChannel to a temporary file, forced to
+ * disk and renamed over the previous one, so a crash never leaves a
+ * truncated dictionary. The text format ("weight term" lines after a line
+ * with the number of terms) is still written by writeText, as an export.
+ */
+public final class DictionaryFile {
+
+	static final int MAGIC = 0x4E414344; // "NACD"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 3 * 4;
+
+	/**
+	 * Receives the terms of a dictionary file in order.
+	 */
+	public interface TermHandler {
+		/**
+		 * @param term holds the UTF-8 bytes of the term, only valid until this method returns
+		 * @param length the number of bytes of the term
+		 * @param shared the number of bytes shared with the previous term
+		 * @param weight the weight of the term
+		 */
+		void term(byte[] term, int length, int shared, long weight);
+	}
+
+	private DictionaryFile() {
+	}
+
+	/**
+	 * @param file a file
+	 * @return true if the file starts like a dictionary file
+	 * @throws IOException if the file cannot be read
+	 */
+	public static boolean isDictionary(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(4);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+			}
+			return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+		}
+	}
+
+	/**
+	 * Read a dictionary file from the mapped file.
+	 * 
+	 * @param file a file written by write()
+	 * @param handler receives each term
+	 * @return the number of terms
+	 * @throws IOException if the file cannot be read or is not a dictionary file of this version
+	 */
+	public static int read(Path file, TermHandler handler) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Dictionary file too large: " + file);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a dictionary file: " + file);
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported dictionary file version " + buffer.getInt(4) + ": " + file);
+		}
+		int count = buffer.getInt(8);
+		buffer.position(HEADER_SIZE);
+		byte[] term = new byte[64];
+		int length = 0;
+		try {
+			for (int t = 0; t < count; t++) {
+				int shared = (int) readVLong(buffer);
+				int suffix = (int) readVLong(buffer);
+				if (shared > length || suffix < 0) {
+					throw new IOException("Corrupt dictionary file: " + file);
+				}
+				length = shared + suffix;
+				if (length > term.length) {
+					term = Arrays.copyOf(term, Math.max(length, term.length * 2));
+				}
+				buffer.get(term, shared, suffix);
+				handler.term(term, length, shared, readVLong(buffer));
+			}
+		} catch (RuntimeException e) { // buffer underflow, a truncated file
+			throw new IOException("Corrupt dictionary file: " + file, e);
+		}
+		return count;
+	}
+
+	/**
+	 * Write a dictionary file.
+	 * 
+	 * @param weights term -> weight, weights not negative
+	 * @param file the file to create or replace
+	 * @throws IOException if the file cannot be written, the previous file is left unchanged
+	 */
+	public static void write(Map<String, Long> weights, Path file) throws IOException {
+		byte[][] terms = sortedTerms(weights);
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer out = ByteBuffer.allocate(1 << 16);
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(terms.length);
+			byte[] previous = new byte[0];
+			for (byte[] term : terms) {
+				long weight = weights.get(new String(term, StandardCharsets.UTF_8));
+				if (weight < 0) {
+					throw new IllegalArgumentException("Illegal arguments");
+				}
+				int shared = 0;
+				int max = Math.min(previous.length, term.length);
+				while (shared < max && previous[shared] == term[shared]) {
+					shared++;
+				}
+				if (out.remaining() < 3 * 10 + term.length - shared) {
+					out = flush(channel, out, term.length);
+				}
+				writeVLong(out, shared);
+				writeVLong(out, term.length - shared);
+				out.put(term, shared, term.length - shared);
+				writeVLong(out, weight);
+				previous = term;
+			}
+			flush(channel, out, 0);
+			channel.force(true);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		replace(temp, file);
+	}
+
+	/**
+	 * Write the terms in the text format: the number of terms, then a line
+	 * " weight term" per term, in the same order as write().
+	 * 
+	 * @param weights term -> weight
+	 * @param file the file to create or replace
+	 * @throws IOException if the file cannot be written, the previous file is left unchanged
+	 */
+	public static void writeText(Map<String, Long> weights, Path file) throws IOException {
+		byte[][] terms = sortedTerms(weights);
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+			out.write(Integer.toString(terms.length));
+			for (byte[] bytes : terms) {
+				String term = new String(bytes, StandardCharsets.UTF_8);
+				out.newLine();
+				out.write(" " + weights.get(term) + " " + term);
+			}
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		replace(temp, file);
+	}
+
+	/**
+	 * @return the UTF-8 bytes of the terms, sorted as unsigned bytes
+	 */
+	private static byte[][] sortedTerms(Map<String, Long> weights) {
+		byte[][] terms = new byte[weights.size()][];
+		int t = 0;
+		for (Entry<String, Long> term : weights.entrySet()) {
+			if (term.getKey() == null || term.getValue() == null) {
+				throw new IllegalArgumentException("Illegal arguments");
+			}
+			terms[t++] = term.getKey().getBytes(StandardCharsets.UTF_8);
+		}
+		Arrays.sort(terms, Arrays::compareUnsigned);
+		return terms;
+	}
+
+	/**
+	 * Write the buffer to the channel
+	 * 
+	 * @param next the bytes needed by the next term
+	 * @return an empty buffer with room for next
+	 */
+	private static ByteBuffer flush(FileChannel channel, ByteBuffer out, int next) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+		return out.capacity() >= 3 * 10 + next ? out : ByteBuffer.allocate(3 * 10 + next);
+	}
+
+	private static void replace(Path temp, Path file) throws IOException {
+		try {
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void writeVLong(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) (value & 0x7F | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	private static long readVLong(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+}
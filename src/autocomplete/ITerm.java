@@ -18,7 +18,7 @@ public interface ITerm
         return new Comparator<ITerm>() {
             public int compare(ITerm t1, ITerm t2)
             {
-                return (int)(((Term)t2).getWeight() - ((Term)t1).getWeight());
+                return Long.compare(((Term)t2).getWeight(), ((Term)t1).getWeight());
             }
         };
     }
@@ -5,6 +5,7 @@ package autocomplete;
  * - term: the ITerm object
  * - prefixes: number of prefixes 
  * - references: Array of references to next/children Nodes
+ * - maxWeight: the highest weight of the words of this subtree
  * 
  * ==== Constructor ====
  * Node(String word, long weight)
@@ -17,6 +18,7 @@ public class Node
 	private int words;
 	private int prefixes;
 	private Node[] references;
+	private long maxWeight;
 	
 	// Constructor 1, for word
 	public Node(String query, long weight) {
@@ -59,6 +61,18 @@ public class Node
 		this.prefixes = prefixes;
 	}
 
+	/**
+	 * @return the highest weight of the words of this subtree, an upper bound
+	 *         if a word was added again with a lower weight
+	 */
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+	}
+
 	public Node[] getReferences() {
 		return references;
 	}
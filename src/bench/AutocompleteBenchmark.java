@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import autocomplete.Autocomplete;
+import autocomplete.ITerm;
+
+/**
+ * The 10 heaviest suggestions of short prefixes, as AutocompletePanel shows
+ * them: every word of the prefix sorted by reverse weight (getSuggestions)
+ * against the best first search of topSuggestions, on random words of
+ * letters with Zipf-like weights.
+ *
+ * Usage: AutocompleteBenchmark [words] [rounds]
+ */
+public class AutocompleteBenchmark {
+
+	public static void main(String[] args) {
+		int numWords = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random random = new Random(42);
+		Autocomplete auto = new Autocomplete();
+		for (int w = 0; w < numWords; w++) {
+			StringBuilder word = new StringBuilder();
+			for (int i = 3 + random.nextInt(10); i > 0; i--) {
+				word.append((char) ('a' + (int) Math.pow(26, random.nextDouble()) - 1));
+			}
+			auto.addWord(word.toString(), (long) Math.pow(1000000, random.nextDouble()));
+		}
+		String[] prefixes = new String[1000];
+		for (int p = 0; p < prefixes.length; p++) {
+			prefixes[p] = p % 2 == 0 ? "" + (char) ('a' + random.nextInt(26))
+					: "" + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26));
+		}
+		for (int round = 0; round < rounds; round++) {
+			boolean print = round == rounds - 1; // earlier rounds warm up the jit
+			long start = System.nanoTime();
+			long found = 0;
+			for (String prefix : prefixes) {
+				List<ITerm> all = auto.getSuggestions(prefix);
+				Collections.sort(all, ITerm.byReverseWeightOrder());
+				found += Math.min(10, all.size());
+			}
+			long sorted = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (String prefix : prefixes) {
+				found -= auto.topSuggestions(prefix, 10).size();
+			}
+			long best = System.nanoTime() - start;
+			if (print) {
+				System.out.printf("%d words: getSuggestions+sort %8.1f us/prefix, topSuggestions %8.1f us/prefix (%d)%n",
+						numWords, sorted / 1e3 / prefixes.length, best / 1e3 / prefixes.length, found);
+			}
+		}
+	}
+}
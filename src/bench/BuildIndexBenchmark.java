@@ -0,0 +1,128 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import indexing.IndexBuilder;
+import test.ReferenceIndex;
+
+/**
+ * Throughput (tokens per second) and allocations per token of buildIndex,
+ * compared to the original two pass implementation (test.ReferenceIndex), and
+ * of buildInvertedIndex on its result, then
+ * the heap retained per posting by the forward index, then
+ * scaling of the parallel buildIndex from 1 to 16 threads. Allocations are
+ * only counted on the calling thread, so they are not reported for the
+ * parallel runs.
+ * 
+ * Usage: BuildIndexBenchmark [documents] [wordsPerDocument] [vocabulary] [rounds]
+ */
+public class BuildIndexBenchmark {
+
+	public static void main(String[] args) {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		Map<String, List<String>> docs = corpus(numDocs, words, vocabulary, 42);
+		long tokens = 0;
+		for (List<String> doc : docs.values()) {
+			tokens += doc.size();
+		}
+		System.out.println(numDocs + " documents, " + tokens + " tokens");
+
+		IndexBuilder builder = new IndexBuilder();
+		if (!ReferenceIndex.buildIndex(docs).equals(builder.buildIndex(docs))) {
+			throw new IllegalStateException("buildIndex differs from the original implementation");
+		}
+		for (int round = 0; round < rounds; round++) {
+			boolean print = round == rounds - 1; // earlier rounds warm up the jit
+			measure("original", tokens, print, () -> ReferenceIndex.buildIndex(docs));
+			measure("buildIndex", tokens, print, () -> builder.buildIndex(docs));
+		}
+		Map<String, Map<String, Double>> forward = builder.buildIndex(docs);
+		for (int round = 0; round < rounds; round++) {
+			measure("inverted", tokens, round == rounds - 1, () -> builder.buildInvertedIndex(forward));
+		}
+
+		long postings = 0;
+		for (Map<String, Double> vector : builder.buildIndex(docs).values()) {
+			postings += vector.size();
+		}
+		System.out.printf("%-12s %8.1f bytes/posting retained%n", "original", retained(() -> ReferenceIndex.buildIndex(docs)) / (double) postings);
+		System.out.printf("%-12s %8.1f bytes/posting retained%n", "buildIndex", retained(() -> builder.buildIndex(docs)) / (double) postings);
+
+		Map<String, Map<String, Double>> serial = builder.buildIndex(docs);
+		for (int threads : new int[] { 1, 2, 4, 8, 16 }) {
+			if (!serial.equals(builder.buildIndex(docs, threads))) {
+				throw new IllegalStateException("parallel buildIndex differs from the serial one");
+			}
+			for (int round = 0; round < rounds; round++) {
+				long start = System.nanoTime();
+				builder.buildIndex(docs, threads);
+				long nanos = System.nanoTime() - start;
+				if (round == rounds - 1) {
+					System.out.printf("parallel %-3d %8d ms %12.0f tokens/s%n", threads, nanos / 1000000, tokens / (nanos / 1e9));
+				}
+			}
+		}
+	}
+
+	static void measure(String name, long tokens, boolean print, Runnable run) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		run.run();
+		long nanos = System.nanoTime() - start;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+		if (print) {
+			System.out.printf("%-12s %8d ms %12.0f tokens/s %8.1f bytes allocated/token%n", name, nanos / 1000000,
+					tokens / (nanos / 1e9), allocated / (double) tokens);
+		}
+	}
+
+	/**
+	 * @return the heap held by the result of build, document names and terms included
+	 */
+	static long retained(Supplier<Object> build) {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long before = runtime.totalMemory() - runtime.freeMemory();
+		Object result = build.get();
+		System.gc();
+		long after = runtime.totalMemory() - runtime.freeMemory();
+		Reference.reachabilityFence(result); // not collected before the second measure
+		return after - before;
+	}
+
+	/**
+	 * Random documents whose word frequencies follow a Zipf-like law, of
+	 * maxWords / 2 to 3 * maxWords / 2 words. The tests generate their own,
+	 * smaller corpus: their expectations name its words.
+	 */
+	static Map<String, List<String>> corpus(int numDocs, int maxWords, int vocabulary, long seed) {
+		Random random = new Random(seed);
+		String[] terms = new String[vocabulary];
+		for (int i = 0; i < vocabulary; i++) {
+			terms[i] = "w" + Integer.toString(i, 36);
+		}
+		Map<String, List<String>> docs = new HashMap<String, List<String>>();
+		for (int d = 0; d < numDocs; d++) {
+			int length = maxWords / 2 + random.nextInt(maxWords);
+			List<String> words = new ArrayList<String>(length);
+			for (int w = 0; w < length; w++) {
+				words.add(terms[(int) Math.pow(vocabulary, random.nextDouble()) - 1]); // favors small ranks
+			}
+			docs.put("http://news.com/article" + d + ".html", words);
+		}
+		return docs;
+	}
+}
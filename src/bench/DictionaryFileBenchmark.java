@@ -0,0 +1,66 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import autocomplete.Autocomplete;
+import autocomplete.DictionaryFile;
+
+/**
+ * Size, write time and trie build time of the autocomplete dictionary in the
+ * text format and in the binary format, for random words of letters with
+ * Zipf-like weights.
+ *
+ * Usage: DictionaryFileBenchmark [words] [rounds]
+ */
+public class DictionaryFileBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numWords = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		Random random = new Random(42);
+		Map<String, Long> weights = new HashMap<String, Long>();
+		while (weights.size() < numWords) {
+			StringBuilder word = new StringBuilder();
+			for (int i = 3 + random.nextInt(10); i > 0; i--) {
+				word.append((char) ('a' + (int) Math.pow(26, random.nextDouble()) - 1));
+			}
+			weights.put(word.toString(), (long) Math.pow(1000000, random.nextDouble()));
+		}
+		Path dir = Files.createTempDirectory("dictionary");
+		Path text = dir.resolve("autocomplete.txt");
+		Path binary = dir.resolve("autocomplete.dict");
+		try {
+			for (int round = 0; round < rounds; round++) {
+				boolean print = round == rounds - 1; // earlier rounds warm up the jit
+				long start = System.nanoTime();
+				DictionaryFile.writeText(weights, text);
+				long writeText = System.nanoTime() - start;
+				start = System.nanoTime();
+				DictionaryFile.write(weights, binary);
+				long writeBinary = System.nanoTime() - start;
+				start = System.nanoTime();
+				int textWords = new Autocomplete().buildTrie(text.toString(), 6).getPrefixes();
+				long loadText = System.nanoTime() - start;
+				start = System.nanoTime();
+				int binaryWords = new Autocomplete().buildTrie(binary, 6).getPrefixes();
+				long loadBinary = System.nanoTime() - start;
+				if (print) {
+					System.out.printf("text   %8.1f MB  write %5d ms  buildTrie %5d ms  %d words%n", Files.size(text) / 1e6,
+							writeText / 1000000, loadText / 1000000, textWords);
+					System.out.printf("binary %8.1f MB  write %5d ms  buildTrie %5d ms  %d words%n", Files.size(binary) / 1e6,
+							writeBinary / 1000000, loadBinary / 1000000, binaryWords);
+				}
+			}
+		} finally {
+			Files.deleteIfExists(text);
+			Files.deleteIfExists(binary);
+			Files.delete(dir);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import indexing.IndexBuilder;
+
+/**
+ * Compares sequential and concurrent parseFeed against a local stand-in for
+ * the news sites. Every response is delayed by a fixed latency, so the run
+ * time is dominated by round trips exactly like with the real feeds.
+ * 
+ * Usage: FetchBenchmark [feeds] [linksPerFeed] [latencyMs]
+ */
+public class FetchBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int feeds = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+		int linksPerFeed = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int latencyMs = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+
+		HttpServer server = startServer(linksPerFeed, latencyMs);
+		try {
+			String base = "http://localhost:" + server.getAddress().getPort();
+			List<String> feedUrls = new ArrayList<String>();
+			for (int i = 0; i < feeds; i++) {
+				feedUrls.add(base + "/feed" + i + ".xml");
+			}
+			System.out.println(feeds + " feeds x " + linksPerFeed + " links, " + latencyMs + " ms latency");
+
+			Map<String, List<String>> expected = run("sequential", new IndexBuilder(), feedUrls);
+			int[][] configs = { { 8, 8 }, { 32, 8 }, { 64, 64 } };
+			for (int[] config : configs) {
+				Map<String, List<String>> actual = run("concurrent inFlight=" + config[0] + " perHost=" + config[1],
+						new IndexBuilder(config[0], config[1]), feedUrls);
+				if (!expected.equals(actual)) {
+					throw new IllegalStateException("concurrent result differs from the sequential one");
+				}
+			}
+		} finally {
+			server.stop(0);
+		}
+	}
+
+	private static Map<String, List<String>> run(String name, IndexBuilder builder, List<String> feedUrls) {
+		long start = System.nanoTime();
+		Map<String, List<String>> parsed = builder.parseFeed(feedUrls);
+		long millis = (System.nanoTime() - start) / 1000000;
+		System.out.printf("%-36s %6d ms  %d documents%n", name, millis, parsed.size());
+		return parsed;
+	}
+
+	/**
+	 * Serves /feedN.xml with linksPerFeed items and /pageN_M.html articles.
+	 */
+	static HttpServer startServer(int linksPerFeed, int latencyMs) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					Thread.sleep(latencyMs);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				String path = exchange.getRequestURI().getPath();
+				String base = "http://localhost:" + exchange.getLocalAddress().getPort();
+				String body;
+				String type;
+				if (path.startsWith("/feed")) {
+					String feed = path.substring(5, path.indexOf('.'));
+					StringBuilder xml = new StringBuilder("<?xml version=\"1.0\"?><rss><channel>");
+					for (int i = 0; i < linksPerFeed; i++) {
+						xml.append("<item><link>").append(base).append("/page").append(feed).append('_').append(i)
+								.append(".html</link></item>");
+					}
+					body = xml.append("</channel></rss>").toString();
+					type = "text/xml";
+				} else {
+					body = "<html><body><p>Article " + path + " about data structures, binary trees and heaps."
+							+ " Trees can be used to compress files!</p></body></html>";
+					type = "text/html";
+				}
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+				exchange.sendResponseHeaders(200, bytes.length);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			}
+		});
+		server.start();
+		return server;
+	}
+}
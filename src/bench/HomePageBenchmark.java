@@ -0,0 +1,103 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import indexing.HomePage;
+import indexing.IncrementalIndex;
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+
+/**
+ * Cost of a click on Home Page: buildHomePage, which ranks every term of the
+ * index, against a page of the ranking kept by the IncrementalIndex, and the
+ * cost of keeping that ranking while documents are replaced.
+ * 
+ * Usage: HomePageBenchmark [documents] [wordsPerDocument] [vocabulary] [pageSize] [rounds]
+ */
+public class HomePageBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int pageSize = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, List<String>> docs = BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42);
+		Map<String, List<String>> changes = BuildIndexBenchmark.corpus(numDocs / 10, words, vocabulary, 43);
+		IncrementalIndex plain = new IncrementalIndex(builder.getDictionary());
+		IncrementalIndex ranked = new IncrementalIndex(builder.getDictionary());
+		ranked.homePage(); // ranked from the first document on
+		for (Entry<String, List<String>> doc : docs.entrySet()) {
+			plain.addDocument(doc.getKey(), doc.getValue());
+			ranked.addDocument(doc.getKey(), doc.getValue());
+		}
+		Path file = Files.createTempFile("news", ".idx");
+		try {
+			IndexFile.write(ranked.invertedIndex(), file);
+			InvertedIndex mapped = IndexFile.open(file);
+			System.out.println(numDocs + " documents, " + mapped.size() + " terms, " + pageSize + " terms per page");
+			for (int round = 0; round < rounds; round++) {
+				boolean print = round == rounds - 1; // earlier rounds warm up the jit
+				long start = System.nanoTime();
+				int entries = builder.buildHomePage(mapped).size();
+				long full = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				HomePage top = ranked.homePage().top(1000); // once per published snapshot
+				long copy = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				int pages = 0;
+				for (int offset = 0; offset < top.size(); offset += pageSize) {
+					top.page(mapped, offset, pageSize, 10);
+					pages++;
+				}
+				long page = System.nanoTime() - start;
+
+				long plainUpdates = replace(plain, docs, changes);
+				long rankedUpdates = replace(ranked, docs, changes);
+				if (print) {
+					System.out.printf("buildHomePage %10.1f ms (%d terms)%n", full / 1e6, entries);
+					System.out.printf("top(1000)     %10.1f us%n", copy / 1e3);
+					System.out.printf("page          %10.1f us/click (%d pages, 10 articles per term)%n", page / 1e3 / pages, pages);
+					System.out.printf("replace       %10.1f us/document without ranking, %.1f with%n",
+							plainUpdates / 1e3 / changes.size(), rankedUpdates / 1e3 / changes.size());
+				}
+			}
+			// the pages are the home page
+			List<Entry<String, List<String>>> expected = new ArrayList<Entry<String, List<String>>>(builder.buildHomePage(mapped));
+			if (!expected.subList(0, 100).equals(ranked.homePage().page(mapped, 0, 100))) {
+				throw new AssertionError("home page");
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Replace documents by others and put them back
+	 * 
+	 * @return the nanoseconds taken
+	 */
+	static long replace(IncrementalIndex index, Map<String, List<String>> docs, Map<String, List<String>> changes) {
+		List<String> names = new ArrayList<String>(docs.keySet()).subList(0, changes.size());
+		List<List<String>> others = new ArrayList<List<String>>(changes.values());
+		long start = System.nanoTime();
+		for (int i = 0; i < names.size(); i++) {
+			index.updateDocument(names.get(i), others.get(i));
+		}
+		for (String name : names) {
+			index.updateDocument(name, docs.get(name));
+		}
+		return (System.nanoTime() - start) / 2;
+	}
+}
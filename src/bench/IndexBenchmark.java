@@ -0,0 +1,85 @@
+package bench;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import feed.LiveFeedSource;
+import feed.RecordingFeedSource;
+import feed.ReplayFeedSource;
+import gui.NewsAggregatorGUI;
+import indexing.IndexBuilder;
+import indexing.IngestPipeline;
+import indexing.InvertedIndex;
+import indexing.StageStats;
+import indexing.TokenFilter;
+
+/**
+ * Measures the indexing pipeline on a recorded corpus, so runs are
+ * reproducible and need no network.
+ * 
+ * Usage:
+ *   IndexBenchmark record corpusDir [feed urls]   download the feeds (default: the GUI's) into corpusDir
+ *   IndexBenchmark replay corpusDir [rounds]      time parseFeed, buildIndex and buildInvertedIndex on corpusDir,
+ *                                                 with all the words then with TokenFilter.standard(),
+ *                                                 then the IngestPipeline
+ */
+public class IndexBenchmark {
+
+	private static final String FEEDS_FILE = "feeds.txt";
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.out.println("usage: IndexBenchmark record|replay corpusDir [...]");
+			return;
+		}
+		Path corpus = Paths.get(args[1]);
+		if (args[0].equals("record")) {
+			List<String> feeds = args.length > 2 ? Arrays.asList(args).subList(2, args.length)
+					: Arrays.asList(NewsAggregatorGUI.rssUrls);
+			IndexBuilder builder = new IndexBuilder(new RecordingFeedSource(new LiveFeedSource(), corpus), 16, 4);
+			Map<String, List<String>> docs = builder.parseFeed(feeds);
+			Files.write(corpus.resolve(FEEDS_FILE), feeds, StandardCharsets.UTF_8);
+			System.out.println("recorded " + docs.size() + " documents into " + corpus);
+		} else {
+			int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+			List<String> feeds = Files.readAllLines(corpus.resolve(FEEDS_FILE), StandardCharsets.UTF_8);
+			IndexBuilder builder = new IndexBuilder(new ReplayFeedSource(corpus), Runtime.getRuntime().availableProcessors(), 64);
+			for (TokenFilter filter : List.of(new TokenFilter(), TokenFilter.standard())) {
+				builder.setTokenFilter(filter);
+				String words = filter.accept("the") ? "all words" : "filtered";
+				for (int round = 0; round < rounds; round++) {
+					long t0 = System.nanoTime();
+					Map<String, List<String>> docs = builder.parseFeed(feeds);
+					long t1 = System.nanoTime();
+					Map<String, Map<String, Double>> index = builder.buildIndex(docs);
+					long t2 = System.nanoTime();
+					InvertedIndex invertedIndex = builder.buildInvertedIndex(index);
+					long t3 = System.nanoTime();
+					long postings = 0;
+					for (String term : invertedIndex.terms()) {
+						postings += invertedIndex.docFreq(term);
+					}
+					System.out.printf("%s round %d: %d docs, %d terms, %d postings  parseFeed %d ms  buildIndex %d ms  buildInvertedIndex %d ms%n",
+							words, round, docs.size(), invertedIndex.size(), postings, (t1 - t0) / 1000000, (t2 - t1) / 1000000,
+							(t3 - t2) / 1000000);
+				}
+			}
+
+			IngestPipeline pipeline = new IngestPipeline(new ReplayFeedSource(corpus), 64);
+			for (int round = 0; round < rounds; round++) {
+				long t0 = System.nanoTime();
+				Map<String, Map<String, Double>> index = pipeline.run(feeds);
+				long t1 = System.nanoTime();
+				System.out.printf("pipeline round %d: %d docs  %d ms%n", round, index.size(), (t1 - t0) / 1000000);
+			}
+			for (StageStats stage : pipeline.getStats()) {
+				System.out.println("  " + stage);
+			}
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.PositionalIndex;
+import indexing.QueryEngine;
+
+/**
+ * Memory of the positional index next to the inverted index, and latency of
+ * phrase and proximity queries compared to the AND of the same words (what
+ * a phrase costs without positions).
+ * 
+ * Usage: PhraseBenchmark [documents] [wordsPerDocument] [vocabulary] [rounds]
+ */
+public class PhraseBenchmark {
+
+	public static void main(String[] args) {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		Map<String, List<String>> docs = BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42);
+		IndexBuilder builder = new IndexBuilder();
+		InvertedIndex inverted = builder.buildInvertedIndex(builder.buildIndex(docs));
+		long invertedBytes = BuildIndexBenchmark.retained(() -> builder.buildInvertedIndex(builder.buildIndex(docs)));
+		PositionalIndex positions = new PositionalIndex(builder.getDictionary());
+		long positionalBytes = BuildIndexBenchmark.retained(() -> {
+			for (Map.Entry<String, List<String>> doc : docs.entrySet()) {
+				positions.addDocument(doc.getKey(), doc.getValue());
+			}
+			return positions;
+		});
+		System.out.printf("%d positions: %.2f encoded bytes/position, %d MB retained, inverted index %d MB%n",
+				positions.positionCount(), (double) positions.sizeInBytes() / positions.positionCount(),
+				positionalBytes >> 20, invertedBytes >> 20);
+
+		// phrases taken from the documents, and the same words in a random order
+		Random random = new Random(7);
+		List<String> found = new ArrayList<String>();
+		List<String> shuffled = new ArrayList<String>();
+		List<List<String>> texts = new ArrayList<List<String>>(docs.values());
+		for (int q = 0; q < 200; q++) {
+			List<String> text = texts.get(random.nextInt(texts.size()));
+			int length = 2 + random.nextInt(2);
+			int start = random.nextInt(text.size() - length);
+			found.add(String.join(" ", text.subList(start, start + length)));
+			List<String> other = new ArrayList<String>();
+			for (int i = 0; i < length; i++) {
+				other.add(text.get(random.nextInt(text.size())));
+			}
+			shuffled.add(String.join(" ", other));
+		}
+		QueryEngine withPositions = new QueryEngine(inverted, positions);
+		QueryEngine without = new QueryEngine(inverted);
+		for (int round = 0; round < rounds; round++) {
+			boolean print = round == rounds - 1; // earlier rounds warm up the jit
+			for (List<String> queries : List.of(found, shuffled)) {
+				String kind = queries == found ? "found " : "random ";
+				QueryBenchmark.measure(kind + "AND", queries, print, query -> without.count(query));
+				QueryBenchmark.measure(kind + "phrase", queries, print, query -> withPositions.count("\"" + query + "\""));
+				QueryBenchmark.measure(kind + "phrase~5", queries, print, query -> withPositions.count("\"" + query + "\"~5"));
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+import indexing.MappedIndex;
+import indexing.Postings.Cursor;
+import indexing.PostingsFormat;
+
+/**
+ * Heap per posting, decode throughput (postings read per second by a full
+ * cursor scan of every term) and skip throughput (advance by steps of 64
+ * documents) of each postings format of buildInvertedIndex, then the time
+ * to write the index to an IndexFile and to open it and answer a query.
+ * 
+ * Usage: PostingsBenchmark [documents] [wordsPerDocument] [vocabulary] [rounds]
+ */
+public class PostingsBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		Map<String, List<String>> docs = BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42);
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, Map<String, Double>> index = builder.buildIndex(docs);
+		docs = null; // only the forward index is kept
+
+		for (PostingsFormat format : PostingsFormat.values()) {
+			builder.setPostingsFormat(format);
+			long postings = 0;
+			InvertedIndex built = builder.buildInvertedIndex(index);
+			for (String term : built.terms()) {
+				postings += built.postings(term).size();
+			}
+			long bytes = BuildIndexBenchmark.retained(() -> builder.buildInvertedIndex(index));
+			InvertedIndex inverted = builder.buildInvertedIndex(index);
+			for (int round = 0; round < rounds; round++) {
+				boolean print = round == rounds - 1; // earlier rounds warm up the jit
+				long start = System.nanoTime();
+				double sum = 0;
+				for (String term : inverted.terms()) {
+					Cursor cursor = inverted.postings(term).cursor();
+					while (cursor.nextDoc() != Cursor.NO_MORE_DOCS) {
+						sum += cursor.score();
+					}
+				}
+				long decode = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				long skips = 0;
+				for (String term : inverted.terms()) {
+					Cursor cursor = inverted.postings(term).cursor();
+					for (int target = 0; cursor.advance(target) != Cursor.NO_MORE_DOCS; target = cursor.docId() + 64) {
+						skips++;
+					}
+				}
+				long skip = System.nanoTime() - start;
+				if (print) {
+					System.out.printf("%-10s %6.1f bytes/posting %12.0f postings decoded/s %12.0f advances/s (%.0f)%n",
+							format, bytes / (double) postings, postings / (decode / 1e9), skips / (skip / 1e9), sum);
+				}
+			}
+		}
+
+		Path file = Files.createTempFile("news", ".idx");
+		try {
+			InvertedIndex inverted = builder.buildInvertedIndex(index);
+			long start = System.nanoTime();
+			IndexFile.write(inverted, file);
+			long write = System.nanoTime() - start;
+			start = System.nanoTime();
+			MappedIndex mapped = IndexFile.open(file);
+			long open = System.nanoTime() - start;
+			start = System.nanoTime();
+			List<String> articles = builder.searchArticles("w1", mapped);
+			long query = System.nanoTime() - start;
+			System.out.printf("index file %.1f MB written in %d ms, opened in %.2f ms, first query (%d articles) in %.2f ms%n",
+					Files.size(file) / 1e6, write / 1000000, open / 1e6, articles.size(), query / 1e6);
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
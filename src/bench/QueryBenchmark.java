@@ -0,0 +1,115 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+import indexing.PostingsFormat;
+import indexing.QueryEngine;
+
+/**
+ * Latency of boolean queries mixing common and rare terms, for each postings
+ * backend, compared to intersecting the results of searchArticles in hash sets.
+ * count only matches documents, search also ranks them and returns their names.
+ * 
+ * Usage: QueryBenchmark [documents] [wordsPerDocument] [vocabulary] [rounds]
+ */
+public class QueryBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, Map<String, Double>> index = builder.buildIndex(BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42));
+		InvertedIndex arrays = builder.buildInvertedIndex(index);
+		builder.setPostingsFormat(PostingsFormat.COMPRESSED);
+		InvertedIndex compressed = builder.buildInvertedIndex(index);
+		Path file = Files.createTempFile("news", ".idx");
+		IndexFile.write(arrays, file);
+		InvertedIndex mapped = IndexFile.open(file);
+
+		// terms of rank 1 (in every document), 10, 100 and 1000
+		String[] terms = { "w0", "w9", "w2r", "wrr" };
+		List<String> and = new ArrayList<String>();
+		List<String> or = new ArrayList<String>();
+		List<String> not = new ArrayList<String>();
+		for (String a : terms) {
+			for (String b : terms) {
+				if (!a.equals(b)) {
+					and.add(a + " " + b);
+					or.add(a + " OR " + b);
+					not.add(a + " " + b + " -w4");
+				}
+			}
+		}
+		System.out.println(numDocs + " documents, postings of w0 w9 w2r wrr: " + articles(builder, arrays, "w0") + " "
+				+ articles(builder, arrays, "w9") + " " + articles(builder, arrays, "w2r") + " "
+				+ articles(builder, arrays, "wrr"));
+		try {
+			for (int round = 0; round < rounds; round++) {
+				boolean print = round == rounds - 1; // earlier rounds warm up the jit
+				for (List<String> queries : List.of(and, or, not)) {
+					String kind = queries == and ? "AND " : queries == or ? "OR  " : "NOT ";
+					if (queries == and) {
+						measure(kind + "hash sets", queries, print, query -> hashSets(builder, arrays, query));
+					}
+					measure(kind + "count array", queries, print, query -> new QueryEngine(arrays).count(query));
+					measure(kind + "count mapped", queries, print, query -> new QueryEngine(mapped).count(query));
+					measure(kind + "array", queries, print, query -> new QueryEngine(arrays).search(query).size());
+					measure(kind + "compressed", queries, print, query -> new QueryEngine(compressed).search(query).size());
+					measure(kind + "mapped", queries, print, query -> new QueryEngine(mapped).search(query).size());
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	interface Query {
+		int run(String query);
+	}
+
+	static void measure(String name, List<String> queries, boolean print, Query run) {
+		long start = System.nanoTime();
+		long results = 0;
+		for (String query : queries) {
+			results += run.run(query);
+		}
+		long nanos = System.nanoTime() - start;
+		if (print) {
+			System.out.printf("%-17s %10.1f us/query (%d results)%n", name, nanos / 1e3 / queries.size(), results);
+		}
+	}
+
+	static int articles(IndexBuilder builder, InvertedIndex inverted, String term) {
+		List<String> articles = builder.searchArticles(term, inverted);
+		return articles == null ? 0 : articles.size();
+	}
+
+	/**
+	 * An AND query as a caller of searchArticles would run it
+	 */
+	static int hashSets(IndexBuilder builder, InvertedIndex inverted, String query) {
+		Set<String> result = null;
+		for (String term : query.split(" ")) {
+			List<String> articles = builder.searchArticles(term, inverted);
+			if (result == null) {
+				result = new HashSet<String>(articles);
+			} else {
+				result.retainAll(new HashSet<String>(articles));
+			}
+		}
+		return result.size();
+	}
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import indexing.IndexBuilder;
+import indexing.QueryEngine;
+import indexing.ShardedIndex;
+
+/**
+ * Build time and query latency of a sharded inverted index on a synthetic
+ * corpus, for 1, 2, 4 ... shards up to the number of cores. The forward index
+ * is built once with every core, the shards are then built in parallel; a
+ * query is searched in all the shards at once (ranked top 10 of 2 to 4 terms
+ * OR, and AND of 2 terms). The single row is buildInvertedIndex and
+ * QueryEngine without shards.
+ * 
+ * Usage: ShardBenchmark [documents] [wordsPerDocument] [vocabulary] [rounds]
+ */
+public class ShardBenchmark {
+
+	public static void main(String[] args) {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 100000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+		int cores = Runtime.getRuntime().availableProcessors();
+
+		Map<String, List<String>> docs = BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42);
+		IndexBuilder builder = new IndexBuilder();
+		long start = System.nanoTime();
+		Map<String, Map<String, Double>> index = builder.buildIndex(docs, cores);
+		System.out.printf("%d documents, %d cores, forward index %.0f ms%n", numDocs, cores, (System.nanoTime() - start) / 1e6);
+		docs = null;
+
+		Random random = new Random(7);
+		List<String> or = new ArrayList<String>();
+		List<String> and = new ArrayList<String>();
+		for (int q = 0; q < 100; q++) {
+			StringBuilder query = new StringBuilder();
+			for (int t = 2 + random.nextInt(3); t > 0; t--) {
+				query.append(query.length() == 0 ? "" : " OR ").append(term(random, vocabulary));
+			}
+			or.add(query.toString());
+			and.add(term(random, vocabulary) + " " + term(random, vocabulary));
+		}
+
+		for (int round = 0; round < rounds; round++) {
+			boolean print = round == rounds - 1; // earlier rounds warm up the jit
+			start = System.nanoTime();
+			QueryEngine single = new QueryEngine(builder.buildInvertedIndex(index));
+			long build = System.nanoTime() - start;
+			if (print) {
+				System.out.printf("%-9s build %7.0f ms%n", "single", build / 1e6);
+			}
+			QueryBenchmark.measure("single OR", or, print, query -> single.search(query, 10).size());
+			QueryBenchmark.measure("single AND", and, print, query -> single.search(query, 10).size());
+			for (int shards = 1; shards <= Math.max(4, cores); shards *= 2) {
+				start = System.nanoTime();
+				ShardedIndex sharded = builder.buildShardedIndex(index, shards);
+				build = System.nanoTime() - start;
+				if (print) {
+					System.out.printf("%-9s build %7.0f ms%n", shards + " shards", build / 1e6);
+				}
+				QueryBenchmark.measure(shards + " OR", or, print, query -> sharded.search(query, 10).size());
+				QueryBenchmark.measure(shards + " AND", and, print, query -> sharded.search(query, 10).size());
+			}
+		}
+	}
+
+	/**
+	 * @return a term drawn like the words of the corpus
+	 */
+	static String term(Random random, int vocabulary) {
+		return "w" + Integer.toString((int) Math.pow(vocabulary, random.nextDouble()) - 1, 36);
+	}
+}
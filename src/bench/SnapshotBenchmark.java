@@ -0,0 +1,106 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import indexing.IndexBuilder;
+import indexing.IndexSnapshot;
+import indexing.IndexSnapshot.Snapshot;
+import indexing.InvertedIndex;
+import indexing.QueryEngine;
+
+/**
+ * Search throughput of reader threads while the index is rebuilt in a loop:
+ * with snapshots pinned from an IndexSnapshot, and with a lock held by the
+ * rebuild as when the index was replaced in place. The idle row is without
+ * any rebuild. The rebuild takes one core, so the readers get the others.
+ * 
+ * Usage: SnapshotBenchmark [documents] [wordsPerDocument] [vocabulary] [readers] [seconds]
+ */
+public class SnapshotBenchmark {
+
+	public static void main(String[] args) throws InterruptedException {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int readers = args.length > 3 ? Integer.parseInt(args[3]) : Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		int seconds = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+		Map<String, List<String>> docs = BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42);
+		IndexBuilder builder = new IndexBuilder();
+		Supplier<InvertedIndex> build = () -> builder.buildInvertedIndex(builder.buildIndex(docs));
+		String[] queries = { "w9 w2r", "w2r OR wrr", "w9 -w2r", "w1 w5 w2r" };
+
+		IndexSnapshot index = new IndexSnapshot();
+		index.publish(build.get(), null);
+		Object lock = new Object();
+		InvertedIndex[] locked = new InvertedIndex[] { build.get() };
+		System.out.println(readers + " readers, " + numDocs + " documents");
+		for (int round = 0; round < 2; round++) { // the first one warms up the jit
+			boolean print = round == 1;
+			run("idle", print, readers, seconds, null, query -> {
+				try (Snapshot snapshot = index.pin()) {
+					new QueryEngine(snapshot.getInvertedIndex()).search(query, 10);
+				}
+			}, queries);
+			run("snapshot", print, readers, seconds, () -> index.publish(build.get(), null), query -> {
+				try (Snapshot snapshot = index.pin()) {
+					new QueryEngine(snapshot.getInvertedIndex()).search(query, 10);
+				}
+			}, queries);
+			run("lock", print, readers, seconds, () -> {
+				synchronized (lock) {
+					locked[0] = build.get();
+				}
+			}, query -> {
+				synchronized (lock) {
+					new QueryEngine(locked[0]).search(query, 10);
+				}
+			}, queries);
+		}
+	}
+
+	interface Search {
+		void run(String query);
+	}
+
+	static void run(String name, boolean print, int readers, int seconds, Runnable rebuild, Search search, String[] queries)
+			throws InterruptedException {
+		AtomicBoolean done = new AtomicBoolean();
+		LongAdder searches = new LongAdder();
+		LongAdder rebuilds = new LongAdder();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < readers; t++) {
+			int first = t;
+			threads.add(new Thread(() -> {
+				for (int i = first; !done.get(); i++) {
+					search.run(queries[i % queries.length]);
+					searches.increment();
+				}
+			}));
+		}
+		if (rebuild != null) {
+			threads.add(new Thread(() -> {
+				while (!done.get()) {
+					rebuild.run();
+					rebuilds.increment();
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(seconds * 1000L);
+		done.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (print) {
+			System.out.printf("%-9s %10.0f searches/s, %d rebuilds%n", name, searches.sum() / (double) seconds, rebuilds.sum());
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import indexing.Stemmer;
+import indexing.TokenFilter;
+
+/**
+ * Vocabulary reduction of the Porter stemmer on the words of an
+ * autocomplete file (the terms of a real index), alone and after the
+ * standard TokenFilter, the nodes of an autocomplete trie of the words and of
+ * the stems, and words stemmed per
+ * second with and without the cache, the words drawn with a Zipf-like law.
+ *
+ * Usage: StemmerBenchmark [autocompleteFile] [rounds]
+ */
+public class StemmerBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		String file = args.length > 0 ? args[0] : "autocomplete.txt";
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+		List<String> words = new ArrayList<String>();
+		for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8)) {
+			String[] fields = line.trim().split("\\s+"); // weight word
+			if (fields.length == 2) {
+				words.add(fields[1]);
+			}
+		}
+		Stemmer stemmer = new Stemmer();
+		Set<String> stems = new HashSet<String>();
+		for (String word : words) {
+			stems.add(stemmer.stem(word));
+		}
+		TokenFilter filter = TokenFilter.standard();
+		filter.setStemmer(stemmer);
+		Set<String> filtered = new HashSet<String>();
+		for (String word : words) {
+			String term = filter.normalize(word);
+			if (term != null) {
+				filtered.add(term);
+			}
+		}
+		long wordNodes = trieNodes(words);
+		long stemNodes = trieNodes(stems);
+		System.out.printf("%d words -> %d stems (%.1f%% fewer), trie %d -> %d nodes (%.1f%% fewer)%n", words.size(),
+				stems.size(), 100.0 * (words.size() - stems.size()) / words.size(), wordNodes, stemNodes,
+				100.0 * (wordNodes - stemNodes) / wordNodes);
+		System.out.printf("with TokenFilter.standard() %d terms (%.1f%% fewer), trie %d nodes (%.1f%% fewer)%n", filtered.size(),
+				100.0 * (words.size() - filtered.size()) / words.size(), trieNodes(filtered),
+				100.0 * (wordNodes - trieNodes(filtered)) / wordNodes);
+
+		Random random = new Random(42);
+		char[][] stream = new char[1000000][];
+		for (int i = 0; i < stream.length; i++) {
+			stream[i] = words.get((int) Math.pow(words.size(), random.nextDouble()) - 1).toCharArray();
+		}
+		for (int round = 0; round < rounds; round++) {
+			boolean print = round == rounds - 1; // earlier rounds warm up the jit
+			for (int cacheSize : new int[] { 1, 1 << 14 }) {
+				Stemmer s = new Stemmer(cacheSize); // 1: a word only hits the cache right after itself
+				long start = System.nanoTime();
+				long chars = 0;
+				for (char[] word : stream) {
+					chars += s.stem(word, 0, word.length).length;
+				}
+				long nanos = System.nanoTime() - start;
+				if (print) {
+					System.out.printf("cache of %5d words %12.0f words/s (%d)%n", cacheSize, stream.length / (nanos / 1e9), chars);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the nodes of a trie of the words, root included: the distinct prefixes
+	 */
+	static long trieNodes(Iterable<String> words) {
+		Set<String> prefixes = new HashSet<String>();
+		for (String word : words) {
+			for (int i = 0; i <= word.length(); i++) {
+				prefixes.add(word.substring(0, i));
+			}
+		}
+		return prefixes.size();
+	}
+}
@@ -0,0 +1,102 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import indexing.IIndexBuilder;
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+import indexing.TokenFilter;
+
+/**
+ * Index size and build time with and without the standard TokenFilter, on
+ * texts where 40% of the words are stopwords and 5% are numbers, about the
+ * share of stopwords in English news. IndexBenchmark replay measures the same
+ * on a recorded corpus.
+ *
+ * Usage: TokenFilterBenchmark [documents] [wordsPerDocument] [vocabulary] [rounds]
+ */
+public class TokenFilterBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+		Map<String, String> texts = texts(numDocs, words, vocabulary, 42);
+		System.out.println(numDocs + " documents");
+		Path file = Files.createTempFile("news", ".idx");
+		try {
+			for (int round = 0; round < rounds; round++) {
+				boolean print = round == rounds - 1; // earlier rounds warm up the jit
+				for (TokenFilter filter : List.of(new TokenFilter(), TokenFilter.standard())) {
+					IndexBuilder builder = new IndexBuilder();
+					builder.setTokenFilter(filter);
+					long start = System.nanoTime();
+					Map<String, List<String>> docs = new HashMap<String, List<String>>();
+					long tokens = 0;
+					for (Entry<String, String> text : texts.entrySet()) {
+						List<String> kept = filter.tokenize(text.getValue());
+						tokens += kept.size();
+						docs.put(text.getKey(), kept);
+					}
+					long tokenize = System.nanoTime() - start;
+					start = System.nanoTime();
+					Map<String, Map<String, Double>> index = builder.buildIndex(docs);
+					long build = System.nanoTime() - start;
+					start = System.nanoTime();
+					InvertedIndex inverted = builder.buildInvertedIndex(index);
+					long invert = System.nanoTime() - start;
+					long postings = 0;
+					for (String term : inverted.terms()) {
+						postings += inverted.docFreq(term);
+					}
+					IndexFile.write(inverted, file);
+					if (print) {
+						System.out.printf("%-8s %10d tokens %7d terms %10d postings %7.1f MB file  "
+								+ "tokenize %5d ms  buildIndex %5d ms  buildInvertedIndex %5d ms%n",
+								filter.accept("the") ? "all" : "filtered", tokens, inverted.size(), postings,
+								Files.size(file) / 1e6, tokenize / 1000000, build / 1000000, invert / 1000000);
+					}
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	/**
+	 * Random texts: Zipf-like content words, stopwords and numbers, with punctuation
+	 */
+	static Map<String, String> texts(int numDocs, int maxWords, int vocabulary, long seed) {
+		Random random = new Random(seed);
+		String[] stopwords = IIndexBuilder.STOPW;
+		Map<String, String> texts = new HashMap<String, String>();
+		for (int d = 0; d < numDocs; d++) {
+			int length = maxWords / 2 + random.nextInt(maxWords);
+			StringBuilder text = new StringBuilder();
+			for (int w = 0; w < length; w++) {
+				double kind = random.nextDouble();
+				if (kind < 0.40) {
+					text.append(stopwords[(int) Math.pow(stopwords.length, random.nextDouble()) - 1]);
+				} else if (kind < 0.45) {
+					text.append(random.nextInt(1000000));
+				} else {
+					text.append('w').append(Integer.toString((int) Math.pow(vocabulary, random.nextDouble()) - 1, 36));
+				}
+				text.append(w % 12 == 11 ? ". " : " ");
+			}
+			texts.put("http://news.com/article" + d + ".html", text.toString());
+		}
+		return texts;
+	}
+}
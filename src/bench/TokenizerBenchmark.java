@@ -0,0 +1,80 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import indexing.Tokenizer;
+
+/**
+ * Measures time and bytes allocated per MB of article text for the old
+ * toLowerCase/replaceAll/split pipeline and for the Tokenizer, once with a
+ * sink that only counts words and once building the List used by parseFeed.
+ * 
+ * Usage: TokenizerBenchmark [textKB] [rounds]
+ */
+public class TokenizerBenchmark {
+
+	public static void main(String[] args) {
+		int textKB = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		String text = sampleText(textKB * 1024);
+		double mb = text.length() * (double) rounds / (1024 * 1024);
+
+		for (int warmup = 0; warmup < 2; warmup++) {
+			measure("regex pipeline", text, rounds, mb, warmup == 1, TokenizerBenchmark::regex);
+			measure("Tokenizer, counting sink", text, rounds, mb, warmup == 1, TokenizerBenchmark::counting);
+			measure("Tokenizer, list sink", text, rounds, mb, warmup == 1, t -> Tokenizer.tokenize(t).size());
+		}
+	}
+
+	private interface Run {
+		int words(String text);
+	}
+
+	private static void measure(String name, String text, int rounds, double mb, boolean print, Run run) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long allocated = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		int words = 0;
+		for (int i = 0; i < rounds; i++) {
+			words += run.words(text);
+		}
+		long nanos = System.nanoTime() - start;
+		allocated = threads.getThreadAllocatedBytes(thread) - allocated;
+		if (print) {
+			System.out.printf("%-26s %8.1f MB/s %12.0f bytes allocated/MB  (%d words)%n", name,
+					mb / (nanos / 1e9), allocated / mb, words);
+		}
+	}
+
+	private static int regex(String text) {
+		String[] words = text.toLowerCase().replaceAll("[^a-zA-Z0-9 ]", "").split("\\s+");
+		List<String> list = new ArrayList<String>();
+		for (String word : words) {
+			list.add(word);
+		}
+		return list.size();
+	}
+
+	private static int counting(String text) {
+		int[] count = new int[1];
+		Tokenizer tokenizer = new Tokenizer((buffer, offset, length) -> count[0]++);
+		tokenizer.append(text);
+		tokenizer.end();
+		return count[0];
+	}
+
+	private static String sampleText(int size) {
+		String[] words = { "The", "Supreme", "Court", "ruled", "on", "Tuesday,", "that", "data", "structures",
+				"(binary", "trees)", "are", "efficient;", "officials", "said", "2020", "it's", "\"complicated\"." };
+		Random random = new Random(42);
+		StringBuilder text = new StringBuilder(size + 32);
+		while (text.length() < size) {
+			text.append(words[random.nextInt(words.length)]).append(' ');
+		}
+		return text.toString();
+	}
+}
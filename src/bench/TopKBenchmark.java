@@ -0,0 +1,81 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+import indexing.PostingsFormat;
+import indexing.QueryEngine;
+
+/**
+ * Latency of ranked OR queries for the best k articles, for each postings
+ * backend: ranking every match (search), a heap scoring every match
+ * (search(query, k) without pruning) and WAND. The query terms are drawn with
+ * the Zipf-like distribution of the corpus words, so most queries mix common
+ * and rare terms.
+ * 
+ * Usage: TopKBenchmark [documents] [wordsPerDocument] [vocabulary] [k] [rounds]
+ */
+public class TopKBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		int words = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		int vocabulary = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+		int k = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+		int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, Map<String, Double>> index = builder.buildIndex(BuildIndexBenchmark.corpus(numDocs, words, vocabulary, 42));
+		InvertedIndex arrays = builder.buildInvertedIndex(index);
+		builder.setPostingsFormat(PostingsFormat.COMPRESSED);
+		InvertedIndex compressed = builder.buildInvertedIndex(index);
+		Path file = Files.createTempFile("news", ".idx");
+		IndexFile.write(arrays, file);
+		InvertedIndex mapped = IndexFile.open(file);
+
+		// 2 to 5 terms, ranks drawn like the words of the corpus
+		Random random = new Random(7);
+		List<String> queries = new ArrayList<String>();
+		for (int q = 0; q < 200; q++) {
+			StringBuilder query = new StringBuilder();
+			for (int t = 2 + random.nextInt(4); t > 0; t--) {
+				int rank = (int) Math.pow(vocabulary, random.nextDouble()) - 1;
+				query.append(query.length() == 0 ? "" : " OR ").append("w").append(Integer.toString(rank, 36));
+			}
+			queries.add(query.toString());
+		}
+		System.out.println(numDocs + " documents, " + queries.size() + " queries, top " + k);
+		try {
+			for (int round = 0; round < rounds; round++) {
+				boolean print = round == rounds - 1; // earlier rounds warm up the jit
+				for (InvertedIndex inverted : List.of(arrays, compressed, mapped)) {
+					String kind = inverted == arrays ? "array " : inverted == compressed ? "compressed " : "mapped ";
+					QueryEngine engine = new QueryEngine(inverted);
+					QueryBenchmark.measure(kind + "rank all", queries, print, query -> engine.search(query).size());
+					engine.setPruning(false);
+					QueryBenchmark.measure(kind + "heap", queries, print, query -> engine.search(query, k).size());
+					engine.setPruning(true);
+					QueryBenchmark.measure(kind + "wand", queries, print, query -> engine.search(query, k).size());
+				}
+			}
+			// same articles with and without pruning
+			QueryEngine engine = new QueryEngine(arrays);
+			for (String query : queries) {
+				List<String> all = engine.search(query);
+				if (!all.subList(0, Math.min(k, all.size())).equals(engine.search(query, k))) {
+					throw new AssertionError(query);
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package feed;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Layout of a corpus directory: one file per page named after the SHA-1 of
+ * its url, and a manifest with one line per page
+ * (file name, tab, charset or empty, tab, url).
+ */
+final class CorpusManifest {
+
+	static final String MANIFEST_FILE = "manifest.tsv";
+	static final String PAGE_SUFFIX = ".page";
+
+	private CorpusManifest() {
+	}
+
+	static String line(String fileName, String charset, String url) {
+		return fileName + "\t" + (charset == null ? "" : charset) + "\t" + url + "\n";
+	}
+
+	/**
+	 * @return url -> {file name, charset}, empty if the directory has no manifest yet
+	 */
+	static Map<String, String[]> read(Path corpus) throws IOException {
+		Map<String, String[]> pages = new HashMap<String, String[]>();
+		Path manifest = corpus.resolve(MANIFEST_FILE);
+		if (!Files.exists(manifest)) {
+			return pages;
+		}
+		try (BufferedReader br = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				String[] fields = line.split("\t", 3);
+				if (fields.length != 3) { // Check if the format is right
+					continue;
+				}
+				pages.put(fields[2], new String[] { fields[0], fields[1].isEmpty() ? null : fields[1] });
+			}
+		}
+		return pages;
+	}
+}
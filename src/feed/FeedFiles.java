@@ -0,0 +1,43 @@
+package feed;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * File helpers shared by the on-disk stores of this package
+ */
+final class FeedFiles {
+
+	private FeedFiles() {
+	}
+
+	/**
+	 * @return a file name made of the hex SHA-1 of the url followed by suffix
+	 */
+	static String fileName(String url, String suffix) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+			return String.format("%040x", new BigInteger(1, digest)) + suffix;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every jvm ships SHA-1
+		}
+	}
+
+	/**
+	 * Replace a file, atomically if the file system supports it
+	 */
+	static void move(Path from, Path to) throws IOException {
+		try {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
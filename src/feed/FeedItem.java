@@ -0,0 +1,43 @@
+package feed;
+
+/**
+ * An item (rss) or entry (atom) of a feed. Fields the feed does not provide are null.
+ */
+public class FeedItem {
+
+	private final String link;
+	private final String guid;
+	private final String pubDate;
+
+	public FeedItem(String link, String guid, String pubDate) {
+		this.link = link;
+		this.guid = guid;
+		this.pubDate = pubDate;
+	}
+
+	/**
+	 * @return the url of the article
+	 */
+	public String getLink() {
+		return link;
+	}
+
+	/**
+	 * @return the guid (rss) or id (atom) of the item
+	 */
+	public String getGuid() {
+		return guid;
+	}
+
+	/**
+	 * @return the publication date as written in the feed (pubDate, dc:date, published or updated)
+	 */
+	public String getPubDate() {
+		return pubDate;
+	}
+
+	@Override
+	public String toString() {
+		return link;
+	}
+}
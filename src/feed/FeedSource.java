@@ -0,0 +1,26 @@
+package feed;
+
+import java.io.IOException;
+
+/**
+ * Where IndexBuilder gets the rss feeds and the articles from.
+ * 
+ * Implementations must be thread safe, IndexBuilder fetches concurrently.
+ */
+public interface FeedSource {
+
+	/**
+	 * @param url the url of a rss feed or of an article
+	 * @return the page, to be closed by the caller
+	 * @throws IOException if the page cannot be fetched
+	 */
+	public Page fetch(String url) throws IOException;
+
+	/**
+	 * Persist whatever the source keeps on disk. Called by IndexBuilder after each parseFeed.
+	 * 
+	 * @throws IOException if writing fails
+	 */
+	public default void flush() throws IOException {
+	}
+}
@@ -0,0 +1,130 @@
+package feed;
+
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs fetch tasks on a bounded pool of worker threads.
+ * 
+ * At most maxInFlight tasks run at the same time overall, and at most
+ * maxPerHost of them target the same host. Tasks waiting for a busy host are
+ * parked in a per-host queue instead of holding a worker thread, so one slow
+ * host cannot starve the others.
+ */
+public class FetchScheduler implements AutoCloseable {
+
+	private final ExecutorService workers;
+	private final int maxPerHost;
+	private final Map<String, HostQueue> hosts = new HashMap<String, HostQueue>(); // guarded by itself
+
+	/**
+	 * @param maxInFlight the maximum number of fetches running at once
+	 * @param maxPerHost the maximum number of fetches running at once against a single host
+	 */
+	public FetchScheduler(int maxInFlight, int maxPerHost) {
+		if (maxInFlight < 1 || maxPerHost < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.maxPerHost = maxPerHost;
+		this.workers = Executors.newFixedThreadPool(maxInFlight, daemonThreads());
+	}
+
+	/**
+	 * Schedule a task that fetches the given url.
+	 * 
+	 * @param url the url the task will connect to, used for the per-host limit
+	 * @param task the fetch itself
+	 * @return a future completed with the task result (or its exception)
+	 */
+	public <T> CompletableFuture<T> submit(String url, Callable<T> task) {
+		CompletableFuture<T> result = new CompletableFuture<T>();
+		HostQueue queue = queueFor(hostOf(url));
+		Runnable job = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					result.complete(task.call());
+				} catch (Throwable t) {
+					result.completeExceptionally(t);
+				} finally {
+					queue.finished();
+				}
+			}
+		};
+		queue.offer(job);
+		return result;
+	}
+
+	@Override
+	public void close() {
+		workers.shutdown();
+	}
+
+	private HostQueue queueFor(String host) {
+		synchronized (hosts) {
+			HostQueue queue = hosts.get(host);
+			if (queue == null) {
+				queue = new HostQueue();
+				hosts.put(host, queue);
+			}
+			return queue;
+		}
+	}
+
+	private static String hostOf(String url) {
+		try {
+			String host = URI.create(url.trim()).getHost();
+			return host == null ? "" : host.toLowerCase();
+		} catch (IllegalArgumentException e) {
+			return ""; // malformed urls share one queue, the fetch itself will report the error
+		}
+	}
+
+	private static ThreadFactory daemonThreads() {
+		AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "fetch-" + count.incrementAndGet());
+				t.setDaemon(true); // never keep the GUI alive because of a hanging connection
+				return t;
+			}
+		};
+	}
+
+	/**
+	 * Jobs for one host. A job is handed to the worker pool only while fewer
+	 * than maxPerHost jobs of the same host are running.
+	 */
+	private class HostQueue {
+		private final Deque<Runnable> pending = new ArrayDeque<Runnable>();
+		private int running;
+
+		synchronized void offer(Runnable job) {
+			if (running < maxPerHost) {
+				running++;
+				workers.execute(job);
+			} else {
+				pending.addLast(job);
+			}
+		}
+
+		synchronized void finished() {
+			Runnable next = pending.pollFirst();
+			if (next != null) {
+				workers.execute(next); // the finished job's slot goes straight to the next one
+			} else {
+				running--;
+			}
+		}
+	}
+}
@@ -0,0 +1,284 @@
+package feed;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+
+/**
+ * A persistent http cache using conditional GET.
+ * 
+ * Every response carrying an ETag or a Last-Modified header is stored on disk
+ * along with these validators. The next request for the same url sends
+ * If-None-Match / If-Modified-Since, and when the server answers 304 Not
+ * Modified the stored body is returned instead of downloading it again.
+ * 
+ * The total size of the stored bodies is bounded, the least recently used
+ * entries are evicted first. The entry list is kept in a file named "index" in
+ * the cache directory and is only rewritten by flush(). This class is thread
+ * safe, requests themselves run outside of any lock.
+ */
+public class HttpCache {
+
+	private static final String INDEX_FILE = "index";
+	private static final String BODY_SUFFIX = ".body";
+
+	private final Path directory;
+	private final long maxBytes;
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true); // url -> entry, in LRU order
+	private long totalBytes;
+	private boolean dirty;
+
+	private final AtomicInteger revalidated = new AtomicInteger();
+	private final AtomicInteger downloaded = new AtomicInteger();
+
+	/**
+	 * Open (or create) a cache directory.
+	 * 
+	 * @param directory the directory holding the cached bodies
+	 * @param maxBytes the maximum total size of the cached bodies
+	 * @throws IOException if the directory cannot be created or read
+	 */
+	public HttpCache(Path directory, long maxBytes) throws IOException {
+		if (directory == null || maxBytes < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory);
+		load();
+	}
+
+	/**
+	 * Get a page, revalidating the cached copy if there is one.
+	 * 
+	 * @param url the url of the page
+	 * @return the body of the page
+	 * @throws IOException if the request fails, the server answers with a status other than 2xx
+	 *         (or 304 for a cached page) or with 204 No Content, or the content is not text as for
+	 *         LiveFeedSource without a cache
+	 */
+	public Page fetch(String url) throws IOException {
+		Entry cached;
+		synchronized (this) {
+			cached = entries.get(url);
+		}
+
+		// the content type check and body size limit of Jsoup apply, as when the page is not cached
+		Connection connection = Jsoup.connect(url).ignoreHttpErrors(true);
+		if (cached != null) {
+			if (cached.etag != null) {
+				connection.header("If-None-Match", cached.etag);
+			}
+			if (cached.lastModified != null) {
+				connection.header("If-Modified-Since", cached.lastModified);
+			}
+		}
+		Connection.Response response = connection.execute();
+		int status = response.statusCode();
+
+		if (status == 304 && cached != null) {
+			byte[] body = readBody(cached);
+			if (body != null) {
+				revalidated.incrementAndGet();
+				return new Page(url, body, cached.charset, true);
+			}
+			// the body vanished from the disk, download it again without validators
+			remove(url);
+			return fetch(url);
+		}
+		if (status < 200 || status >= 300 || status == 204) { // a 304 without a cached copy too, 204 has no page
+			throw new HttpStatusException("HTTP error fetching URL", status, url);
+		}
+
+		downloaded.incrementAndGet();
+		byte[] body = response.bodyAsBytes();
+		String etag = response.header("ETag");
+		String lastModified = response.header("Last-Modified");
+		if (etag != null || lastModified != null) {
+			store(new Entry(url, etag, lastModified, response.charset(), body.length), body);
+		} else if (cached != null) {
+			remove(url); // the page is no longer cacheable
+		}
+		return new Page(url, body, response.charset(), false);
+	}
+
+	/**
+	 * Write the entry list to disk. Bodies are written as soon as they are
+	 * downloaded, but entries not flushed are forgotten when the cache is opened again.
+	 * 
+	 * @throws IOException if the index file cannot be written
+	 */
+	public synchronized void flush() throws IOException {
+		if (!dirty) {
+			return;
+		}
+		Path tmp = directory.resolve(INDEX_FILE + ".tmp");
+		try (BufferedWriter bw = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+			for (Entry entry : entries.values()) { // least recently used first, the order is kept on reload
+				bw.write(entry.url + "\t" + orEmpty(entry.etag) + "\t" + orEmpty(entry.lastModified) + "\t"
+						+ orEmpty(entry.charset) + "\t" + entry.length);
+				bw.newLine();
+			}
+		}
+		FeedFiles.move(tmp, directory.resolve(INDEX_FILE));
+		dirty = false;
+	}
+
+	/**
+	 * @return the number of requests answered with 304 Not Modified
+	 */
+	public int getRevalidated() {
+		return revalidated.get();
+	}
+
+	/**
+	 * @return the number of requests that downloaded a full body
+	 */
+	public int getDownloaded() {
+		return downloaded.get();
+	}
+
+	/**
+	 * @return the total size of the cached bodies
+	 */
+	public synchronized long getSize() {
+		return totalBytes;
+	}
+
+	/**
+	 * @return the number of cached pages
+	 */
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	private void store(Entry entry, byte[] body) throws IOException {
+		if (body.length > maxBytes) {
+			remove(entry.url);
+			return;
+		}
+		Path file = directory.resolve(entry.fileName());
+		Path tmp = Files.createTempFile(directory, "fetch", ".tmp");
+		Files.write(tmp, body);
+		synchronized (this) {
+			FeedFiles.move(tmp, file);
+			Entry old = entries.put(entry.url, entry);
+			if (old != null) {
+				totalBytes -= old.length;
+			}
+			totalBytes += entry.length;
+			dirty = true;
+			evict();
+		}
+	}
+
+	private synchronized void remove(String url) throws IOException {
+		Entry old = entries.remove(url);
+		if (old != null) {
+			totalBytes -= old.length;
+			Files.deleteIfExists(directory.resolve(old.fileName()));
+			dirty = true;
+		}
+	}
+
+	private void evict() throws IOException {
+		Iterator<Entry> lru = entries.values().iterator();
+		while (totalBytes > maxBytes && lru.hasNext()) {
+			Entry eldest = lru.next();
+			lru.remove();
+			totalBytes -= eldest.length;
+			Files.deleteIfExists(directory.resolve(eldest.fileName()));
+		}
+	}
+
+	private byte[] readBody(Entry entry) throws IOException {
+		Path file = directory.resolve(entry.fileName());
+		synchronized (this) {
+			if (!Files.exists(file)) {
+				return null;
+			}
+			return Files.readAllBytes(file);
+		}
+	}
+
+	/**
+	 * Read the index file and delete bodies it does not reference
+	 */
+	private void load() throws IOException {
+		Path index = directory.resolve(INDEX_FILE);
+		if (Files.exists(index)) {
+			try (BufferedReader br = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+				String line;
+				while ((line = br.readLine()) != null) {
+					String[] fields = line.split("\t", -1);
+					if (fields.length != 5) { // Check if the format is right
+						continue;
+					}
+					Entry entry = new Entry(fields[0], orNull(fields[1]), orNull(fields[2]), orNull(fields[3]),
+							Long.parseLong(fields[4]));
+					if (Files.exists(directory.resolve(entry.fileName()))) {
+						entries.put(entry.url, entry);
+						totalBytes += entry.length;
+					}
+				}
+			}
+		}
+
+		Set<String> referenced = new HashSet<String>();
+		for (Entry entry : entries.values()) {
+			referenced.add(entry.fileName());
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*{" + BODY_SUFFIX + ",.tmp}")) {
+			for (Path file : files) {
+				if (!referenced.contains(file.getFileName().toString())) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+		evict();
+	}
+
+	private static String orEmpty(String s) {
+		return s == null ? "" : s;
+	}
+
+	private static String orNull(String s) {
+		return s.isEmpty() ? null : s;
+	}
+
+	/**
+	 * A cached response, the body itself is in the file named fileName()
+	 */
+	private static class Entry {
+		final String url;
+		final String etag;
+		final String lastModified;
+		final String charset;
+		final long length;
+
+		Entry(String url, String etag, String lastModified, String charset, long length) {
+			this.url = url;
+			this.etag = etag;
+			this.lastModified = lastModified;
+			this.charset = charset;
+			this.length = length;
+		}
+
+		String fileName() {
+			return FeedFiles.fileName(url, BODY_SUFFIX);
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package feed;
+
+import java.io.IOException;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+/**
+ * Downloads pages from the network with Jsoup, optionally through a HttpCache.
+ */
+public class LiveFeedSource implements FeedSource {
+
+	private final HttpCache cache;
+
+	/**
+	 * A source downloading every page each time
+	 */
+	public LiveFeedSource() {
+		this(null);
+	}
+
+	/**
+	 * @param cache the cache used to revalidate pages, null to always download them
+	 */
+	public LiveFeedSource(HttpCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @return the cache used to revalidate pages, or null
+	 */
+	public HttpCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public Page fetch(String url) throws IOException {
+		if (cache != null) {
+			return cache.fetch(url);
+		}
+		Connection.Response response = Jsoup.connect(url).execute(); // throws on error status or non text content
+		return new Page(url, response.bodyStream(), response.charset(), false);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (cache != null) {
+			cache.flush();
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package feed;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The body of a downloaded (or replayed) page together with the charset
+ * announced by the server, null if there was none.
+ * 
+ * The body is a stream that can be read once, close the page when done.
+ */
+public class Page implements Closeable {
+
+	private final String url;
+	private final InputStream body;
+	private final String charset;
+	private final boolean fromCache;
+
+	public Page(String url, InputStream body, String charset, boolean fromCache) {
+		this.url = url;
+		this.body = body;
+		this.charset = charset;
+		this.fromCache = fromCache;
+	}
+
+	public Page(String url, byte[] body, String charset, boolean fromCache) {
+		this(url, new ByteArrayInputStream(body), charset, fromCache);
+	}
+
+	/**
+	 * @return the url of the page
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * @return the body, can only be read once
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+
+	/**
+	 * @return the charset of the body, or null to let the parser detect it
+	 */
+	public String getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return true if the body was not downloaded (304 Not Modified or replayed from disk)
+	 */
+	public boolean isFromCache() {
+		return fromCache;
+	}
+
+	@Override
+	public void close() throws IOException {
+		body.close();
+	}
+}
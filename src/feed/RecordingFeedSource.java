@@ -0,0 +1,60 @@
+package feed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fetches pages from another source and saves a copy of each of them into a
+ * corpus directory that a ReplayFeedSource can serve later. Recording into an
+ * existing corpus adds to it, a page recorded again replaces the old copy.
+ */
+public class RecordingFeedSource implements FeedSource {
+
+	private final FeedSource delegate;
+	private final Path corpus;
+
+	/**
+	 * @param delegate the source pages are fetched from
+	 * @param corpus the directory pages are saved to
+	 * @throws IOException if the directory cannot be created
+	 */
+	public RecordingFeedSource(FeedSource delegate, Path corpus) throws IOException {
+		if (delegate == null || corpus == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.delegate = delegate;
+		this.corpus = corpus;
+		Files.createDirectories(corpus);
+	}
+
+	@Override
+	public Page fetch(String url) throws IOException {
+		byte[] body;
+		String charset;
+		try (Page page = delegate.fetch(url)) {
+			InputStream in = page.getBody();
+			body = in.readAllBytes();
+			charset = page.getCharset();
+		}
+
+		String fileName = FeedFiles.fileName(url, CorpusManifest.PAGE_SUFFIX);
+		Path tmp = Files.createTempFile(corpus, "record", ".tmp");
+		Files.write(tmp, body);
+		FeedFiles.move(tmp, corpus.resolve(fileName));
+		synchronized (this) { // replay keeps the last line of a url
+			Files.write(corpus.resolve(CorpusManifest.MANIFEST_FILE),
+					CorpusManifest.line(fileName, charset, url).getBytes(StandardCharsets.UTF_8),
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+		return new Page(url, body, charset, false);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		delegate.flush();
+	}
+}
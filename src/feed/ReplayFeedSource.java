@@ -0,0 +1,48 @@
+package feed;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serves pages from a corpus directory written by a RecordingFeedSource,
+ * without any network access. Pages are streamed from disk when fetched.
+ */
+public class ReplayFeedSource implements FeedSource {
+
+	private final Path corpus;
+	private final Map<String, String[]> pages; // url -> {file name, charset}
+
+	/**
+	 * @param corpus the corpus directory
+	 * @throws IOException if the manifest cannot be read
+	 */
+	public ReplayFeedSource(Path corpus) throws IOException {
+		if (corpus == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.corpus = corpus;
+		this.pages = CorpusManifest.read(corpus);
+	}
+
+	/**
+	 * @return the urls of all the pages of the corpus
+	 */
+	public Set<String> getUrls() {
+		return Collections.unmodifiableSet(pages.keySet());
+	}
+
+	@Override
+	public Page fetch(String url) throws IOException {
+		String[] page = pages.get(url);
+		if (page == null) {
+			throw new FileNotFoundException(url + " is not in the corpus " + corpus);
+		}
+		return new Page(url, new BufferedInputStream(Files.newInputStream(corpus.resolve(page[0]))), page[1], true);
+	}
+}
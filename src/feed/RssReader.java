@@ -0,0 +1,156 @@
+package feed;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming reader for RSS 0.9x/1.0/2.0 and Atom feeds.
+ * 
+ * The feed is read with StAX and every item is handed to an ItemHandler as
+ * soon as its closing tag is read, so work on the first articles can start
+ * while the rest of the feed is still downloading. Only the item being read
+ * is kept in memory, whatever the size of the feed.
+ * 
+ * Only item links are reported, the link of the channel itself is not.
+ */
+public class RssReader {
+
+	/**
+	 * Receives the items of a feed, in document order
+	 */
+	public interface ItemHandler {
+		void item(FeedItem item) throws IOException;
+	}
+
+	private static final XMLInputFactory FACTORY = createFactory();
+
+	private RssReader() {
+	}
+
+	/**
+	 * Read a whole feed.
+	 * 
+	 * @param in the feed, not closed by this method
+	 * @param charset the charset announced by the server, or null to use the xml declaration
+	 * @param handler receives the items
+	 * @throws IOException if reading fails, the feed is not well formed xml or the handler fails.
+	 *         Items before the error have already been handled.
+	 */
+	public static void read(InputStream in, String charset, ItemHandler handler) throws IOException {
+		XMLStreamReader reader = null;
+		try {
+			synchronized (FACTORY) { // factories are not guaranteed to be thread safe
+				reader = charset == null ? FACTORY.createXMLStreamReader(in) : FACTORY.createXMLStreamReader(in, charset);
+			}
+			readItems(reader, handler);
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed feed: " + e.getMessage(), e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// nothing left to read
+				}
+			}
+		}
+	}
+
+	private static void readItems(XMLStreamReader reader, ItemHandler handler) throws XMLStreamException, IOException {
+		int itemDepth = -1; // depth of the current item element, -1 outside of items
+		int depth = 0;
+		String link = null;
+		String permaLink = null; // rss guid that is also the url of the article
+		String guid = null;
+		String date = null;
+
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String name = reader.getLocalName();
+				if (itemDepth < 0) {
+					if (name.equals("item") || name.equals("entry")) {
+						itemDepth = depth;
+						link = permaLink = guid = date = null;
+					}
+					continue;
+				}
+				if (depth != itemDepth + 1) {
+					continue; // only direct children of the item matter
+				}
+				if (name.equals("link")) {
+					String href = reader.getAttributeValue(null, "href");
+					String rel = reader.getAttributeValue(null, "rel");
+					if (href != null) { // atom link, text of the element is empty
+						if (link == null && (rel == null || rel.equals("alternate"))) {
+							link = href.trim();
+						}
+					} else {
+						String text = readText(reader);
+						depth--;
+						if (link == null && !text.isEmpty()) {
+							link = text;
+						}
+					}
+				} else if (name.equals("guid") || name.equals("id")) {
+					String isPermaLink = reader.getAttributeValue(null, "isPermaLink");
+					guid = readText(reader);
+					depth--;
+					if (name.equals("guid") && !"false".equals(isPermaLink) && guid.startsWith("http")) {
+						permaLink = guid;
+					}
+				} else if (name.equals("pubDate") || name.equals("date") || name.equals("published")
+						|| (name.equals("updated") && date == null)) {
+					date = readText(reader);
+					depth--;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == itemDepth) {
+					itemDepth = -1;
+					String url = link != null ? link : permaLink;
+					if (url != null) {
+						handler.item(new FeedItem(url, guid, date));
+					}
+				}
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * @return the trimmed text of the current element, the reader is left on its end tag
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder text = new StringBuilder();
+		int nested = 0;
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				text.append(reader.getText());
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				nested++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (nested == 0) {
+					return text.toString().trim();
+				}
+				nested--;
+			}
+		}
+	}
+
+	private static XMLInputFactory createFactory() {
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		// feeds come from the network, never resolve external entities
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		return factory;
+	}
+}
@@ -10,8 +10,6 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import javax.swing.AbstractAction;
 import javax.swing.Action;
@@ -499,12 +497,8 @@ public void getSuggestions(String text)
 
         int textLen = text.length();
         // clear the previous match
-        List<ITerm>matches = new ArrayList<ITerm>();
-        matches = auto.getSuggestions(text);
-        
-
-         Collections
-         .sort(matches, ITerm.byReverseWeightOrder());
+        // the 10 heaviest words, without sorting every word of the prefix
+        List<ITerm> matches = auto.topSuggestions(text, 10);
 
 
          Term[] allResults = matches.toArray(new Term[matches.size()]);
@@ -12,11 +12,13 @@ import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Map.Entry;
@@ -27,8 +29,21 @@ import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
-import indexing.IIndexBuilder;
+import feed.FeedSource;
+import feed.HttpCache;
+import feed.LiveFeedSource;
+import indexing.HomePage;
+import indexing.IncrementalIndex;
 import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.IndexSnapshot;
+import indexing.IngestPipeline;
+import indexing.PositionalIndex;
+import indexing.QueryEngine;
+import indexing.Stemmer;
+import indexing.TermDictionary;
+import indexing.TermWeighting;
+import indexing.TokenFilter;
 
 /**
  * @author ericfouh
@@ -39,7 +54,12 @@ public class NewsAggregatorGUI
     private JFrame               frame;
     private AutocompletePanel    searchBox;
     private JComboBox            rssBox;
-    private IIndexBuilder        idxBuilder;
+    private IndexBuilder         idxBuilder;
+    private IngestPipeline       pipeline;
+    private IncrementalIndex     liveIndex;
+    private PositionalIndex      livePositions;
+    // drops stopwords, numbers and other noise from articles and queries
+    private final TokenFilter    tokenFilter  = TokenFilter.standard();
     public static final String[] rssUrls      =
         { "https://rss.nytimes.com/services/xml/rss/nyt/US.xml",
             "http://feeds.washingtonpost.com/rss/rss_powerpost",
@@ -50,9 +70,24 @@ public class NewsAggregatorGUI
             "http://localhost:8090/sample_rss_feed.xml" };
 
     /**
-     * 
+     * The index searched, replaced when a rebuild in the background is done
+     */
+    private final IndexSnapshot  index        = new IndexSnapshot();
+    /**
+     * The last index created, searched at startup before any feed is fetched
+     */
+    private static final Path    INDEX_FILE   = Paths.get("news.idx");
+    // the best articles only, the others are skipped by the search
+    private static final int     MAX_RESULTS  = 100;
+    // terms ranked for the home page of each index, shown a page at a time
+    private static final int     HOME_TERMS   = 1000;
+    private static final int     HOME_PAGE    = 20;
+    /**
+     * The home page shown: the version of its index and its next term,
+     * read and written by the event thread only
      */
-    private Map<?, ?>            invIdx;
+    private long                 homeVersion  = -1;
+    private int                  homeOffset   = 0;
     private boolean              autocomplete = false;
 
 
@@ -89,7 +124,36 @@ public class NewsAggregatorGUI
 
     private void initRSSList()
     {
-        idxBuilder = new IndexBuilder();
+        FeedSource source;
+        try
+        {
+            // feeds and articles are revalidated instead of downloaded again
+            source = new LiveFeedSource(
+                new HttpCache(Paths.get(".cache"), 256L << 20));
+        }
+        catch (IOException e)
+        {
+            e.printStackTrace();
+            source = new LiveFeedSource();
+        }
+        // -Dnews.stem=true indexes and searches the stems of the words
+        if (Boolean.getBoolean("news.stem"))
+        {
+            tokenFilter.setStemmer(new Stemmer());
+        }
+        IndexBuilder builder = new IndexBuilder(source, 16, 4);
+        builder.setTokenFilter(tokenFilter);
+        // -Dnews.autocompleteText=true also exports autocomplete.txt
+        builder.setAutocompleteText(Boolean.getBoolean("news.autocompleteText"));
+        // -Dnews.weighting=TF_IDF ranks suggestions by summed TF-IDF, DOC_FREQ by default
+        builder.setTermWeighting(
+            TermWeighting.valueOf(System.getProperty("news.weighting", "DOC_FREQ")));
+        idxBuilder = builder;
+        pipeline = new IngestPipeline(source, 64);
+        pipeline.setTokenFilter(tokenFilter);
+        // the pipeline interns into the dictionary of the live index
+        liveIndex = new IncrementalIndex(new TermDictionary());
+        livePositions = new PositionalIndex(liveIndex.getDictionary());
 
         rssBox = new JComboBox(rssUrls);
         rssBox.setSelectedIndex(0);
@@ -141,6 +205,7 @@ public class NewsAggregatorGUI
         frame.getContentPane().add(btnIndex);
 
         JButton btnHome = new JButton("Home Page");
+        btnHome.setToolTipText("Click again for the next terms");
         btnHome.setBounds(129, 32, 117, 29);
         btnHome.setEnabled(false);
         frame.getContentPane().add(btnHome);
@@ -151,7 +216,10 @@ public class NewsAggregatorGUI
         btnAutoCplt.setEnabled(false);
         frame.getContentPane().add(btnAutoCplt);
 
-        searchBox = new AutocompletePanel("autocomplete.txt");
+        // the binary dictionary of the last index, else the text file shipped
+        searchBox = new AutocompletePanel(
+            Files.exists(Paths.get(IndexBuilder.AUTOCOMPLETE_FILE)) ? IndexBuilder.AUTOCOMPLETE_FILE
+                : IndexBuilder.AUTOCOMPLETE_TEXT);
         searchBox.setBounds(0, 135, 350, 130);
         searchBox.setVisible(true);
         frame.getContentPane().add(searchBox);
@@ -185,7 +253,8 @@ public class NewsAggregatorGUI
             }
 
         });
-        // index building
+        // index building, in the background: searches are served from the
+        // previous index until the new one is published
         btnIndex.addActionListener(new ActionListener() {
 
             @Override
@@ -195,15 +264,56 @@ public class NewsAggregatorGUI
                 List<String> feeds = new ArrayList<>(listModel.size());
                 for (int i = 0; i < listModel.size(); i++)
                     feeds.add((String)listModel.get(i));
-                Map<String, List<String>> map = idxBuilder.parseFeed(feeds);
-                Map<String, Map<String, Double>> index =
-                    idxBuilder.buildIndex(map);
-                invIdx = idxBuilder.buildInvertedIndex(index);
+                btnIndex.setEnabled(false);
+                Thread build = new Thread(() -> {
+                    try
+                    {
+                        rebuild(feeds);
+                        EventQueue.invokeLater(() -> {
+                            btnHome.setEnabled(true);
+                            btnSearch.setEnabled(true);
+                            btnAutoCplt.setEnabled(true);
+                        });
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    finally
+                    {
+                        EventQueue.invokeLater(() -> btnIndex.setEnabled(true));
+                    }
+                }, "index build");
+                build.setDaemon(true);
+                build.start();
+            }
+        });
+
+        // serve the index saved by the last run until new indexes are
+        // created, nothing is read until a term is looked up
+        Path saved = null;
+        try
+        {
+            saved = IndexFile.latestGeneration(INDEX_FILE);
+        }
+        catch (IOException ex)
+        {
+            ex.printStackTrace();
+        }
+        if (saved != null)
+        {
+            try
+            {
+                index.publish(IndexFile.open(saved), null);
                 btnHome.setEnabled(true);
                 btnSearch.setEnabled(true);
                 btnAutoCplt.setEnabled(true);
             }
-        });
+            catch (IOException ex)
+            {
+                ex.printStackTrace();
+            }
+        }
 
         // Home page
         btnHome.addActionListener(new ActionListener() {
@@ -211,11 +321,28 @@ public class NewsAggregatorGUI
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                Map<String, List<Entry<String, Double>>> articles =
-                    (Map<String, List<Entry<String, Double>>>)invIdx;
-                Collection<Entry<String, List<String>>> home =
-                    (Collection<Entry<String, List<String>>>)idxBuilder
-                        .buildHomePage(invIdx);
+                // only the terms of the page are read, the ranking is kept
+                // with the index
+                Collection<Entry<String, List<String>>> home;
+                try (IndexSnapshot.Snapshot snapshot = index.pin())
+                {
+                    if (snapshot.getVersion() != homeVersion)
+                    {
+                        homeVersion = snapshot.getVersion();
+                        homeOffset = 0;
+                    }
+                    HomePage ranking = snapshot.getHomePage();
+                    home = ranking.page(snapshot.getInvertedIndex(),
+                        homeOffset, HOME_PAGE, MAX_RESULTS);
+                    if (home.isEmpty() && homeOffset > 0)
+                    {
+                        // after the last page, back to the first
+                        homeOffset = 0;
+                        home = ranking.page(snapshot.getInvertedIndex(),
+                            homeOffset, HOME_PAGE, MAX_RESULTS);
+                    }
+                    homeOffset += HOME_PAGE;
+                }
                 if (home.size() > 0)
                 {
                     articlesList.clear();
@@ -237,9 +364,11 @@ public class NewsAggregatorGUI
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                idxBuilder
-                    .createAutocompleteFile(idxBuilder.buildHomePage(invIdx));
-                searchBox = new AutocompletePanel("autocomplete.txt");
+                try (IndexSnapshot.Snapshot snapshot = index.pin())
+                {
+                    idxBuilder.createAutocompleteFile(snapshot.getInvertedIndex());
+                }
+                searchBox = new AutocompletePanel(IndexBuilder.AUTOCOMPLETE_FILE);
             }
 
         });
@@ -255,8 +384,15 @@ public class NewsAggregatorGUI
                 if (query.length() > 0)
                 {
 
-                    List<String> articles =
-                        idxBuilder.searchArticles(query, invIdx);
+                    // several terms with AND (implied), OR, NOT, "phrases"
+                    List<String> articles;
+                    try (IndexSnapshot.Snapshot snapshot = index.pin())
+                    {
+                        QueryEngine engine = new QueryEngine(
+                            snapshot.getInvertedIndex(), snapshot.getPositions());
+                        engine.setTokenFilter(tokenFilter);
+                        articles = engine.search(query, MAX_RESULTS);
+                    }
                     if (articles != null && articles.size() > 0)
                     {
                         articlesList.clear();
@@ -307,4 +443,54 @@ public class NewsAggregatorGUI
         });
 
     }
+
+
+    /**
+     * Bring the live index up to date with the feeds and publish a copy of
+     * it: the live index changes during the next run, the snapshot searched
+     * must not. Runs in the background.
+     * 
+     * @param feeds the rss feeds
+     * @throws InterruptedException if the build thread is interrupted
+     */
+    private void rebuild(List<String> feeds)
+        throws InterruptedException
+    {
+        // the positions of the last run are copied, the snapshot keeps its
+        // own; articles that fail to download keep their positions
+        PositionalIndex positions =
+            livePositions.copy(liveIndex.getDictionary());
+        livePositions = positions;
+        pipeline.setPositionalIndex(positions);
+        // only articles added, changed or dropped since the last run are
+        // re-indexed
+        pipeline.run(feeds, liveIndex);
+        // the ranking follows the live index, the snapshot gets its first
+        // terms as they are now
+        HomePage home = liveIndex.homePage().top(HOME_TERMS);
+        try
+        {
+            // a new file per run: snapshots still mapping the previous
+            // one keep reading it, and on Windows a mapped file cannot be
+            // replaced; old files are deleted once no longer mapped
+            Path written =
+                IndexFile.writeGeneration(liveIndex.invertedIndex(), INDEX_FILE);
+            index.publish(IndexFile.open(written), positions, home, null);
+        }
+        catch (IOException ex)
+        {
+            ex.printStackTrace();
+            // same as buildInvertedIndex(buildIndex(parseFeed(feeds)))
+            index.publish(
+                idxBuilder.buildInvertedIndex(liveIndex.forwardIndex()),
+                positions, home, null);
+        }
+        // the terms of dropped articles stay in the dictionary, start over
+        // with the live ones once they are outnumbered; the snapshot just
+        // published keeps the old dictionary
+        if (liveIndex.needsCompaction())
+        {
+            liveIndex = liveIndex.compact();
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package indexing;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * equals, hashCode and toString for InvertedIndex backends, in the manner of
+ * AbstractMap: an index is compared as a map of term -> postings, and
+ * postings as a map of document name -> TF-IDF read with their cursor. So
+ * indexes of the same documents are equal whatever their backends, doc ids
+ * and order of ties, as long as they hold the same scores: COMPRESSED
+ * postings round them, so they are not equal to ARRAY ones.
+ */
+public abstract class AbstractInvertedIndex implements InvertedIndex {
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (!(o instanceof InvertedIndex)) {
+			return false;
+		}
+		InvertedIndex other = (InvertedIndex) o;
+		if (other.size() != size()) {
+			return false;
+		}
+		for (String term : terms()) {
+			Postings otherPostings = other.postings(term);
+			if (otherPostings == null || !scores(postings(term)).equals(scores(otherPostings))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (String term : terms()) {
+			hash += term.hashCode() ^ scores(postings(term)).hashCode();
+		}
+		return hash;
+	}
+
+	/**
+	 * @return document name -> TF-IDF
+	 */
+	private static Map<String, Double> scores(Postings postings) {
+		Map<String, Double> scores = new HashMap<String, Double>(postings.size() * 2);
+		Postings.Cursor cursor = postings.cursor();
+		while (cursor.nextDoc() != Postings.Cursor.NO_MORE_DOCS) {
+			scores.put(postings.docName(cursor.docId()), cursor.score());
+		}
+		return scores;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder s = new StringBuilder("{");
+		Iterator<String> terms = terms().iterator();
+		while (terms.hasNext()) {
+			String term = terms.next();
+			s.append(term).append('=').append(postings(term));
+			if (terms.hasNext()) {
+				s.append(", ");
+			}
+		}
+		return s.append('}').toString();
+	}
+}
@@ -0,0 +1,267 @@
+package indexing;
+
+import java.util.Arrays;
+
+/**
+ * Postings ordered by document id and compressed in blocks of 128.
+ * 
+ * In a block, each document id is stored as the difference with the previous
+ * one in variable-byte encoding (7 bits per byte, the high bit set on all but
+ * the last byte), followed by one byte per document holding its TF-IDF
+ * quantized to 1/255 of the highest TF-IDF of the term. For each block the
+ * skip data keeps its last document id and its offset, so advance() jumps to
+ * the block of its target with a binary search and only decodes that block.
+ */
+public class CompressedPostings implements Postings {
+
+	static final int BLOCK_SIZE = 128;
+
+	private final String[] docNames; // doc id -> document (url)
+	private final int size;
+	private final double maxScore;
+	private final byte[] data;
+	private final int[] blockLastDoc; // skip data: block -> last document id
+	private final int[] blockOffset; // skip data: block -> first byte in data
+
+	private CompressedPostings(String[] docNames, int size, double maxScore, byte[] data, int[] blockLastDoc,
+			int[] blockOffset) {
+		this.docNames = docNames;
+		this.size = size;
+		this.maxScore = maxScore;
+		this.data = data;
+		this.blockLastDoc = blockLastDoc;
+		this.blockOffset = blockOffset;
+	}
+
+	/**
+	 * @param docNames doc id -> document (url), shared, not copied
+	 * @param docIds the ids of the documents, increasing
+	 * @param scores the TF-IDF of each document, not negative
+	 * @return the compressed postings
+	 */
+	public static CompressedPostings encode(String[] docNames, int[] docIds, double[] scores) {
+		if (docIds.length != scores.length) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		double max = 0;
+		for (double score : scores) {
+			max = Math.max(max, score);
+		}
+		int blocks = (docIds.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		int[] blockLastDoc = new int[blocks];
+		int[] blockOffset = new int[blocks];
+		byte[] data = new byte[docIds.length * 3]; // grown when deltas need more than 2 bytes
+		int length = 0;
+		int previous = -1;
+		for (int block = 0; block < blocks; block++) {
+			int from = block * BLOCK_SIZE;
+			int to = Math.min(from + BLOCK_SIZE, docIds.length);
+			blockOffset[block] = length;
+			if (data.length - length < (to - from) * 6) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + (to - from) * 6));
+			}
+			for (int i = from; i < to; i++) {
+				int delta = docIds[i] - previous;
+				if (delta <= 0) {
+					throw new IllegalArgumentException("Illegal arguments"); // ids must increase
+				}
+				while (delta >= 0x80) {
+					data[length++] = (byte) (delta | 0x80);
+					delta >>>= 7;
+				}
+				data[length++] = (byte) delta;
+				previous = docIds[i];
+			}
+			for (int i = from; i < to; i++) {
+				data[length++] = (byte) quantize(scores[i], max);
+			}
+			blockLastDoc[block] = previous;
+		}
+		return new CompressedPostings(docNames, docIds.length, max, Arrays.copyOf(data, length), blockLastDoc,
+				blockOffset);
+	}
+
+	private static int quantize(double score, double max) {
+		return max == 0 ? 0 : (int) Math.round(score / max * 255);
+	}
+
+	/**
+	 * @return the number of bytes of encoded postings and skip data
+	 */
+	public long sizeInBytes() {
+		return data.length + 8L * blockLastDoc.length;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public double maxScore() {
+		return maxScore;
+	}
+
+	@Override
+	public String docName(int docId) {
+		return docNames[docId];
+	}
+
+	@Override
+	public Cursor cursor() {
+		return new BlockCursor();
+	}
+
+	/**
+	 * Decodes every block, then sorts by reverse quantized TF-IDF: a new
+	 * array on every call, in O(n log n) for n postings, as keeping it would
+	 * take 4 more bytes per posting. Callers reading only the best documents
+	 * use topDocIds.
+	 */
+	@Override
+	public int[] rankedDocIds() {
+		int[] docIds = new int[size];
+		double[] scores = new double[size];
+		BlockCursor cursor = new BlockCursor();
+		for (int i = 0; cursor.nextDoc() != Cursor.NO_MORE_DOCS; i++) {
+			docIds[i] = cursor.docId();
+			scores[i] = cursor.score();
+		}
+		return PostingsList.sort(docNames, docIds, scores).rankedDocIds();
+	}
+
+	/**
+	 * Decodes every block once, keeping the k best documents in a heap:
+	 * nothing is allocated or sorted for the others.
+	 */
+	@Override
+	public int[] topDocIds(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		if (k >= size) {
+			return rankedDocIds();
+		}
+		// quantized score and reverse doc id packed so that a better document has a greater key,
+		// the same order as rankedDocIds since the scores grow with the quantized ones
+		long[] heap = new long[k]; // the worst of the best on top
+		int n = 0;
+		BlockCursor cursor = new BlockCursor();
+		while (k > 0 && cursor.nextDoc() != Cursor.NO_MORE_DOCS) {
+			long key = (long) cursor.quantized[cursor.position] << 32 | (Integer.MAX_VALUE - cursor.doc);
+			if (n < k) {
+				int i = n++;
+				for (int parent; i > 0 && heap[parent = (i - 1) >>> 1] > key; i = parent) {
+					heap[i] = heap[parent];
+				}
+				heap[i] = key;
+			} else if (key > heap[0]) {
+				int i = 0;
+				for (int child; (child = 2 * i + 1) < k; i = child) {
+					if (child + 1 < k && heap[child + 1] < heap[child]) {
+						child++;
+					}
+					if (heap[child] >= key) {
+						break;
+					}
+					heap[i] = heap[child];
+				}
+				heap[i] = key;
+			}
+		}
+		Arrays.sort(heap);
+		int[] top = new int[k];
+		for (int i = 0; i < k; i++) {
+			top[i] = Integer.MAX_VALUE - (int) heap[k - 1 - i];
+		}
+		return top;
+	}
+
+	/**
+	 * Decodes one block at a time into reused arrays.
+	 */
+	private class BlockCursor implements Cursor {
+		private final int[] docs = new int[BLOCK_SIZE];
+		private final int[] quantized = new int[BLOCK_SIZE];
+		private int block = -1;
+		private int blockLength;
+		private int position = -1; // in the current block
+		private int doc = -1;
+
+		@Override
+		public int docId() {
+			return doc;
+		}
+
+		@Override
+		public int nextDoc() {
+			if (++position >= blockLength) {
+				if (block + 1 >= blockLastDoc.length) {
+					return doc = NO_MORE_DOCS;
+				}
+				decode(block + 1);
+				position = 0;
+			}
+			return doc = docs[position];
+		}
+
+		@Override
+		public int advance(int target) {
+			if (doc >= target) {
+				return doc;
+			}
+			if (block < 0 || target > blockLastDoc[block]) {
+				// first block that can hold target, after the current one
+				int low = block + 1;
+				int high = blockLastDoc.length - 1;
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (blockLastDoc[middle] < target) {
+						low = middle + 1;
+					} else {
+						high = middle;
+					}
+				}
+				if (low >= blockLastDoc.length || blockLastDoc[low] < target) {
+					block = blockLastDoc.length;
+					blockLength = 0;
+					return doc = NO_MORE_DOCS;
+				}
+				decode(low);
+				position = 0;
+			}
+			while (docs[position] < target) { // the last document of the block is >= target
+				position++;
+			}
+			return doc = docs[position];
+		}
+
+		@Override
+		public double score() {
+			return quantized[position] * maxScore / 255;
+		}
+
+		private void decode(int b) {
+			int offset = blockOffset[b];
+			int length = Math.min(BLOCK_SIZE, size - b * BLOCK_SIZE);
+			int previous = b == 0 ? -1 : blockLastDoc[b - 1];
+			for (int i = 0; i < length; i++) {
+				int delta = 0;
+				int shift = 0;
+				byte next;
+				do {
+					next = data[offset++];
+					delta |= (next & 0x7F) << shift;
+					shift += 7;
+				} while (next < 0);
+				previous += delta;
+				docs[i] = previous;
+			}
+			for (int i = 0; i < length; i++) {
+				quantized[i] = data[offset++] & 0xFF;
+			}
+			block = b;
+			blockLength = length;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package indexing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The links listed by each feed of one run, and the feeds read to the end.
+ * It is filled by IndexBuilder.parseFeed and the IngestPipeline, and lets an
+ * index remove the articles its feeds no longer list (see
+ * IncrementalIndex.retainListed) without dropping those of a feed that could
+ * not be read, or of an article that could not be fetched this time.
+ * This class is thread safe.
+ */
+public class FeedListing {
+
+	private final List<String> feeds;
+	private final Map<String, Set<String>> links = new HashMap<String, Set<String>>();
+	private final Set<String> complete = new HashSet<String>();
+
+	/**
+	 * @param feeds the rss feeds of the run
+	 */
+	public FeedListing(List<String> feeds) {
+		if (feeds == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.feeds = List.copyOf(feeds);
+	}
+
+	/**
+	 * @return the rss feeds of the run
+	 */
+	public List<String> getFeeds() {
+		return feeds;
+	}
+
+	/**
+	 * @param feed a feed of the run
+	 * @param link the link of one of its items
+	 */
+	public synchronized void listed(String feed, String link) {
+		links.computeIfAbsent(feed, f -> new HashSet<String>()).add(link);
+	}
+
+	/**
+	 * @param feed a feed of the run, read to the end without error
+	 */
+	public synchronized void complete(String feed) {
+		complete.add(feed);
+	}
+
+	/**
+	 * @param feed a feed of the run
+	 * @return false if the feed failed, or was not read yet: its links may be a part of them only
+	 */
+	public synchronized boolean isComplete(String feed) {
+		return complete.contains(feed);
+	}
+
+	/**
+	 * @param feed a feed of the run
+	 * @return the links of the feed read so far
+	 */
+	public synchronized Set<String> links(String feed) {
+		Set<String> listed = links.get(feed);
+		return listed == null ? Collections.emptySet() : Collections.unmodifiableSet(new HashSet<String>(listed));
+	}
+}
@@ -0,0 +1,47 @@
+package indexing;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The links each feed listed the last time it was read, kept by an index
+ * from one run to the next to know which articles are still listed.
+ */
+class FeedMembership {
+
+	private final Map<String, Set<String>> links = new HashMap<String, Set<String>>(); // sets are replaced, never changed
+
+	/**
+	 * Record a run. A feed read to the end now lists exactly its links of
+	 * the run, a feed that failed keeps its previous links plus the ones read
+	 * before the failure, and a feed no longer in the run lists nothing.
+	 * 
+	 * @param listing the feeds of the run
+	 * @return the links listed by at least one feed of the run
+	 */
+	Set<String> update(FeedListing listing) {
+		Map<String, Set<String>> previous = new HashMap<String, Set<String>>(links);
+		links.clear();
+		Set<String> listed = new HashSet<String>();
+		for (String feed : listing.getFeeds()) {
+			Set<String> feedLinks = new HashSet<String>(listing.links(feed));
+			if (!listing.isComplete(feed) && previous.containsKey(feed)) {
+				feedLinks.addAll(previous.get(feed));
+			}
+			links.put(feed, feedLinks);
+			listed.addAll(feedLinks);
+		}
+		return listed;
+	}
+
+	/**
+	 * @return a copy, updated independently of this one
+	 */
+	FeedMembership copy() {
+		FeedMembership copy = new FeedMembership();
+		copy.links.putAll(links);
+		return copy;
+	}
+}
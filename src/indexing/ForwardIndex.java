@@ -0,0 +1,204 @@
+package indexing;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read only forward index stored in primitive arrays.
+ * 
+ * Each document keeps the ids of its terms in a TermDictionary, sorted by
+ * lexicographic order of the terms, and the TF-IDF of each term in a parallel
+ * array: 12 bytes per term instead of a TreeMap node, a boxed Double and an
+ * entry. It is a Map view of the format of IIndexBuilder.buildIndex, so
+ * existing code reads it unchanged, in the same order.
+ */
+public class ForwardIndex extends AbstractMap<String, Map<String, Double>> {
+
+	private final TermDictionary dictionary;
+	private final Map<String, DocVector> docs;
+
+	/**
+	 * @param dictionary the dictionary of the term ids
+	 * @param docs document (url) -> its terms, not copied
+	 */
+	ForwardIndex(TermDictionary dictionary, Map<String, DocVector> docs) {
+		this.dictionary = dictionary;
+		this.docs = Collections.unmodifiableMap(docs);
+	}
+
+	/**
+	 * @return the dictionary of the term ids
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @param doc a document (url)
+	 * @return the terms of the document, null if it is not in the index
+	 */
+	public DocVector vector(String doc) {
+		return docs.get(doc);
+	}
+
+	/**
+	 * Rank every term of the dictionary by lexicographic order, once for all
+	 * the documents of an index, so the terms of each document are then
+	 * ordered by comparing ints. The dictionary keeps the ranks, only the
+	 * terms added since the last index are sorted.
+	 * 
+	 * @return term id -> rank of the term among the terms of the dictionary, not to be modified
+	 */
+	static int[] ranks(TermDictionary dictionary) {
+		return dictionary.ranks();
+	}
+
+	@Override
+	public Map<String, Double> get(Object doc) {
+		return docs.get(doc);
+	}
+
+	@Override
+	public boolean containsKey(Object doc) {
+		return docs.containsKey(doc);
+	}
+
+	@Override
+	public int size() {
+		return docs.size();
+	}
+
+	@Override
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public Set<Entry<String, Map<String, Double>>> entrySet() {
+		return (Set) docs.entrySet();
+	}
+
+	/**
+	 * The terms of a document: term ids sorted by term and their TF-IDF.
+	 */
+	public static class DocVector extends AbstractMap<String, Double> {
+		private final TermDictionary dictionary;
+		private final int[] ranks; // shared by the documents of an index
+		final int[] ids;
+		final double[] weights;
+
+		/**
+		 * @param ranks term id -> lexicographic rank, see ForwardIndex.ranks
+		 * @param ids the term ids in any order, sorted in place with the weights
+		 * @param weights the TF-IDF of each term
+		 */
+		DocVector(TermDictionary dictionary, int[] ranks, int[] ids, double[] weights) {
+			this.dictionary = dictionary;
+			this.ranks = ranks;
+			this.ids = ids;
+			this.weights = weights;
+			long[] order = new long[ids.length]; // rank and position packed in a long, sorted without boxing
+			for (int i = 0; i < ids.length; i++) {
+				order[i] = (long) ranks[ids[i]] << 32 | i;
+			}
+			Arrays.sort(order);
+			int[] sortedIds = ids.clone();
+			double[] sortedWeights = weights.clone();
+			for (int i = 0; i < order.length; i++) {
+				int from = (int) order[i];
+				ids[i] = sortedIds[from];
+				weights[i] = sortedWeights[from];
+			}
+		}
+
+		/**
+		 * @param i an index between 0 and size() - 1
+		 * @return the id of the i-th term, by lexicographic order of the terms
+		 */
+		public int termId(int i) {
+			return ids[i];
+		}
+
+		/**
+		 * @param i an index between 0 and size() - 1
+		 * @return the TF-IDF of the i-th term
+		 */
+		public double weight(int i) {
+			return weights[i];
+		}
+
+		@Override
+		public int size() {
+			return ids.length;
+		}
+
+		@Override
+		public Double get(Object term) {
+			int i = indexOf(term);
+			return i < 0 ? null : weights[i];
+		}
+
+		@Override
+		public boolean containsKey(Object term) {
+			return indexOf(term) >= 0;
+		}
+
+		@Override
+		public Set<Entry<String, Double>> entrySet() {
+			return new AbstractSet<Entry<String, Double>>() {
+				@Override
+				public Iterator<Entry<String, Double>> iterator() {
+					return new Iterator<Entry<String, Double>>() {
+						int next;
+
+						@Override
+						public boolean hasNext() {
+							return next < ids.length;
+						}
+
+						@Override
+						public Entry<String, Double> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int i = next++;
+							return new AbstractMap.SimpleImmutableEntry<String, Double>(dictionary.term(ids[i]), weights[i]);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return ids.length;
+				}
+			};
+		}
+
+		private int indexOf(Object term) {
+			if (!(term instanceof String)) {
+				return -1;
+			}
+			int id = dictionary.lookup((String) term);
+			if (id < 0 || id >= ranks.length) {
+				return -1; // interned after the index was built
+			}
+			int rank = ranks[id];
+			int low = 0;
+			int high = ids.length - 1;
+			while (low <= high) {
+				int middle = (low + high) >>> 1;
+				int r = ranks[ids[middle]];
+				if (r < rank) {
+					low = middle + 1;
+				} else if (r > rank) {
+					high = middle - 1;
+				} else {
+					return middle;
+				}
+			}
+			return -1;
+		}
+	}
+}
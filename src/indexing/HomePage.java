@@ -0,0 +1,186 @@
+package indexing;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeSet;
+
+/**
+ * The terms of the home page ranked as buildHomePage sorts them: by number
+ * of articles, then by reverse lexicographic order, stopwords left out.
+ * 
+ * The ranking is kept up to date one term at a time: when the number of
+ * documents of a term changes only that term moves, in O(log terms), so it
+ * never has to be built again from the whole index. A page of the home page,
+ * limit terms from offset, is read in O(offset + limit) and only the
+ * articles of these terms are listed, or only their best ones. An IncrementalIndex keeps one for its
+ * documents; top(n) copies the leading terms for a snapshot that must not
+ * change. This class is thread safe.
+ */
+public class HomePage {
+
+	private final TreeSet<Ranked> ranking = new TreeSet<Ranked>();
+	private final Map<String, Ranked> byTerm = new HashMap<String, Ranked>();
+
+	/**
+	 * Rank the terms of an inverted index, in one pass over its terms.
+	 * 
+	 * @param index an inverted index
+	 * @return the ranking of its terms
+	 */
+	public static HomePage of(InvertedIndex index) {
+		HomePage homePage = new HomePage();
+		for (String term : index.terms()) {
+			homePage.update(term, index.docFreq(term));
+		}
+		return homePage;
+	}
+
+	/**
+	 * Set the number of documents of a term, stopwords are ignored.
+	 * 
+	 * @param term a term
+	 * @param docFreq the number of documents containing the term, 0 to remove it
+	 */
+	public synchronized void update(String term, int docFreq) {
+		if (term == null || docFreq < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		if (IIndexBuilder.STOPWORDS.contains(term)) {
+			return;
+		}
+		Ranked old = docFreq == 0 ? byTerm.remove(term) : byTerm.get(term);
+		if (old != null) {
+			if (old.docFreq == docFreq) {
+				return;
+			}
+			ranking.remove(old);
+		}
+		if (docFreq > 0) {
+			Ranked ranked = new Ranked(term, docFreq);
+			byTerm.put(term, ranked);
+			ranking.add(ranked);
+		}
+	}
+
+	/**
+	 * @param term a term
+	 * @return the number of documents of the term, 0 if it is not ranked
+	 */
+	public synchronized int docFreq(String term) {
+		Ranked ranked = byTerm.get(term);
+		return ranked == null ? 0 : ranked.docFreq;
+	}
+
+	/**
+	 * @return the number of terms ranked
+	 */
+	public synchronized int size() {
+		return ranking.size();
+	}
+
+	/**
+	 * @param offset the rank of the first term, from 0
+	 * @param limit the maximum number of terms
+	 * @return the terms from offset, best first
+	 */
+	public synchronized List<String> terms(int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		List<String> terms = new ArrayList<String>(Math.min(limit, Math.max(0, ranking.size() - offset)));
+		Iterator<Ranked> it = ranking.iterator();
+		for (int i = 0; i < offset && it.hasNext(); i++) {
+			it.next();
+		}
+		while (terms.size() < limit && it.hasNext()) {
+			terms.add(it.next().term);
+		}
+		return terms;
+	}
+
+	/**
+	 * @param n the number of terms to keep
+	 * @return a copy of the n best terms, later updates of this ranking are not seen
+	 */
+	public synchronized HomePage top(int n) {
+		if (n < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		HomePage top = new HomePage();
+		Iterator<Ranked> it = ranking.iterator();
+		for (int i = 0; i < n && it.hasNext(); i++) {
+			Ranked ranked = it.next();
+			top.byTerm.put(ranked.term, ranked);
+			top.ranking.add(ranked);
+		}
+		return top;
+	}
+
+	/**
+	 * A page of the home page, the same entries as buildHomePage from offset.
+	 * 
+	 * @param index the inverted index the articles are read from
+	 * @param offset the rank of the first term, from 0
+	 * @param limit the maximum number of terms
+	 * @return the terms from offset with their articles by reverse TF-IDF
+	 */
+	public List<Entry<String, List<String>>> page(InvertedIndex index, int offset, int limit) {
+		return page(index, offset, limit, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * A page of the home page with the best articles of each term only: the
+	 * names of the others are not read.
+	 * 
+	 * @param index the inverted index the articles are read from
+	 * @param offset the rank of the first term, from 0
+	 * @param limit the maximum number of terms
+	 * @param articles the maximum number of articles of each term
+	 * @return the terms from offset with their best articles by reverse TF-IDF
+	 */
+	public List<Entry<String, List<String>>> page(InvertedIndex index, int offset, int limit, int articles) {
+		if (index == null || articles < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		List<Entry<String, List<String>>> page = new ArrayList<Entry<String, List<String>>>();
+		for (String term : terms(offset, limit)) {
+			Postings postings = index.postings(term);
+			if (postings == null) {
+				continue; // not in this index
+			}
+			int[] ranked = postings.topDocIds(articles);
+			List<String> best = new ArrayList<String>(ranked.length);
+			for (int docId : ranked) {
+				best.add(postings.docName(docId));
+			}
+			page.add(new AbstractMap.SimpleEntry<String, List<String>>(term, best));
+		}
+		return page;
+	}
+
+	/**
+	 * A term and its number of documents, immutable so it can be found again in the tree.
+	 */
+	private static class Ranked implements Comparable<Ranked> {
+		final String term;
+		final int docFreq;
+
+		Ranked(String term, int docFreq) {
+			this.term = term;
+			this.docFreq = docFreq;
+		}
+
+		@Override
+		public int compareTo(Ranked other) {
+			if (docFreq != other.docFreq) {
+				return Integer.compare(other.docFreq, docFreq);
+			}
+			return other.term.compareTo(term);
+		}
+	}
+}
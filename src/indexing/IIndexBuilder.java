@@ -48,10 +48,10 @@ public interface IIndexBuilder
      * 
      * 
      * @param index the index computed by {@buildIndex}
-     * @return inverted index - a sorted Map of the documents in which term is a keyword
+     * @return inverted index - the Postings of each term, sorted by reverse TFIDF
      */
 
-    public Map<?, ?> buildInvertedIndex(Map<String, Map<String, Double>> index);
+    public InvertedIndex buildInvertedIndex(Map<String, Map<String, Double>> index);
 
 
     /**
@@ -67,14 +67,16 @@ public interface IIndexBuilder
      *         https://docs.oracle.com/javase/9/docs/api/java/util/AbstractMap.SimpleEntry.html
      */
     public Collection<Entry<String, List<String>>> buildHomePage(
-        Map<?, ?> invertedIndex);
+        InvertedIndex invertedIndex);
 
 
     /**
      * Create a file containing all the words in the inverted index. Each word
      * should occupy a line Words should be written in lexicographic order
-     * assign a weight of 0 to each word. The method must store the words into a 
-     * file named autocomplete.txt
+     * with a weight for each word (0, or its document frequency in
+     * IndexBuilder). The method must store the words into a file the
+     * Autocomplete trie is built from (autocomplete.txt, or the binary
+     * autocomplete.dict in IndexBuilder)
      * 
      * @param homepage the collection used to generate the homepage (buildHomePage)
      * @return A collection containing all the words written into the file sorted by lexicographic order
@@ -88,7 +90,21 @@ public interface IIndexBuilder
      */
     public List<String> searchArticles(
         String queryTerm,
-        Map<?, ?> invertedIndex);
+        InvertedIndex invertedIndex);
+
+    /**
+     * Ranked search: articles containing any of the query words, by reverse
+     * summed TF-IDF, then by name
+     * 
+     * @param query words, operators are not interpreted
+     * @param invertedIndex
+     * @param limit the maximum number of articles
+     * @return the best limit articles, null if no word is in the index
+     */
+    public List<String> searchArticles(
+        String query,
+        InvertedIndex invertedIndex,
+        int limit);
 
     // Stop words
     public static String[] STOPW = { "a", "about", "above", "across",
@@ -0,0 +1,589 @@
+package indexing;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import indexing.ForwardIndex.DocVector;
+import indexing.IndexAccumulator.DocTerms;
+
+/**
+ * A forward and inverted index kept up to date one document at a time.
+ * 
+ * Only term frequencies are stored. TF-IDF depends on the number of
+ * documents, so it changes for every term whenever a document is added or
+ * removed; it is computed when read instead. For a given term every document
+ * has the same IDF, so ordering a term's documents by TF-IDF is the same as
+ * ordering them by TF, and that order only changes for the terms of the
+ * document that changed. Adding, removing or updating a document therefore
+ * costs in proportion to its distinct terms, not to the size of the corpus,
+ * and the order of a term is re-sorted lazily the next time it is read.
+ * The postings of a term are arrays of doc ids and TF, a removed document
+ * is replaced by the last one; the PostingsList read is kept until the term
+ * or the number of documents changes.
+ * 
+ * Documents get ids in the order they are first added, ids of removed
+ * documents are not reused, so the postings of every term share one doc
+ * table and can be intersected. invertedIndex() and forwardIndex() give the
+ * same values as buildInvertedIndex(buildIndex(docs)) and buildIndex(docs)
+ * on the current documents: documents with equal TF-IDF are still listed by
+ * name, not by id as in a PostingsList. Churn leaves the ids of removed
+ * documents behind, compact() numbers the documents from 0 again.
+ * This class is thread safe.
+ */
+public class IncrementalIndex {
+
+	private final TermDictionary dictionary;
+	private final Map<String, DocTerms> docs = new HashMap<String, DocTerms>();
+	private final List<TermPostings> postings = new ArrayList<TermPostings>(); // term id -> postings, null if never used
+	private int terms; // number of terms in at least one document
+	private final Map<String, Integer> docIds = new HashMap<String, Integer>();
+	private String[] docNames = new String[64]; // doc id -> document, replaced when it grows so lists already read keep theirs
+	private int[][] slots = new int[64][]; // doc id -> position of the doc in the postings of each of its terms, as DocTerms.ids
+	private int nextDocId;
+	private HomePage homePage; // null until it is first asked for
+	private FeedMembership membership = new FeedMembership(); // the links of each feed, see retainListed
+
+	/**
+	 * @param dictionary the dictionary terms are interned into
+	 */
+	public IncrementalIndex(TermDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @return the dictionary terms are interned into
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Add a document, or replace it if it is already indexed.
+	 * 
+	 * @param doc the document (url)
+	 * @param words the words of the document
+	 * @return false if the document was already indexed with the same words
+	 */
+	public boolean addDocument(String doc, List<String> words) {
+		return put(doc, DocTerms.count(words, dictionary));
+	}
+
+	/**
+	 * Add a document, or replace it if it is already indexed.
+	 * 
+	 * @param doc the document (url)
+	 * @param termIds the ids of the words of the document, in any order
+	 * @return false if the document was already indexed with the same words
+	 */
+	public boolean addDocument(String doc, int[] termIds) {
+		return put(doc, DocTerms.count(termIds));
+	}
+
+	/**
+	 * Replace the words of a document, same as addDocument.
+	 * 
+	 * @param doc the document (url)
+	 * @param words the new words of the document
+	 * @return false if the words did not change
+	 */
+	public boolean updateDocument(String doc, List<String> words) {
+		return addDocument(doc, words);
+	}
+
+	/**
+	 * @param doc the document (url)
+	 * @return false if the document was not indexed
+	 */
+	public synchronized boolean removeDocument(String doc) {
+		DocTerms old = docs.remove(doc);
+		if (old == null) {
+			return false;
+		}
+		unlink(docIds.remove(doc), old);
+		rank(old.ids);
+		return true;
+	}
+
+	/**
+	 * Make the index hold exactly the given documents: new ones are added,
+	 * changed ones updated, missing ones removed and unchanged ones left alone.
+	 * A document that failed to download is missing from parseFeed too and
+	 * would be removed, see sync(parsedFeed, listing).
+	 * 
+	 * @param parsedFeed every document to index
+	 * @return the number of documents added, updated or removed
+	 */
+	public int sync(Map<String, List<String>> parsedFeed) {
+		return add(parsedFeed) + retainDocuments(parsedFeed.keySet());
+	}
+
+	/**
+	 * Bring the index up to date with a run of parseFeed: its documents are
+	 * added or updated, and the documents no longer listed by the feeds are
+	 * removed, see retainListed.
+	 * 
+	 * @param parsedFeed a map computed by parseFeed(listing)
+	 * @param listing the feeds of the run
+	 * @return the number of documents added, updated or removed
+	 */
+	public int sync(Map<String, List<String>> parsedFeed, FeedListing listing) {
+		return add(parsedFeed) + retainListed(listing);
+	}
+
+	private int add(Map<String, List<String>> parsedFeed) {
+		int changes = 0;
+		for (Entry<String, List<String>> doc : parsedFeed.entrySet()) {
+			if (addDocument(doc.getKey(), doc.getValue())) {
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Remove the documents the feeds no longer list. The links of each feed
+	 * are remembered from one run to the next: a document is kept while a
+	 * feed of the run lists it, or listed it the last time it was read when
+	 * the feed fails this time. A document listed but not downloaded keeps
+	 * its previous words, and the documents of a feed no longer in the run
+	 * are removed.
+	 * 
+	 * @param listing the feeds of the run
+	 * @return the number of documents removed
+	 */
+	public synchronized int retainListed(FeedListing listing) {
+		if (listing == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		return retainDocuments(membership.update(listing));
+	}
+
+	/**
+	 * Remove every document not in the given collection.
+	 * 
+	 * @param keep the documents to keep
+	 * @return the number of documents removed
+	 */
+	public synchronized int retainDocuments(Collection<String> keep) {
+		Set<String> keepSet = keep instanceof Set ? (Set<String>) keep : new HashSet<String>(keep);
+		List<String> removed = new ArrayList<String>();
+		for (String doc : docs.keySet()) {
+			if (!keepSet.contains(doc)) {
+				removed.add(doc);
+			}
+		}
+		for (String doc : removed) {
+			removeDocument(doc);
+		}
+		return removed.size();
+	}
+
+	/**
+	 * @return the number of documents
+	 */
+	public synchronized int size() {
+		return docs.size();
+	}
+
+	/**
+	 * @return the number of distinct terms in the documents
+	 */
+	public synchronized int termCount() {
+		return terms;
+	}
+
+	/**
+	 * @param doc a document (url)
+	 * @return true if the document is indexed
+	 */
+	public synchronized boolean containsDocument(String doc) {
+		return docs.containsKey(doc);
+	}
+
+	/**
+	 * @param term a term
+	 * @return the number of documents containing the term
+	 */
+	public synchronized int docFreq(String term) {
+		TermPostings p = postings(dictionary.lookup(term));
+		return p == null ? 0 : p.size;
+	}
+
+	/**
+	 * @return a snapshot of the forward index, see IIndexBuilder.buildIndex
+	 */
+	public synchronized ForwardIndex forwardIndex() {
+		int[] docFreq = new int[postings.size()];
+		for (int term = 0; term < docFreq.length; term++) {
+			TermPostings p = postings.get(term);
+			docFreq[term] = p == null ? 0 : p.size;
+		}
+		double[] idf = IndexAccumulator.idf(docFreq, docs.size());
+		int[] ranks = ForwardIndex.ranks(dictionary);
+		Map<String, DocVector> indexMap = new HashMap<String, DocVector>();
+		for (Entry<String, DocTerms> doc : docs.entrySet()) {
+			indexMap.put(doc.getKey(), doc.getValue().vector(idf, ranks, dictionary));
+		}
+		return new ForwardIndex(dictionary, indexMap);
+	}
+
+	/**
+	 * A live, read only view of the inverted index in the format of
+	 * IIndexBuilder.buildInvertedIndex. The postings of a term are computed
+	 * when the term is read, with the current document count.
+	 * 
+	 * @return term -> documents and TF-IDF, PostingsList sorted by reverse TF-IDF then document
+	 */
+	public InvertedIndex invertedIndex() {
+		return new InvertedView();
+	}
+
+	/**
+	 * A copy of this index over a new dictionary holding only the terms of
+	 * the current documents, with the documents numbered from 0 again. The
+	 * dictionary and the doc table of an index only grow, the terms and ids
+	 * of removed documents stay in them: a long running index is copied once
+	 * they outnumber the live ones, see needsCompaction. The copy interns
+	 * into its own dictionary, this index is left unchanged.
+	 * 
+	 * @return an index of the same documents, with their ids in the same order
+	 */
+	public synchronized IncrementalIndex compact() {
+		TermDictionary compacted = new TermDictionary();
+		int[] newIds = new int[postings.size()]; // old term id -> new one
+		for (int term : termIds()) {
+			newIds[term] = compacted.intern(dictionary.term(term));
+		}
+		IncrementalIndex copy = new IncrementalIndex(compacted);
+		copy.membership = membership.copy();
+		for (int id = 0; id < nextDocId; id++) {
+			Integer current = docIds.get(docNames[id]);
+			if (current == null || current != id) {
+				continue; // removed, or added again under a new id
+			}
+			DocTerms terms = docs.get(docNames[id]);
+			long[] pairs = new long[terms.ids.length]; // (new id, count) sorted by new id
+			for (int i = 0; i < pairs.length; i++) {
+				pairs[i] = (long) newIds[terms.ids[i]] << 32 | terms.counts[i];
+			}
+			Arrays.sort(pairs);
+			int[] ids = new int[pairs.length];
+			int[] counts = new int[pairs.length];
+			for (int i = 0; i < pairs.length; i++) {
+				ids[i] = (int) (pairs[i] >>> 32);
+				counts[i] = (int) pairs[i];
+			}
+			copy.put(docNames[id], new DocTerms(ids, counts, terms.total));
+		}
+		return copy;
+	}
+
+	/**
+	 * @return true when the terms of the dictionary in no document, or the
+	 *         ids of removed documents, outnumber the others by 1024 at least
+	 */
+	public synchronized boolean needsCompaction() {
+		return dictionary.size() > 2 * terms + 1024 || nextDocId > 2 * docs.size() + 1024;
+	}
+
+	/**
+	 * The home page of the documents, updated with them from the first call
+	 * on: each change only moves the terms of the document that changed.
+	 * 
+	 * @return the live ranking of the terms by number of documents
+	 */
+	public synchronized HomePage homePage() {
+		if (homePage == null) {
+			HomePage ranking = new HomePage();
+			for (int term : termIds()) {
+				ranking.update(dictionary.term(term), postings.get(term).size);
+			}
+			homePage = ranking;
+		}
+		return homePage;
+	}
+
+	private synchronized boolean put(String doc, DocTerms terms) {
+		DocTerms old = docs.put(doc, terms);
+		int id;
+		if (old != null) {
+			if (old.equals(terms)) {
+				return false; // nothing to refresh
+			}
+			id = docIds.get(doc);
+			unlink(id, old);
+		} else {
+			if (nextDocId == docNames.length) {
+				docNames = Arrays.copyOf(docNames, nextDocId * 2);
+				slots = Arrays.copyOf(slots, nextDocId * 2);
+			}
+			id = nextDocId++;
+			docNames[id] = doc;
+			docIds.put(doc, id);
+		}
+		int[] docSlots = new int[terms.ids.length];
+		for (int i = 0; i < terms.ids.length; i++) {
+			int term = terms.ids[i];
+			while (postings.size() <= term) {
+				postings.add(null);
+			}
+			TermPostings p = postings.get(term);
+			if (p == null) {
+				p = new TermPostings();
+				postings.set(term, p);
+			}
+			if (p.size == 0) {
+				this.terms++;
+			}
+			docSlots[i] = p.add(id, (double)terms.counts[i]/(double)terms.total);
+		}
+		slots[id] = docSlots;
+		if (old != null) {
+			rank(old.ids); // the terms in both documents have not moved, only looked up
+		}
+		rank(terms.ids);
+		return true;
+	}
+
+	private void unlink(int id, DocTerms old) {
+		int[] docSlots = slots[id];
+		for (int i = 0; i < old.ids.length; i++) {
+			int term = old.ids[i];
+			TermPostings p = postings.get(term);
+			int moved = p.remove(docSlots[i]);
+			if (moved >= 0) { // the last doc of the term took the slot
+				slots[moved][Arrays.binarySearch(docs.get(docNames[moved]).ids, term)] = docSlots[i];
+			}
+			if (p.size == 0) {
+				this.terms--;
+			}
+		}
+		slots[id] = null;
+	}
+
+	/**
+	 * Update the home page with the number of documents of terms
+	 */
+	private void rank(int[] termIds) {
+		if (homePage != null) {
+			for (int term : termIds) {
+				homePage.update(dictionary.term(term), postings.get(term).size);
+			}
+		}
+	}
+
+	private TermPostings postings(int term) {
+		return term < 0 || term >= postings.size() ? null : postings.get(term);
+	}
+
+	/**
+	 * @return the postings of a term with their current TF-IDF, null if no document has the term
+	 */
+	private synchronized PostingsList postingsList(int term) {
+		TermPostings p = postings(term);
+		if (p == null || p.size == 0) {
+			return null;
+		}
+		if (p.list == null || p.listDocs != docs.size()) {
+			p.list = p.score(docNames, docs.size());
+			p.listDocs = docs.size();
+		}
+		return p.list;
+	}
+
+	/**
+	 * @return the ids of the terms in at least one document
+	 */
+	private synchronized int[] termIds() {
+		int[] ids = new int[terms];
+		int n = 0;
+		for (int term = 0; term < postings.size(); term++) {
+			TermPostings p = postings.get(term);
+			if (p != null && p.size > 0) {
+				ids[n++] = term;
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * The documents of a term with their TF, in no particular order: a
+	 * removed document is replaced by the last one. The documents sorted by
+	 * TF are cached until the term's documents change, and the PostingsList
+	 * until the number of documents changes too.
+	 */
+	private static class TermPostings {
+		int size;
+		int[] docIds = new int[2];
+		double[] tf = new double[2];
+		int[] sortedIds; // null when the order must be computed again
+		double[] sortedTf;
+		PostingsList list; // null when it must be built again
+		int listDocs; // the number of documents the scores of list were computed with
+
+		/**
+		 * @return the slot of the document
+		 */
+		int add(int docId, double termFrequency) {
+			if (size == docIds.length) {
+				docIds = Arrays.copyOf(docIds, size * 2);
+				tf = Arrays.copyOf(tf, size * 2);
+			}
+			docIds[size] = docId;
+			tf[size] = termFrequency;
+			changed();
+			return size++;
+		}
+
+		/**
+		 * @return the id of the document moved into the slot, -1 if it was the last one
+		 */
+		int remove(int slot) {
+			changed();
+			size--;
+			if (slot == size) {
+				return -1;
+			}
+			docIds[slot] = docIds[size];
+			tf[slot] = tf[size];
+			return docIds[slot];
+		}
+
+		private void changed() {
+			sortedIds = null;
+			list = null;
+		}
+
+		/**
+		 * @param names doc id -> document
+		 * @param docCount the number of documents
+		 * @return the postings sorted by reverse TF-IDF then document
+		 */
+		PostingsList score(String[] names, int docCount) {
+			if (sortedIds == null) {
+				sort(names);
+			}
+			double idf = Math.log((double)docCount/(double)size);
+			int[] ids = sortedIds;
+			double[] scores = new double[size];
+			for (int i = 0; i < size; i++) {
+				scores[i] = sortedTf[i] * idf;
+			}
+			// different TF can round to the same TF-IDF, or all be 0: equal scores are sorted by document
+			int run = 0; // first posting of the current run of equal scores
+			boolean merged = false; // the run holds several TF, so it is no longer sorted by document
+			for (int i = 1; i <= size; i++) {
+				if (i == size || scores[i] != scores[run]) {
+					if (merged) {
+						if (ids == sortedIds) {
+							ids = ids.clone(); // the order by TF is kept for the next document count
+						}
+						sortByName(ids, run, i, names);
+					}
+					run = i;
+					merged = false;
+				} else if (sortedTf[i] != sortedTf[i - 1]) {
+					merged = true;
+				}
+			}
+			return new PostingsList(names, ids, scores);
+		}
+
+		/**
+		 * Sort by reverse TF, then document
+		 */
+		private void sort(String[] names) {
+			Integer[] order = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				order[i] = i;
+			}
+			Arrays.sort(order, (a, b) -> {
+				int c = Double.compare(tf[b], tf[a]);
+				return c != 0 ? c : names[docIds[a]].compareTo(names[docIds[b]]);
+			});
+			int[] ids = new int[size];
+			double[] tfs = new double[size];
+			for (int i = 0; i < size; i++) {
+				ids[i] = docIds[order[i]];
+				tfs[i] = tf[order[i]];
+			}
+			sortedTf = tfs;
+			sortedIds = ids;
+		}
+
+		private static void sortByName(int[] ids, int from, int to, String[] names) {
+			Integer[] run = new Integer[to - from];
+			for (int i = 0; i < run.length; i++) {
+				run[i] = ids[from + i];
+			}
+			Arrays.sort(run, (a, b) -> names[a].compareTo(names[b]));
+			for (int i = 0; i < run.length; i++) {
+				ids[from + i] = run[i];
+			}
+		}
+	}
+
+	private class InvertedView extends AbstractInvertedIndex {
+
+		@Override
+		public PostingsList postings(String term) {
+			return postingsList(dictionary.lookup(term));
+		}
+
+		@Override
+		public int docFreq(String term) {
+			return IncrementalIndex.this.docFreq(term);
+		}
+
+		@Override
+		public int size() {
+			return termCount();
+		}
+
+		@Override
+		public Set<String> terms() {
+			return new AbstractSet<String>() {
+				@Override
+				public Iterator<String> iterator() {
+					int[] ids = termIds(); // terms at the time the iteration starts
+					return new Iterator<String>() {
+						int next;
+
+						@Override
+						public boolean hasNext() {
+							return next < ids.length;
+						}
+
+						@Override
+						public String next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							return dictionary.term(ids[next++]);
+						}
+					};
+				}
+
+				@Override
+				public boolean contains(Object term) {
+					return term instanceof String && docFreq((String) term) > 0;
+				}
+
+				@Override
+				public int size() {
+					return termCount();
+				}
+			};
+		}
+	}
+}
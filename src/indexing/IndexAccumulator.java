@@ -0,0 +1,242 @@
+package indexing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import indexing.ForwardIndex.DocVector;
+
+/**
+ * Builds the forward index one document at a time.
+ * 
+ * Documents are added as words or as arrays of term ids of a TermDictionary.
+ * Each document is read once: term frequencies are counted in primitive arrays
+ * indexed by term id, and the distinct terms found update the document
+ * frequencies. Only the distinct terms of each document with their counts are
+ * kept, the words can be dropped as soon as they are added.
+ * 
+ * toIndex() gives the same result as IndexBuilder.buildIndex on all the added
+ * documents, terms are only turned back into strings there. This class is
+ * thread safe, documents added from several threads are counted in parallel.
+ */
+public class IndexAccumulator {
+
+	private final TermDictionary dictionary;
+	private final Map<String, DocTerms> docs = new HashMap<String, DocTerms>();
+	private int[] docFreq = new int[1024]; // term id -> number of docs
+
+	/**
+	 * @param dictionary the dictionary the term ids of the added documents come from
+	 */
+	public IndexAccumulator(TermDictionary dictionary) {
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @return the dictionary of the term ids
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Add a document. Adding a document again replaces it.
+	 * 
+	 * @param doc the document (url)
+	 * @param words the words of the document
+	 */
+	public void add(String doc, List<String> words) {
+		commit(doc, DocTerms.count(words, dictionary));
+	}
+
+	/**
+	 * Add a document. Adding a document again replaces it.
+	 * 
+	 * @param doc the document (url)
+	 * @param termIds the ids of the words of the document, in any order
+	 */
+	public void add(String doc, int[] termIds) {
+		commit(doc, DocTerms.count(termIds));
+	}
+
+	/**
+	 * Register the counts of a document, they were computed outside the lock
+	 * since documents are independent.
+	 */
+	private synchronized void commit(String doc, DocTerms terms) {
+		remove(doc);
+		docs.put(doc, terms);
+		int[] ids = terms.ids;
+		if (ids.length > 0 && ids[ids.length - 1] >= docFreq.length) { // ids are sorted, the last one is the largest
+			docFreq = Arrays.copyOf(docFreq, Math.max(ids[ids.length - 1] + 1, docFreq.length * 2));
+		}
+		for (int term : ids) {
+			docFreq[term]++;
+		}
+	}
+
+	/**
+	 * @return the number of documents added
+	 */
+	public synchronized int size() {
+		return docs.size();
+	}
+
+	/**
+	 * @return the forward index of the documents added so far, see IIndexBuilder.buildIndex
+	 */
+	public synchronized ForwardIndex toIndex() {
+		Map<String, DocVector> indexMap = new HashMap<String, DocVector>();
+		double[] idf = idf(docFreq, docs.size());
+		int[] ranks = ForwardIndex.ranks(dictionary);
+		for (Entry<String, DocTerms> doc : docs.entrySet()) {
+			indexMap.put(doc.getKey(), doc.getValue().vector(idf, ranks, dictionary));
+		}
+		return new ForwardIndex(dictionary, indexMap);
+	}
+
+	/**
+	 * IDF(t) = log_e(Total number of documents / Number of documents with term t in it),
+	 * computed once per term instead of once per document and term.
+	 * 
+	 * @param docFreq term id -> number of documents with the term
+	 * @param totalDoc total number of documents
+	 * @return term id -> IDF, 0 for terms in no document
+	 */
+	static double[] idf(int[] docFreq, int totalDoc) {
+		double[] idf = new double[docFreq.length];
+		for (int term = 0; term < docFreq.length; term++) {
+			if (docFreq[term] > 0) {
+				idf[term] = Math.log((double)totalDoc/(double)docFreq[term]);
+			}
+		}
+		return idf;
+	}
+
+	private void remove(String doc) {
+		DocTerms old = docs.remove(doc);
+		if (old != null) {
+			for (int term : old.ids) {
+				docFreq[term]--;
+			}
+		}
+	}
+
+	/**
+	 * The distinct terms of a document (sorted ids) and how many times each appears
+	 */
+	static class DocTerms {
+		final int[] ids;
+		final int[] counts;
+		final int total;
+
+		DocTerms(int[] ids, int[] counts, int total) {
+			this.ids = ids;
+			this.counts = counts;
+			this.total = total;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof DocTerms)) {
+				return false;
+			}
+			DocTerms other = (DocTerms) o;
+			return total == other.total && Arrays.equals(ids, other.ids) && Arrays.equals(counts, other.counts);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * Arrays.hashCode(ids) + total;
+		}
+
+		/**
+		 * Intern and count words in a single pass
+		 */
+		static DocTerms count(List<String> words, TermDictionary dictionary) {
+			Counter counter = COUNTERS.get();
+			try {
+				for (String word : words) {
+					counter.count(dictionary.intern(word));
+				}
+				return counter.finish(words.size());
+			} finally {
+				counter.clear(); // a word that failed to intern leaves no counts for the next document
+			}
+		}
+
+		static DocTerms count(int[] termIds) {
+			Counter counter = COUNTERS.get();
+			try {
+				for (int term : termIds) {
+					counter.count(term);
+				}
+				return counter.finish(termIds.length);
+			} finally {
+				counter.clear(); // a negative id leaves no counts for the next document
+			}
+		}
+
+		/**
+		 * TF-IDF(t) = TF * IDF with TF(t) = (Number of times term t appears in a document) / (Total number of terms in the document)
+		 * 
+		 * @param ranks term id -> lexicographic rank, see ForwardIndex.ranks
+		 * @return term -> TF-IDF, sorted by lexicographic order on the term
+		 */
+		DocVector vector(double[] idf, int[] ranks, TermDictionary dictionary) {
+			double[] weights = new double[ids.length];
+			for (int i = 0; i < ids.length; i++) {
+				weights[i] = ((double)counts[i]/(double)total) * idf[ids[i]];
+			}
+			return new DocVector(dictionary, ranks, ids.clone(), weights);
+		}
+	}
+
+	private static final ThreadLocal<Counter> COUNTERS = ThreadLocal.withInitial(Counter::new);
+
+	/**
+	 * Counts the terms of one document at a time in arrays indexed by term
+	 * id, reused from one document to the next so counting allocates nothing.
+	 */
+	private static class Counter {
+		private int[] counts = new int[1024]; // term id -> count in the current document, all 0 between documents
+		private int[] seen = new int[256]; // distinct term ids of the current document
+		private int distinct;
+
+		void count(int term) {
+			if (term >= counts.length) {
+				counts = Arrays.copyOf(counts, Math.max(term + 1, counts.length * 2));
+			}
+			if (counts[term]++ == 0) { // first occurrence in the document
+				if (distinct == seen.length) {
+					seen = Arrays.copyOf(seen, distinct * 2);
+				}
+				seen[distinct++] = term;
+			}
+		}
+
+		DocTerms finish(int total) {
+			int[] ids = Arrays.copyOf(seen, distinct);
+			Arrays.sort(ids);
+			int[] termCounts = new int[distinct];
+			for (int i = 0; i < distinct; i++) {
+				termCounts[i] = counts[ids[i]];
+				counts[ids[i]] = 0; // ready for the next document
+			}
+			distinct = 0;
+			return new DocTerms(ids, termCounts, total);
+		}
+
+		/**
+		 * Forgets the current document, nothing to do after finish
+		 */
+		void clear() {
+			for (int i = 0; i < distinct; i++) {
+				counts[seen[i]] = 0;
+			}
+			distinct = 0;
+		}
+	}
+}
@@ -1,31 +1,163 @@
 package indexing;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import autocomplete.DictionaryFile;
+import feed.FeedSource;
+import feed.FetchScheduler;
+import feed.LiveFeedSource;
+import feed.Page;
+import feed.RssReader;
+import indexing.ForwardIndex.DocVector;
+
 public class IndexBuilder implements IIndexBuilder {
 
+	/**
+	 * The binary autocomplete dictionary written by createAutocompleteFile
+	 */
+	public static final String AUTOCOMPLETE_FILE = "autocomplete.dict";
+
+	/**
+	 * The text export of the autocomplete dictionary
+	 */
+	public static final String AUTOCOMPLETE_TEXT = "autocomplete.txt";
+
+	private final FeedSource feedSource;
+	private final int maxInFlight;
+	private final int maxPerHost;
+	private final TermDictionary dictionary = new TermDictionary();
+	private PostingsFormat postingsFormat = PostingsFormat.ARRAY;
+	private TokenFilter tokenFilter = new TokenFilter();
+	private boolean autocompleteText = false;
+	private TermWeighting termWeighting = TermWeighting.DOC_FREQ;
+
+	/**
+	 * Index builder downloading feeds and articles one after the other.
+	 */
+	public IndexBuilder() {
+		this(new LiveFeedSource(), 0, 0);
+	}
+
+	/**
+	 * Index builder downloading feeds and articles concurrently.
+	 * 
+	 * @param maxInFlight the maximum number of downloads running at once, 0 to fetch sequentially
+	 * @param maxPerHost the maximum number of downloads running at once against a single host
+	 */
+	public IndexBuilder(int maxInFlight, int maxPerHost) {
+		this(new LiveFeedSource(), maxInFlight, maxPerHost);
+	}
+
+	/**
+	 * Index builder reading feeds and articles from the given source.
+	 * 
+	 * @param feedSource where feeds and articles come from (network, http cache, recorded corpus)
+	 * @param maxInFlight the maximum number of fetches running at once, 0 to fetch sequentially
+	 * @param maxPerHost the maximum number of fetches running at once against a single host
+	 */
+	public IndexBuilder(FeedSource feedSource, int maxInFlight, int maxPerHost) {
+		if (feedSource == null || maxInFlight < 0 || (maxInFlight > 0 && maxPerHost < 1)) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.feedSource = feedSource;
+		this.maxInFlight = maxInFlight;
+		this.maxPerHost = maxPerHost;
+	}
+
+	/**
+	 * @return the dictionary giving an id to every term indexed by this builder
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @return where feeds and articles come from
+	 */
+	public FeedSource getFeedSource() {
+		return feedSource;
+	}
+
+	/**
+	 * @return how buildInvertedIndex stores postings
+	 */
+	public PostingsFormat getPostingsFormat() {
+		return postingsFormat;
+	}
+
+	/**
+	 * @param postingsFormat how buildInvertedIndex stores postings, ARRAY by default
+	 */
+	public void setPostingsFormat(PostingsFormat postingsFormat) {
+		if (postingsFormat == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.postingsFormat = postingsFormat;
+	}
+
+	/**
+	 * @param termWeighting how createAutocompleteFile(InvertedIndex) weighs the words, DOC_FREQ by default
+	 */
+	public void setTermWeighting(TermWeighting termWeighting) {
+		if (termWeighting == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.termWeighting = termWeighting;
+	}
+
+	/**
+	 * @param autocompleteText true to also write the text file autocomplete.txt in createAutocompleteFile
+	 */
+	public void setAutocompleteText(boolean autocompleteText) {
+		this.autocompleteText = autocompleteText;
+	}
+
+	/**
+	 * @return the filter applied to the words of the articles by parseFeed
+	 */
+	public TokenFilter getTokenFilter() {
+		return tokenFilter;
+	}
+
+	/**
+	 * @param tokenFilter the filter applied to the words of the articles by parseFeed, one keeping every word by default
+	 */
+	public void setTokenFilter(TokenFilter tokenFilter) {
+		if (tokenFilter == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.tokenFilter = tokenFilter;
+	}
+
 	 /**
      * <parseFeed> Parse each document/rss feed in the list and return a Map of
      * each document and all the words in it. (punctuation and special
@@ -37,47 +169,140 @@ public class IndexBuilder implements IIndexBuilder {
      */
 	@Override
 	public Map<String, List<String>> parseFeed(List<String> feeds) {
+		return parseFeed(new FeedListing(feeds));
+	}
+
+	/**
+	 * Same as parseFeed(feeds), recording the links each feed lists and the
+	 * feeds read to the end, for IncrementalIndex.sync(parsedFeed, listing).
+	 * 
+	 * @param listing the rss feeds to parse, filled as they are read
+	 * @return a Map of each documents (identified by its url) and the list of
+	 *         words in it.
+	 */
+	public Map<String, List<String>> parseFeed(FeedListing listing) {
+		if (listing == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		if (maxInFlight > 0) {
+			return parseFeedConcurrently(listing);
+		}
 		Map<String, List<String>> parsedFeed = new HashMap<String, List<String>>();		
 		
-		try {
-			for(String feed: feeds) {
-				Document doc = Jsoup.connect(feed).get();
-				Elements links = doc.getElementsByTag("link"); // all links from a RSS file
-				
-				
-				for (Element link : links){ // extract each html link from a RSS file
-					
-					String linkText = link.text();// Initiate a key
-					List<String> bodyStrings = new ArrayList<String>(); // Initate the value
-					
-					Document htmlDoc = Jsoup.connect(linkText).get(); 	
-					Elements bodys = htmlDoc.getElementsByTag("body"); // The body elements		
-					
-					String textHTML = bodys.text().toLowerCase(); 
-					String[] words = textHTML.replaceAll("[^a-zA-Z0-9 ]", "").split("\\s+"); // delete the punctuations
-					
-					for(int i = 0; i < words.length; i++) {
-						 bodyStrings.add(words[i]);
+		// a feed or article that fails is reported and skipped, as in parseFeedConcurrently
+		for(String feed: listing.getFeeds()) {
+			try {
+				readLinks(feed, item -> { // extract each html link from a RSS file
+					String linkText = item.getLink();
+					listing.listed(feed, linkText);
+					try {
+						parsedFeed.put(linkText, readWords(linkText));
+					} catch (IOException | RuntimeException e) {
+						e.printStackTrace();
 					}
-									
-					parsedFeed.put(linkText,  bodyStrings);
-					
-				}					
+				});
+				listing.complete(feed);
+			}catch(IOException | RuntimeException e) {
+				e.printStackTrace();
 			}
-			
-		}catch(Exception e) {
-			e.printStackTrace();
-		}						
+		}
+		flushFeedSource();
 		return parsedFeed;
 	}
 
+	/**
+	 * Concurrent version of parseFeed. Feeds are fetched in parallel and each
+	 * article is scheduled as soon as its item is read from the feed, all through
+	 * one FetchScheduler so the in-flight and per-host limits hold for the whole run.
+	 * A feed or article that fails to download is reported and skipped instead of
+	 * aborting the remaining ones.
+	 */
+	private Map<String, List<String>> parseFeedConcurrently(FeedListing listing) {
+		Map<String, List<String>> parsedFeed = new ConcurrentHashMap<String, List<String>>();
+		Set<String> scheduled = ConcurrentHashMap.newKeySet(); // a link listed by two feeds is fetched once
+		Queue<CompletableFuture<Void>> articleTasks = new ConcurrentLinkedQueue<CompletableFuture<Void>>();
+		List<CompletableFuture<Void>> feedTasks = new ArrayList<CompletableFuture<Void>>();
+		
+		try (FetchScheduler scheduler = new FetchScheduler(maxInFlight, maxPerHost)) {
+			for (String feed : listing.getFeeds()) {
+				feedTasks.add(scheduler.submit(feed, () -> {
+					readLinks(feed, item -> {
+						String linkText = item.getLink();
+						listing.listed(feed, linkText);
+						if (scheduled.add(linkText)) {
+							articleTasks.add(scheduler.submit(linkText, () -> readWords(linkText))
+									.thenAccept(words -> parsedFeed.put(linkText, words))
+									.exceptionally(IndexBuilder::report));
+						}
+					});
+					listing.complete(feed);
+					return (Void) null;
+				}).exceptionally(IndexBuilder::report));
+			}
+			// articles are only scheduled by feed tasks, once those are done the queue is complete
+			CompletableFuture.allOf(feedTasks.toArray(new CompletableFuture<?>[0])).join();
+			CompletableFuture.allOf(articleTasks.toArray(new CompletableFuture<?>[0])).join();
+		}
+		flushFeedSource();
+		return new HashMap<String, List<String>>(parsedFeed);
+	}
+
+	private static Void report(Throwable t) {
+		(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t).printStackTrace();
+		return null;
+	}
+
+	private void flushFeedSource() {
+		try {
+			feedSource.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Stream the items of a rss or atom feed.
+	 * 
+	 * @param feed the url of the feed
+	 * @param handler receives each item as soon as it is read
+	 */
+	private void readLinks(String feed, RssReader.ItemHandler handler) throws IOException {
+		try (Page page = feedSource.fetch(feed)) {
+			RssReader.read(page.getBody(), page.getCharset(), handler);
+		}
+	}
+
+	/**
+	 * @param linkText the url of an article
+	 * @return the words of the article body, lowercase with punctuation removed, noise filtered out
+	 */
+	private List<String> readWords(String linkText) throws IOException {
+		try (Page page = feedSource.fetch(linkText)) {
+			// lowercase, delete the punctuations, split and filter in one pass
+			return tokenFilter.tokenize(bodyText(page.getBody(), page.getCharset(), linkText));
+		}
+	}
+
+	/**
+	 * @param html a html page
+	 * @param charset the charset of the page, null to detect it
+	 * @param url the url of the page
+	 * @return the text of the body elements of the page
+	 */
+	static String bodyText(InputStream html, String charset, String url) throws IOException {
+		Document htmlDoc = Jsoup.parse(html, charset, url);
+		Elements bodys = htmlDoc.getElementsByTag("body"); // The body elements
+		return bodys.text();
+	}
+
 	  /**
      * @param docs a map computed by {@parseFeed}
      * @return the forward index: a map of all documents and their 
      *         tags/keywords. the key is the document, the value is a 
      *         map of a tag term and its TFIDF value. 
      *         The values (Map<String, Double>) are sorted
-     *         by lexicographic order on the key (tag term)
+     *         by lexicographic order on the key (tag term).
+     *         The index is a read only ForwardIndex
      *  
      */
 	@Override
@@ -86,49 +311,34 @@ public class IndexBuilder implements IIndexBuilder {
 		// IDF(t) = log_e(Total number of documents/ Number of documents with term t in it). Among the different docs
 		// TF-IDF(t) = TF * IDF
 		
-		Map<String, Map<String, Double>> indexMap = new HashMap<String, Map<String, Double>>(); // the output map						
-		int totalDoc = docs.size(); // total amount of docs
-		
-		// First to get the data for calculatate IDF
-		Map<String, Integer> exist = new HashMap<String, Integer>(); // Map to store number of documents that exist the term(Key)
-		for(Entry<String, List<String>> htmlE: docs.entrySet()){ // To get the number of documents that exist each term
-			Set<String> terms = new HashSet<String>(htmlE.getValue()); // First convert the String list of a html doc to a Set
-			
-			for(String term: terms) {
-				if(!exist.containsKey(term)) {
-					exist.put(term, 0);
-				}
-				exist.put(term, exist.get(term) + 1);
-			}
-		}				
-		
-		// Get the data for TF and calculate TF-IDF(t) = TF * IDF in the iteration of each html file.
+		// The result is a ForwardIndex: sorted term ids and TF-IDF in arrays behind a Map view.
+		// A single pass over the words: each one is hashed once to get its dictionary id,
+		// TF and DF are counted on ids and the IDF of a term is computed once
+		IndexAccumulator accumulator = new IndexAccumulator(dictionary);
 		for(Entry<String, List<String>> htmlF: docs.entrySet()){
-			int totalTerm = htmlF.getValue().size(); // the num of terms in each html files
-			Map<String, Integer> numOfTerm = new HashMap<String, Integer>(); // initiate a map to store the number of each term in the html file
-			Map<String, Double> TFIDF = new TreeMap<String, Double>();
-			List<String> terms = htmlF.getValue();
-			
-			for(String term: terms) { // track the num of each term within a file
-				if(!numOfTerm.containsKey(term)) {
-					numOfTerm.put(term, 0);
-				}
-				numOfTerm.put(term, numOfTerm.get(term) + 1);
-			} 
-			
-			// To store each term's TF-IDF(t) in the file. TreeMap is sorted on lexicographic order on the key by default.
-			for(Entry<String, Integer> num: numOfTerm.entrySet()){
-				String term = num.getKey();
-				double data = ((double)num.getValue()/(double)totalTerm) * Math.log((double)totalDoc/(double)exist.get(term));
-				TFIDF.put(term, data);				
-			}
-			
-			// Store the data for each html file.
-			indexMap.put(htmlF.getKey(), TFIDF);						
-		}		
-		return indexMap;
+			accumulator.add(htmlF.getKey(), htmlF.getValue());
+		}
+		return accumulator.toIndex();
 	}
 	
+	/**
+	 * Parallel version of buildIndex. Term counts and document frequencies
+	 * are computed on a fork-join pool, the result is identical to buildIndex(docs).
+	 * 
+	 * @param docs a map computed by {@parseFeed}
+	 * @param parallelism the number of threads, 1 to run on the calling thread
+	 * @return the forward index, see buildIndex(docs)
+	 */
+	public Map<String, Map<String, Double>> buildIndex(Map<String, List<String>> docs, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		if (parallelism == 1) {
+			return buildIndex(docs);
+		}
+		return ParallelIndexer.buildIndex(docs, dictionary, parallelism);
+	}
+
 	/**
 	 * Create a comparator for the TreeSet in the task 4
 	 * @return
@@ -152,49 +362,143 @@ public class IndexBuilder implements IIndexBuilder {
      * The Java collection (value) is sorted by reverse tag term TFIDF value 
      * (the document in which a term has the
      * highest TFIDF should be listed first).
-     * 
+     * The collections are Postings in the format of getPostingsFormat(), a
+     * PostingsList by default: documents with the same TFIDF are all kept,
+     * sorted by lexicographic order. The format can be chosen at runtime
+     * with setPostingsFormat, readers only see the InvertedIndex.
      * 
      * @param index the index computed by {@buildIndex}
-     * @return inverted index - a sorted Map of the documents in which term is a keyword
+     * @return inverted index - the Postings of the documents in which term is a keyword
      */
 	@Override
-	public Map<?, ?> buildInvertedIndex(Map<String, Map<String, Double>> index) {
-		
-		Comparator<Entry<String, Double>> comp = IndexBuilder.indexComparator(); // Initiate a comparator for the treeSet
-		Map<String, HashMap<String, Double>> invertedIndex = new HashMap<String, HashMap<String, Double>>(); // we cannot sort in hashmap, so just use it for store the entry
-		Map<String, TreeSet<Entry<String, Double>>> invertedIndexSorted = new HashMap<String, TreeSet<Entry<String, Double>>>(); // This is the datatype I choose to return		
+	public InvertedIndex buildInvertedIndex(Map<String, Map<String, Double>> index) {
+		// Documents get ids by lexicographic order, the id breaks ties between equal TFIDF
+		String[] docs = index.keySet().toArray(new String[0]);
+		Arrays.sort(docs);
+		int[][] termIds = new int[docs.length][];
+		double[][] weights = new double[docs.length][];
 		
-		// To visit the entryset of index Map
-		for(Entry<String, Map<String, Double>> doc: index.entrySet()){ // Visit every doc, the key is the new key of the collection of entries
-			String docName = doc.getKey();
-			
-			for(Entry<String, Double> termData: doc.getValue().entrySet()) { // Visit every term - data entry
-				String term = termData.getKey(); // The term
-				Double data = termData.getValue(); // The TF-IDF
-				
-				if (!invertedIndex.containsKey(term)) { // If the map does not contain the term 
-					invertedIndex.put(term, new HashMap<String, Double>()); // The hashmap is for storing entry of doc and TFIDF
+		TermDictionary terms;
+		if (index instanceof ForwardIndex) {
+			terms = ((ForwardIndex) index).getDictionary();
+			for (int d = 0; d < docs.length; d++) { // term ids are already known
+				DocVector vector = ((ForwardIndex) index).vector(docs[d]);
+				termIds[d] = vector.ids;
+				weights[d] = vector.weights;
+			}
+		} else {
+			// ids of this build only: reading an index must not grow the dictionary of the builder
+			terms = new TermDictionary();
+			for (int d = 0; d < docs.length; d++) { // Visit every doc
+				Map<String, Double> docTerms = index.get(docs[d]);
+				termIds[d] = new int[docTerms.size()];
+				weights[d] = new double[docTerms.size()];
+				int i = 0;
+				for (Entry<String, Double> termData : docTerms.entrySet()) { // Visit every term - data entry
+					termIds[d][i] = terms.intern(termData.getKey());
+					weights[d][i++] = termData.getValue();
 				}
-				
-				HashMap<String, Double> docEntry = invertedIndex.get(term); // get the hashmap of the related term
-				docEntry.put(docName, data); // Put new entry of doc and data to the map
 			}
 		}
-		
-		// transfer the index from invertedIndex to invertedIndexSorted
-		// the value if two map is different, in invertedIndexFinal, we use a treeSet to sort the index
-		for(Entry<String, HashMap<String, Double>> termIndex: invertedIndex.entrySet()) {
-			String term = termIndex.getKey(); // The term
-			TreeSet<Entry<String, Double>> sortedIndex = new TreeSet<Entry<String, Double>>(comp); // Create treeset for every term
-			
-			// Add the entry of doc and data from hashmap to the treeset so we can sort the entry within the treeset.
-			for(Entry<String, Double> termData: termIndex.getValue().entrySet()) { 
-				sortedIndex.add(termData);
+		return invert(terms, docs, termIds, weights);
+	}
+
+	/**
+	 * Split the documents into shards by the hash of their name and build the
+	 * inverted index of each shard, in parallel. Scores are those of the
+	 * forward index, so they do not depend on the number of shards.
+	 * 
+	 * @param index the index computed by {@buildIndex}
+	 * @param shards the number of shards
+	 * @return the inverted indexes of the shards, in the format of getPostingsFormat()
+	 */
+	public ShardedIndex buildShardedIndex(Map<String, Map<String, Double>> index, int shards) {
+		if (index == null || shards < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		boolean vectors = index instanceof ForwardIndex;
+		List<Map<String, Map<String, Double>>> parts = new ArrayList<Map<String, Map<String, Double>>>();
+		List<Map<String, DocVector>> vectorParts = new ArrayList<Map<String, DocVector>>();
+		for (int s = 0; s < shards; s++) {
+			parts.add(new HashMap<String, Map<String, Double>>());
+			vectorParts.add(new HashMap<String, DocVector>());
+		}
+		for (Entry<String, Map<String, Double>> doc : index.entrySet()) {
+			int shard = Math.floorMod(doc.getKey().hashCode(), shards);
+			if (vectors) {
+				vectorParts.get(shard).put(doc.getKey(), (DocVector) doc.getValue());
+			} else {
+				parts.get(shard).put(doc.getKey(), doc.getValue());
 			}
-			invertedIndexSorted.put(term, sortedIndex);
-		}				
-		
-		return invertedIndexSorted;
+		}
+		if (vectors) { // keeps the term ids of the vectors
+			for (int s = 0; s < shards; s++) {
+				parts.set(s, new ForwardIndex(((ForwardIndex) index).getDictionary(), vectorParts.get(s)));
+			}
+		}
+		List<Callable<InvertedIndex>> tasks = new ArrayList<Callable<InvertedIndex>>();
+		for (Map<String, Map<String, Double>> part : parts) {
+			tasks.add(() -> buildInvertedIndex(part));
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(shards, Runtime.getRuntime().availableProcessors()));
+		try {
+			List<InvertedIndex> inverted = new ArrayList<InvertedIndex>();
+			for (Future<InvertedIndex> shard : pool.invokeAll(tasks)) {
+				inverted.add(shard.get());
+			}
+			return new ShardedIndex(inverted);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Group the postings by term id with a counting sort over primitive arrays,
+	 * in document id order, then encode each term's postings once.
+	 * 
+	 * @param terms the dictionary of the term ids
+	 * @param docs doc id -> document (url)
+	 * @param termIds doc id -> ids of its terms
+	 * @param weights doc id -> TFIDF of its terms
+	 * @return term -> postings, in memory
+	 */
+	private InvertedIndex invert(TermDictionary terms, String[] docs, int[][] termIds, double[][] weights) {
+		int[] start = new int[terms.size() + 1]; // term id -> first posting of the term, ids of the index are all below size()
+		for (int d = 0; d < docs.length; d++) {
+			for (int term : termIds[d]) {
+				start[term + 1]++;
+			}
+		}
+		for (int term = 0; term < start.length - 1; term++) {
+			start[term + 1] += start[term];
+		}
+		int[] next = Arrays.copyOf(start, start.length - 1);
+		int[] postingDoc = new int[start[start.length - 1]];
+		double[] postingScore = new double[postingDoc.length];
+		for (int d = 0; d < docs.length; d++) {
+			for (int i = 0; i < termIds[d].length; i++) {
+				int p = next[termIds[d][i]]++;
+				postingDoc[p] = d;
+				postingScore[p] = weights[d][i];
+			}
+		}
+
+		Map<String, Postings> invertedIndexSorted = new HashMap<String, Postings>(); // This is the datatype I choose to return
+		for (int term = 0; term < start.length - 1; term++) {
+			if (start[term] == start[term + 1]) {
+				continue; // in no document
+			}
+			// the term is only turned back into a string here
+			invertedIndexSorted.put(terms.term(term), postingsFormat.encode(docs,
+					Arrays.copyOfRange(postingDoc, start[term], start[term + 1]),
+					Arrays.copyOfRange(postingScore, start[term], start[term + 1])));
+		}
+		return new MemoryIndex(invertedIndexSorted);
 	}
 
 	/**
@@ -232,19 +536,18 @@ public class IndexBuilder implements IIndexBuilder {
      *         https://docs.oracle.com/javase/9/docs/api/java/util/AbstractMap.SimpleEntry.html
      */
 	@Override
-	public Collection<Entry<String, List<String>>> buildHomePage(Map<?, ?> invertedIndex) { // Map<String, TreeSet<Entry<String, Double>>>
+	public Collection<Entry<String, List<String>>> buildHomePage(InvertedIndex invertedIndex) {
 		
 		Collection<Entry<String, List<String>>> homePage = new TreeSet<Entry<String, List<String>>>(homePageComparator()); // The final collection
 		
-		Map<String, TreeSet<Entry<String, Double>>> IndexMap = (Map<String, TreeSet<Entry<String, Double>>>) invertedIndex;
-		for(Entry<String, TreeSet<Entry<String, Double>>> termData: IndexMap.entrySet()) {
-			String term = termData.getKey();
+		for(String term: invertedIndex.terms()) {
 			
 			if(!STOPWORDS.contains(term)) { // If not contained in stopword, then added to the homepage
-				ArrayList<String> articles = new ArrayList<String>();
+				Postings postings = invertedIndex.postings(term);
+				ArrayList<String> articles = new ArrayList<String>(postings.size());
 				
-				for(Entry<String, Double> data: termData.getValue()) { // Add articles to the list
-					articles.add(data.getKey());
+				for(int docId: postings.rankedDocIds()) { // Add articles to the list
+					articles.add(postings.docName(docId));
 				}
 				
 				homePage.add(new AbstractMap.SimpleEntry<String,List<String>>(term, articles));
@@ -257,10 +560,12 @@ public class IndexBuilder implements IIndexBuilder {
 
 	// 
     /**
-     * Create a file containing all the words in the inverted index. Each word
-     * should occupy a line Words should be written in lexicographic order
-     * assign a weight of 0 to each word. The method must store the words into a 
-     * file named autocomplete.txt
+     * Create a file containing all the words in the inverted index, in
+     * lexicographic order, weighted by the number of articles of the word
+     * in the homepage (its document frequency). The words are stored into the
+     * binary dictionary file autocomplete.dict (DictionaryFile), and into the
+     * text file autocomplete.txt when setAutocompleteText(true) was called.
+     * Each file is replaced atomically, a failed write leaves the previous one.
      * 
      * @param homepage the collection used to generate the homepage (buildHomePage)
      * @return A collection containing all the words written into the file sorted by lexicographic order
@@ -281,29 +586,45 @@ public class IndexBuilder implements IIndexBuilder {
 			words.add(term.getKey());
 		}
 		
-		FileWriter fw;
-		BufferedWriter br;
-		try {
-			fw = new FileWriter("autocomplete.txt");
-			br = new BufferedWriter(fw);
-			br.write(words.size() + ""); // First write the size it the first line
-			Iterator<String> itword = words.iterator();
-			
-			while(itword.hasNext()) {	
-				br.newLine();
-				br.write(" 0 " + itword.next());
+		Map<String, Long> weights = new HashMap<String, Long>();
+		for (Entry<String, List<String>> term : homepage) {
+			weights.put(term.getKey(), (long) term.getValue().size());
+		}
+		writeAutocompleteFile(weights);
+		
+		return words;
+	}
+
+	/**
+	 * Create the autocomplete files of createAutocompleteFile(homepage)
+	 * straight from the index, without listing the articles of every term,
+	 * the words weighted by the TermWeighting of this builder.
+	 * 
+	 * @param invertedIndex an inverted index
+	 * @return the words written into the file, stopwords excluded, sorted by lexicographic order
+	 */
+	public Collection<String> createAutocompleteFile(InvertedIndex invertedIndex) {
+		Collection<String> words = new TreeSet<String>();
+		Map<String, Long> weights = new HashMap<String, Long>();
+		for (String term : invertedIndex.terms()) {
+			if (!STOPWORDS.contains(term)) { // the words of buildHomePage
+				words.add(term);
+				weights.put(term, termWeighting.weight(invertedIndex, term));
 			}
-			br.flush();
-			fw.close();
+		}
+		writeAutocompleteFile(weights);
+		return words;
+	}
 
-			
-		}catch (IOException e) {
-			
+	private void writeAutocompleteFile(Map<String, Long> weights) {
+		try {
+			DictionaryFile.write(weights, Paths.get(AUTOCOMPLETE_FILE));
+			if (autocompleteText) {
+				DictionaryFile.writeText(weights, Paths.get(AUTOCOMPLETE_TEXT));
+			}
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
-
-		
-		return words;
 	}
 
 	/**
@@ -312,16 +633,45 @@ public class IndexBuilder implements IIndexBuilder {
      * @return
      */
 	@Override
-	public List<String> searchArticles(String queryTerm, Map<?, ?> invertedIndex) {
+	public List<String> searchArticles(String queryTerm, InvertedIndex invertedIndex) {
 		
-		List<String> articles = new ArrayList<String>(); 
-		TreeSet<Entry<String, Double>> articleSet = (TreeSet<Entry<String, Double>>) invertedIndex.get(queryTerm);
-		if(!invertedIndex.containsKey(queryTerm)) { //If not contains such query Term, return null
+		String term = tokenFilter.normalize(queryTerm); // stemmed like the indexed words
+		Postings articleSet = term == null ? null : invertedIndex.postings(term);
+		if(articleSet == null) { //If not contains such query Term, return null
 			return null;
 		}
-		for(Entry<String, Double> termArticle: articleSet) {
-			articles.add(termArticle.getKey());
+		List<String> articles = new ArrayList<String>(articleSet.size()); 
+		for(int docId: articleSet.rankedDocIds()) { // no entry is created per article
+			articles.add(articleSet.docName(docId));
 		}		
 		return articles; 
 	}
+
+	/**
+	 * The words are ORed and the best articles are found with WAND
+	 * (QueryEngine.search(query, limit)): documents that cannot enter the
+	 * results are skipped without being scored.
+	 * 
+	 * @param query words, operators are not interpreted, filtered by the TokenFilter of this builder
+	 * @param invertedIndex
+	 * @param limit the maximum number of articles
+	 * @return the best limit articles, null if no word is in the index
+	 */
+	@Override
+	public List<String> searchArticles(String query, InvertedIndex invertedIndex, int limit) {
+		if (query == null || invertedIndex == null || limit < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		List<String> words = new ArrayList<String>();
+		for (String word : Tokenizer.tokenize(query)) {
+			String term = tokenFilter.normalize(word); // filtered and stemmed like the indexed words
+			if (term != null && invertedIndex.docFreq(term) > 0) {
+				words.add(term);
+			}
+		}
+		if (words.isEmpty()) {
+			return null;
+		}
+		return new QueryEngine(invertedIndex).search(String.join(" OR ", words), limit);
+	}
 }
@@ -0,0 +1,363 @@
+package indexing;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import indexing.Postings.Cursor;
+
+/**
+ * Binary file format of an inverted index, read by memory mapping it.
+ * 
+ * All numbers are big endian. Offsets are from the start of the file.
+ * 
+ * header    int magic "NAIX", int version, int docCount, int termCount,
+ *           long docTable, long termTable, long postings
+ * docTable  int[docCount + 1] offsets of the names in the bytes that follow,
+ *           then the UTF-8 names of the documents, by doc id
+ * termTable int[termCount + 1] offsets of the terms in the bytes that follow,
+ *           then the UTF-8 terms sorted by unsigned bytes, then for each term
+ *           int docFreq, long offset of its postings, double maxScore
+ * postings  for each term: int[docFreq] doc ids increasing,
+ *           double[docFreq] the TF-IDF of each, int[docFreq] the positions
+ *           of the two arrays before sorted by reverse TF-IDF then doc id
+ * 
+ * Doc ids follow the lexicographic order of the documents. A file is written
+ * to a temporary file, forced to disk and renamed over the previous one, so
+ * a reader never sees a partial file. A file still mapped cannot be replaced
+ * on Windows: an index rewritten while it is served is written as a new
+ * generation instead, see writeGeneration.
+ */
+public class IndexFile {
+
+	static final int MAGIC = 0x4E414958; // "NAIX"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 4 * 4 + 3 * 8;
+	static final int TERM_ENTRY_SIZE = 4 + 8 + 8;
+
+	private IndexFile() {
+	}
+
+	/**
+	 * Open an index file. Only the header and the tables are read, to check
+	 * that they lie within the file; terms and postings are read from the
+	 * mapped file when they are looked up.
+	 * 
+	 * @param file an index file written by write()
+	 * @return the inverted index, in the format of IIndexBuilder.buildInvertedIndex
+	 * @throws IOException if the file cannot be read, is not an index file of this version,
+	 *         or a table or the postings of a term do not fit in it
+	 */
+	public static MappedIndex open(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Index file too large: " + file);
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+				throw new IOException("Not an index file: " + file);
+			}
+			if (buffer.getInt(4) != VERSION) {
+				throw new IOException("Unsupported index file version " + buffer.getInt(4) + ": " + file);
+			}
+			checkBounds(buffer, file);
+			return new MappedIndex(buffer);
+		}
+	}
+
+	/**
+	 * Check the offsets and lengths of the header and of the term table, so a
+	 * truncated or corrupt file is rejected when it is opened instead of
+	 * failing a later lookup. The doc ids inside the postings are not read.
+	 */
+	private static void checkBounds(ByteBuffer buffer, Path file) throws IOException {
+		int docCount = buffer.getInt(8);
+		int termCount = buffer.getInt(12);
+		long docTable = buffer.getLong(16);
+		long termTable = buffer.getLong(24);
+		long postings = buffer.getLong(32);
+		if (docCount < 0 || termCount < 0 || docTable != HEADER_SIZE
+				|| stringsEnd(buffer, docTable, docCount, file) != termTable) {
+			throw new IOException("Corrupt index file: " + file);
+		}
+		long entries = stringsEnd(buffer, termTable, termCount, file);
+		if (entries + (long) TERM_ENTRY_SIZE * termCount != postings || postings > buffer.capacity()) {
+			throw new IOException("Corrupt index file: " + file);
+		}
+		for (int t = 0; t < termCount; t++) {
+			int entry = (int) entries + TERM_ENTRY_SIZE * t;
+			long docFreq = buffer.getInt(entry);
+			long offset = buffer.getLong(entry + 4);
+			if (docFreq < 0 || offset < postings || offset + 16 * docFreq > buffer.capacity()) {
+				throw new IOException("Corrupt index file: " + file);
+			}
+		}
+	}
+
+	/**
+	 * @return the end of a table of strings: count + 1 increasing offsets from 0, then the bytes
+	 */
+	private static long stringsEnd(ByteBuffer buffer, long table, int count, Path file) throws IOException {
+		long bytes = table + 4L * (count + 1);
+		if (table < 0 || bytes > buffer.capacity() || buffer.getInt((int) table) != 0) {
+			throw new IOException("Corrupt index file: " + file);
+		}
+		int previous = 0;
+		for (int i = 1; i <= count; i++) {
+			int offset = buffer.getInt((int) table + 4 * i);
+			if (offset < previous) {
+				throw new IOException("Corrupt index file: " + file);
+			}
+			previous = offset;
+		}
+		if (bytes + previous > buffer.capacity()) {
+			throw new IOException("Corrupt index file: " + file);
+		}
+		return bytes + previous;
+	}
+
+	/**
+	 * Write an inverted index.
+	 * 
+	 * @param invertedIndex as returned by buildInvertedIndex, IncrementalIndex.invertedIndex or open
+	 * @param file the file to create or replace
+	 * @throws IOException if the file cannot be written, the previous file is left unchanged
+	 */
+	public static void write(InvertedIndex invertedIndex, Path file) throws IOException {
+		// doc table: every document of every term, ids by lexicographic order
+		Map<String, Integer> docIds = new HashMap<String, Integer>();
+		Map<String, Postings> postingsOf = new HashMap<String, Postings>(); // read once, the terms of a live index may change
+		for (String term : invertedIndex.terms()) {
+			Postings postings = invertedIndex.postings(term);
+			if (postings == null) {
+				continue;
+			}
+			postingsOf.put(term, postings);
+			for (int docId : postings.rankedDocIds()) {
+				docIds.putIfAbsent(postings.docName(docId), 0);
+			}
+		}
+		String[] docs = docIds.keySet().toArray(new String[0]);
+		Arrays.sort(docs);
+		byte[][] docBytes = new byte[docs.length][];
+		for (int d = 0; d < docs.length; d++) {
+			docIds.put(docs[d], d);
+			docBytes[d] = docs[d].getBytes(StandardCharsets.UTF_8);
+		}
+
+		// term table: sorted by bytes so lookups compare the mapped bytes directly
+		byte[][] terms = new byte[postingsOf.size()][];
+		Map<byte[], Postings> postingsByBytes = new IdentityHashMap<byte[], Postings>(); // arrays are their own keys
+		int t = 0;
+		for (Entry<String, Postings> term : postingsOf.entrySet()) {
+			terms[t] = term.getKey().getBytes(StandardCharsets.UTF_8);
+			postingsByBytes.put(terms[t++], term.getValue());
+		}
+		Arrays.sort(terms, Comparator.comparing((byte[] b) -> b, IndexFile::compare));
+
+		long docTable = HEADER_SIZE;
+		long termTable = docTable + 4L * (docs.length + 1) + totalLength(docBytes);
+		long postingsStart = termTable + 4L * (terms.length + 1) + totalLength(terms) + (long) TERM_ENTRY_SIZE * terms.length;
+
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(docs.length);
+			out.writeInt(terms.length);
+			out.writeLong(docTable);
+			out.writeLong(termTable);
+			out.writeLong(postingsStart);
+
+			writeStrings(out, docBytes);
+			writeStrings(out, terms);
+			long offset = postingsStart;
+			for (byte[] term : terms) {
+				Postings postings = postingsByBytes.get(term);
+				out.writeInt(postings.size());
+				out.writeLong(offset);
+				out.writeDouble(postings.maxScore());
+				offset += 16L * postings.size();
+			}
+			for (byte[] term : terms) {
+				writePostings(out, postingsByBytes.get(term), docIds);
+			}
+			out.flush();
+			channel.force(true); // on disk before it replaces the previous file
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		try {
+			Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Write an inverted index as the next generation of a file: file.1,
+	 * file.2 and so on, so a file a reader may still map is never replaced.
+	 * The previous generations are deleted, except on Windows those still
+	 * mapped, which a later call deletes once they are no longer read.
+	 * 
+	 * @param invertedIndex as for write
+	 * @param file the file the generations are named after
+	 * @return the file written
+	 * @throws IOException if the file cannot be written, the previous generations are left unchanged
+	 */
+	public static Path writeGeneration(InvertedIndex invertedIndex, Path file) throws IOException {
+		List<Path> previous = generations(file);
+		long next = previous.isEmpty() ? 1 : generation(file, previous.get(previous.size() - 1)) + 1;
+		Path written = file.resolveSibling(file.getFileName() + "." + next);
+		write(invertedIndex, written);
+		for (Path old : previous) {
+			try {
+				Files.deleteIfExists(old);
+			} catch (IOException e) {
+				// still mapped, deleted by the next call
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * @param file the file the generations are named after
+	 * @return the last generation written by writeGeneration, else the file
+	 *         itself as written by write, null if there is neither
+	 * @throws IOException if the directory cannot be read
+	 */
+	public static Path latestGeneration(Path file) throws IOException {
+		List<Path> generations = generations(file);
+		return generations.isEmpty() ? null : generations.get(generations.size() - 1);
+	}
+
+	/**
+	 * @return the generations of file, file itself first as generation 0, by increasing generation
+	 */
+	private static List<Path> generations(Path file) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		List<Path> generations = new ArrayList<Path>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path candidate : files) {
+				if (generation(file, candidate) >= 0) {
+					generations.add(candidate);
+				}
+			}
+		}
+		generations.sort(Comparator.comparingLong((Path generation) -> generation(file, generation)));
+		return generations;
+	}
+
+	/**
+	 * @return the generation of candidate, 0 for file itself, -1 if it is not a generation of file
+	 */
+	private static long generation(Path file, Path candidate) {
+		String name = file.getFileName().toString();
+		String other = candidate.getFileName().toString();
+		if (other.equals(name)) {
+			return 0;
+		}
+		if (!other.startsWith(name + ".") || other.length() == name.length() + 1
+				|| other.length() > name.length() + 19) {
+			return -1;
+		}
+		for (int i = name.length() + 1; i < other.length(); i++) {
+			if (other.charAt(i) < '0' || other.charAt(i) > '9') {
+				return -1;
+			}
+		}
+		return Long.parseLong(other.substring(name.length() + 1));
+	}
+
+	/**
+	 * Write the postings of a term with the doc ids of the file
+	 */
+	private static void writePostings(DataOutputStream out, Postings postings, Map<String, Integer> docIds)
+			throws IOException {
+		int n = postings.size();
+		int[] ids = new int[n];
+		double[] scores = new double[n];
+		Cursor cursor = postings.cursor();
+		for (int i = 0; cursor.nextDoc() != Cursor.NO_MORE_DOCS; i++) {
+			ids[i] = docIds.get(postings.docName(cursor.docId()));
+			scores[i] = cursor.score();
+		}
+		// positions by doc id, then by rank
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = (long) ids[i] << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] byDoc = new int[n];
+		double[] byDocScore = new double[n];
+		for (int i = 0; i < n; i++) {
+			int from = (int) keys[i];
+			byDoc[i] = ids[from];
+			byDocScore[i] = scores[from];
+			out.writeInt(byDoc[i]);
+		}
+		for (int i = 0; i < n; i++) {
+			out.writeDouble(byDocScore[i]);
+		}
+		int[] ranked = PostingsList.sort(null, byDoc.clone(), byDocScore.clone()).rankedDocIds();
+		for (int docId : ranked) {
+			out.writeInt(Arrays.binarySearch(byDoc, docId));
+		}
+	}
+
+	private static void writeStrings(DataOutputStream out, byte[][] strings) throws IOException {
+		int offset = 0;
+		out.writeInt(offset);
+		for (byte[] string : strings) {
+			offset += string.length;
+			out.writeInt(offset);
+		}
+		for (byte[] string : strings) {
+			out.write(string);
+		}
+	}
+
+	private static long totalLength(byte[][] strings) {
+		long length = 0;
+		for (byte[] string : strings) {
+			length += string.length;
+		}
+		return length;
+	}
+
+	/**
+	 * Unsigned lexicographic order of bytes, the order of the code points for UTF-8
+	 */
+	static int compare(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; i++) {
+			int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return a.length - b.length;
+	}
+}
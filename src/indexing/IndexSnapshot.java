@@ -0,0 +1,186 @@
+package indexing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the index searches are served from, replaced as a whole when a new
+ * one is built.
+ * 
+ * Each published index is a Snapshot with a version number. The indexes of a
+ * snapshot must not change once published: an IndexFile opened after a
+ * rebuild, or a buildInvertedIndex result, not the live view of an
+ * IncrementalIndex that is still being updated. A reader pins the current
+ * snapshot, searches it and closes it. Pinning takes no lock, it only counts
+ * the reader on the snapshot, so searches are not slowed down by a rebuild
+ * and never wait for one: they keep the snapshot they pinned, the next ones
+ * get the new one as soon as it is published. A snapshot is released, and
+ * its onRelease run, once it has been replaced and its last reader closed it.
+ * This class is thread safe.
+ */
+public class IndexSnapshot {
+
+	private final AtomicReference<Snapshot> current = new AtomicReference<Snapshot>();
+	private final AtomicLong versions = new AtomicLong();
+
+	/**
+	 * @return the current snapshot, pinned until it is closed, null if none was published
+	 */
+	public Snapshot pin() {
+		while (true) {
+			Snapshot snapshot = current.get();
+			if (snapshot == null || snapshot.tryPin()) {
+				return snapshot;
+			}
+			// released after it was read: it was replaced, read the new one
+		}
+	}
+
+	/**
+	 * Publish indexes, the snapshot they replace is released once its readers close it.
+	 * 
+	 * @param invertedIndex an inverted index that no longer changes
+	 * @param positions the positions of the same documents, null if none
+	 * @return the version of the new snapshot
+	 */
+	public long publish(InvertedIndex invertedIndex, PositionalIndex positions) {
+		return publish(invertedIndex, positions, null);
+	}
+
+	/**
+	 * Publish indexes, the snapshot they replace is released once its readers close it.
+	 * 
+	 * @param invertedIndex an inverted index that no longer changes
+	 * @param positions the positions of the same documents, null if none
+	 * @param onRelease run once when the new snapshot is released, null if nothing to do
+	 * @return the version of the new snapshot
+	 */
+	public long publish(InvertedIndex invertedIndex, PositionalIndex positions, Runnable onRelease) {
+		return publish(invertedIndex, positions, null, onRelease);
+	}
+
+	/**
+	 * Publish indexes, the snapshot they replace is released once its readers close it.
+	 * 
+	 * @param invertedIndex an inverted index that no longer changes
+	 * @param positions the positions of the same documents, null if none
+	 * @param homePage the ranking of the terms of the same documents that no longer changes, null to rank them when first read
+	 * @param onRelease run once when the new snapshot is released, null if nothing to do
+	 * @return the version of the new snapshot
+	 */
+	public long publish(InvertedIndex invertedIndex, PositionalIndex positions, HomePage homePage, Runnable onRelease) {
+		if (invertedIndex == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		Snapshot snapshot = new Snapshot(versions.incrementAndGet(), invertedIndex, positions, homePage, onRelease);
+		Snapshot old = current.getAndSet(snapshot);
+		if (old != null) {
+			old.close(); // the reference of the holder
+		}
+		return snapshot.version;
+	}
+
+	/**
+	 * @return the version of the current snapshot, 0 if none was published
+	 */
+	public long version() {
+		Snapshot snapshot = current.get();
+		return snapshot == null ? 0 : snapshot.version;
+	}
+
+	/**
+	 * Immutable indexes of one version. close() unpins it.
+	 */
+	public static class Snapshot implements AutoCloseable {
+		private final long version;
+		private final InvertedIndex invertedIndex;
+		private final PositionalIndex positions;
+		private volatile HomePage homePage;
+		private final Runnable onRelease;
+		private final AtomicInteger refs = new AtomicInteger(1); // the holder's until it is replaced, plus one per reader
+
+		Snapshot(long version, InvertedIndex invertedIndex, PositionalIndex positions, HomePage homePage,
+				Runnable onRelease) {
+			this.version = version;
+			this.invertedIndex = invertedIndex;
+			this.positions = positions;
+			this.homePage = homePage;
+			this.onRelease = onRelease;
+		}
+
+		/**
+		 * @return the version, increasing with each publish
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * @return the inverted index
+		 */
+		public InvertedIndex getInvertedIndex() {
+			return invertedIndex;
+		}
+
+		/**
+		 * @return the positions of the words, null if none
+		 */
+		public PositionalIndex getPositions() {
+			return positions;
+		}
+
+		/**
+		 * @return the ranking of the terms, made from the inverted index the first time if none was published
+		 */
+		public HomePage getHomePage() {
+			HomePage ranking = homePage;
+			if (ranking == null) {
+				synchronized (this) {
+					ranking = homePage;
+					if (ranking == null) {
+						ranking = HomePage.of(invertedIndex);
+						homePage = ranking;
+					}
+				}
+			}
+			return ranking;
+		}
+
+		/**
+		 * @return true once replaced and closed by all its readers
+		 */
+		public boolean isReleased() {
+			return refs.get() == 0;
+		}
+
+		/**
+		 * @return false if already released, it must not be used then
+		 */
+		private boolean tryPin() {
+			while (true) {
+				int n = refs.get();
+				if (n == 0) {
+					return false;
+				}
+				if (refs.compareAndSet(n, n + 1)) {
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Unpin the snapshot, to call once per pin
+		 */
+		@Override
+		public void close() {
+			int n = refs.decrementAndGet();
+			if (n < 0) {
+				throw new IllegalStateException("Snapshot closed more often than pinned");
+			}
+			if (n == 0 && onRelease != null) {
+				onRelease.run();
+			}
+		}
+	}
+}
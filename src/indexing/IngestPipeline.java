@@ -0,0 +1,420 @@
+package indexing;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import feed.FeedSource;
+import feed.Page;
+import feed.RssReader;
+
+/**
+ * Builds the forward index from rss feeds in stages running concurrently:
+ * 
+ * feed     read the feeds and emit the links of their items
+ * fetch    download each article
+ * extract  parse the html and keep the text of the body
+ * tokenize split the text into words, drop noise (TokenFilter), intern them as TermDictionary ids
+ * index    count the words of each document (IndexAccumulator)
+ * 
+ * Stages are connected by bounded queues: a stage that gets ahead blocks
+ * until the next one catches up. Only queueCapacity items per stage are in
+ * flight at once, so memory holds the term counts of the index plus a bounded
+ * number of pages, instead of the word lists of the whole corpus, and
+ * downloads overlap with parsing and counting.
+ * 
+ * run(feeds) returns the same forward index as buildIndex(parseFeed(feeds))
+ * with the same TokenFilter, run(feeds, target) brings an IncrementalIndex up
+ * to date instead.
+ * With a PositionalIndex, the positions of the words of every article are
+ * kept too, for phrase queries; it drops the articles the feeds no longer
+ * list, as run(feeds, target) does.
+ * Items that fail in a stage are reported and dropped. An Error stops the
+ * run instead: the stages drop what is left in their queues, and run throws
+ * the Error without changing the target index or the positions.
+ */
+public class IngestPipeline {
+
+	private static final Object END = new Object(); // sent once per worker when the upstream stage is done
+
+	private final FeedSource feedSource;
+	private final TermDictionary dictionary;
+	private final int queueCapacity;
+	private int fetchThreads = 16;
+	private int extractThreads = Runtime.getRuntime().availableProcessors();
+	private int tokenizeThreads = Runtime.getRuntime().availableProcessors();
+	private int indexThreads = 1;
+	private PositionalIndex positions;
+	private TokenFilter tokenFilter = new TokenFilter();
+	private volatile List<StageStats> stats = Collections.emptyList();
+
+	/**
+	 * @param feedSource where feeds and articles come from
+	 * @param queueCapacity the capacity of the queue in front of each stage
+	 */
+	public IngestPipeline(FeedSource feedSource, int queueCapacity) {
+		this(feedSource, new TermDictionary(), queueCapacity);
+	}
+
+	/**
+	 * @param feedSource where feeds and articles come from
+	 * @param dictionary the dictionary words are interned into
+	 * @param queueCapacity the capacity of the queue in front of each stage
+	 */
+	public IngestPipeline(FeedSource feedSource, TermDictionary dictionary, int queueCapacity) {
+		if (feedSource == null || dictionary == null || queueCapacity < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.feedSource = feedSource;
+		this.dictionary = dictionary;
+		this.queueCapacity = queueCapacity;
+	}
+
+	/**
+	 * @return the dictionary words are interned into by run(feeds)
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @param fetchThreads the number of concurrent downloads
+	 */
+	public void setFetchThreads(int fetchThreads) {
+		this.fetchThreads = checkThreads(fetchThreads);
+	}
+
+	/**
+	 * @param extractThreads the number of threads parsing html
+	 */
+	public void setExtractThreads(int extractThreads) {
+		this.extractThreads = checkThreads(extractThreads);
+	}
+
+	/**
+	 * @param tokenizeThreads the number of threads splitting text into words
+	 */
+	public void setTokenizeThreads(int tokenizeThreads) {
+		this.tokenizeThreads = checkThreads(tokenizeThreads);
+	}
+
+	/**
+	 * @param indexThreads the number of threads counting words
+	 */
+	public void setIndexThreads(int indexThreads) {
+		this.indexThreads = checkThreads(indexThreads);
+	}
+
+	/**
+	 * @param positions where to keep the positions of the words, null (the
+	 *        default) to only count them; it must use the dictionary the
+	 *        words are interned into: the one of this pipeline, or of the
+	 *        IncrementalIndex given to run
+	 */
+	public synchronized void setPositionalIndex(PositionalIndex positions) {
+		this.positions = positions;
+	}
+
+	/**
+	 * @param tokenFilter the filter applied to the words by the tokenize stage, one keeping every word by default
+	 */
+	public synchronized void setTokenFilter(TokenFilter tokenFilter) {
+		if (tokenFilter == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.tokenFilter = tokenFilter;
+	}
+
+	/**
+	 * @return the counters of each stage of the current (or last) run, in pipeline order
+	 */
+	public List<StageStats> getStats() {
+		return stats;
+	}
+
+	/**
+	 * Ingest the feeds.
+	 * 
+	 * @param feeds the rss feeds
+	 * @return the forward index of all their articles, see IIndexBuilder.buildIndex
+	 * @throws InterruptedException if the calling thread is interrupted, the stages are stopped
+	 * @throws Error the first Error of a stage, once every stage stopped
+	 */
+	public synchronized Map<String, Map<String, Double>> run(List<String> feeds) throws InterruptedException {
+		IndexAccumulator accumulator = new IndexAccumulator(dictionary);
+		ingest(feeds, dictionary, new FeedListing(feeds), accumulator::add);
+		return accumulator.toIndex();
+	}
+
+	/**
+	 * Ingest the feeds into an incremental index. Articles are added or
+	 * updated as they are counted, and articles no longer listed by the feeds
+	 * are removed at the end (IncrementalIndex.retainListed), so only what
+	 * changed since the last run is re-indexed. An article that fails to
+	 * download, or whose feed fails, keeps its previous words. Words are
+	 * interned into the dictionary of the index, so an index replaced by its
+	 * compact() copy is brought up to date the same way.
+	 * 
+	 * @param feeds the rss feeds
+	 * @param target the index to bring up to date
+	 * @return the number of articles added, updated or removed
+	 * @throws InterruptedException if the calling thread is interrupted, the stages are stopped and nothing is removed
+	 * @throws Error the first Error of a stage, once every stage stopped; nothing is removed
+	 */
+	public synchronized int run(List<String> feeds, IncrementalIndex target) throws InterruptedException {
+		if (target == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		FeedListing listing = new FeedListing(feeds);
+		AtomicInteger changes = new AtomicInteger();
+		ingest(feeds, target.getDictionary(), listing, (url, words) -> {
+			if (target.addDocument(url, words)) {
+				changes.incrementAndGet();
+			}
+		});
+		return changes.get() + target.retainListed(listing);
+	}
+
+	/**
+	 * Run the stages, handing the term ids of each article to the sink
+	 * 
+	 * @param dictionary the dictionary the words are interned into
+	 * @param listing filled with the links of each feed
+	 */
+	private void ingest(List<String> feeds, TermDictionary dictionary, FeedListing listing, BiConsumer<String, int[]> sink)
+			throws InterruptedException {
+		if (positions != null && positions.getDictionary() != dictionary) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		Set<String> scheduled = ConcurrentHashMap.newKeySet(); // a link listed by two feeds is fetched once
+
+		Stage<Words, Void> index = new Stage<Words, Void>("index", indexThreads, null, (doc, out) -> {
+			sink.accept(doc.url, doc.words);
+			if (positions != null) {
+				positions.addDocument(doc.url, doc.words);
+			}
+		});
+		Stage<Text, Words> tokenize = new Stage<Text, Words>("tokenize", tokenizeThreads, index, (text, out) -> {
+			out.emit(new Words(text.url, tokenFilter.tokenize(text.body, dictionary)));
+		});
+		Stage<Download, Text> extract = new Stage<Download, Text>("extract", extractThreads, tokenize, (page, out) -> {
+			out.emit(new Text(page.url, IndexBuilder.bodyText(new ByteArrayInputStream(page.body), page.charset, page.url)));
+		});
+		Stage<String, Download> fetch = new Stage<String, Download>("fetch", fetchThreads, extract, (url, out) -> {
+			try (Page page = feedSource.fetch(url)) {
+				out.emit(new Download(url, page.getBody().readAllBytes(), page.getCharset()));
+			}
+		});
+		Stage<String, String> feed = new Stage<String, String>("feed", Math.max(1, Math.min(feeds.size(), fetchThreads)), fetch, (url, out) -> {
+			try (Page page = feedSource.fetch(url)) {
+				RssReader.read(page.getBody(), page.getCharset(), item -> {
+					listing.listed(url, item.getLink());
+					if (scheduled.add(item.getLink())) {
+						try {
+							out.emit(item.getLink());
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new IOException("Interrupted", e);
+						}
+					}
+				});
+			}
+			listing.complete(url);
+		});
+		// the feed list is the input of the first stage, it is not bounded
+		feed.input = new LinkedBlockingQueue<Object>(feeds);
+
+		List<Stage<?, ?>> stages = List.of(feed, fetch, extract, tokenize, index);
+		List<StageStats> runStats = new ArrayList<StageStats>();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (Stage<?, ?> stage : stages) {
+			runStats.add(stage.stats = new StageStats(stage.name, stage.threads, stage.input));
+			stage.failure = failure;
+		}
+		stats = Collections.unmodifiableList(runStats);
+
+		for (Stage<?, ?> stage : stages) {
+			stage.start();
+		}
+		feed.end();
+		try {
+			for (Stage<?, ?> stage : stages) {
+				stage.join();
+			}
+		} catch (InterruptedException e) {
+			for (Stage<?, ?> stage : stages) {
+				stage.interrupt();
+			}
+			throw e;
+		}
+		Throwable failed = failure.get();
+		if (failed instanceof Error) {
+			throw (Error) failed;
+		} else if (failed != null) {
+			throw (RuntimeException) failed;
+		}
+		if (positions != null) {
+			positions.retainListed(listing);
+		}
+		try {
+			feedSource.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static int checkThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		return threads;
+	}
+
+	private static class Download {
+		final String url;
+		final byte[] body;
+		final String charset;
+
+		Download(String url, byte[] body, String charset) {
+			this.url = url;
+			this.body = body;
+			this.charset = charset;
+		}
+	}
+
+	private static class Text {
+		final String url;
+		final String body;
+
+		Text(String url, String body) {
+			this.url = url;
+			this.body = body;
+		}
+	}
+
+	private static class Words {
+		final String url;
+		final int[] words; // term ids
+
+		Words(String url, int[] words) {
+			this.url = url;
+			this.words = words;
+		}
+	}
+
+	private interface Emitter<O> {
+		void emit(O item) throws InterruptedException;
+	}
+
+	private interface Step<I, O> {
+		void process(I item, Emitter<O> out) throws Exception;
+	}
+
+	/**
+	 * Worker threads taking items from the input queue, processing them and
+	 * putting the results in the input queue of the next stage.
+	 */
+	private class Stage<I, O> {
+		final String name;
+		final int threads;
+		final Stage<O, ?> next;
+		final Step<I, O> step;
+		BlockingQueue<Object> input;
+		StageStats stats;
+		AtomicReference<Throwable> failure; // the first Error of any stage of the run
+		private final List<Thread> workers = new ArrayList<Thread>();
+		private final AtomicInteger running = new AtomicInteger();
+
+		Stage(String name, int threads, Stage<O, ?> next, Step<I, O> step) {
+			this.name = name;
+			this.threads = threads;
+			this.next = next;
+			this.step = step;
+			this.input = new ArrayBlockingQueue<Object>(queueCapacity);
+		}
+
+		void start() {
+			stats.started();
+			running.set(threads);
+			Emitter<O> out = item -> next.input.put(item);
+			for (int i = 0; i < threads; i++) {
+				Thread worker = new Thread(() -> work(out), "ingest-" + name + "-" + i);
+				worker.setDaemon(true);
+				workers.add(worker);
+				worker.start();
+			}
+		}
+
+		/**
+		 * Tell the workers there is no more input, once they are done with the queue
+		 */
+		void end() throws InterruptedException {
+			for (int i = 0; i < threads; i++) {
+				input.put(END);
+			}
+		}
+
+		void join() throws InterruptedException {
+			for (Thread worker : workers) {
+				worker.join();
+			}
+		}
+
+		void interrupt() {
+			for (Thread worker : workers) {
+				worker.interrupt();
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private void work(Emitter<O> out) {
+			try {
+				Object item;
+				while ((item = input.take()) != END) {
+					if (failure.get() != null) {
+						continue; // the run fails, keep draining so the stage in front does not block
+					}
+					long start = System.nanoTime();
+					try {
+						step.process((I) item, out);
+						stats.processed(System.nanoTime() - start);
+					} catch (InterruptedException e) {
+						throw e;
+					} catch (Exception e) {
+						stats.failed(System.nanoTime() - start);
+						e.printStackTrace();
+					} catch (Error e) {
+						stats.failed(System.nanoTime() - start);
+						failure.compareAndSet(null, e);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // the run is being cancelled
+			} catch (RuntimeException | Error e) {
+				failure.compareAndSet(null, e);
+			} finally {
+				if (running.decrementAndGet() == 0) { // last worker out closes the next stage, even after a failure
+					stats.finished();
+					if (next != null) {
+						try {
+							next.end();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package indexing;
+
+import java.util.Set;
+
+/**
+ * An inverted index: the Postings of each term, the documents containing it
+ * with the TF-IDF of the term in each of them.
+ * 
+ * Backends, all read through this interface:
+ * 
+ * buildInvertedIndex         postings in memory, in the PostingsFormat of the
+ *                            builder (ARRAY or COMPRESSED), chosen at runtime
+ * IncrementalIndex           a live view, postings computed when read
+ * IndexFile.open             a memory mapped file, nothing loaded until read
+ * 
+ * The postings of an index share one table of documents, so their doc ids can
+ * be compared, and two indexes are equal (AbstractInvertedIndex) when they
+ * have the same terms with equal postings.
+ */
+public interface InvertedIndex {
+
+	/**
+	 * @param term a term
+	 * @return the postings of the term, null if no document contains it
+	 */
+	Postings postings(String term);
+
+	/**
+	 * @param term a term
+	 * @return the number of documents containing the term, 0 if none
+	 */
+	default int docFreq(String term) {
+		Postings postings = postings(term);
+		return postings == null ? 0 : postings.size();
+	}
+
+	/**
+	 * @return the terms, read only, in an order that depends on the backend
+	 */
+	Set<String> terms();
+
+	/**
+	 * @return the number of terms
+	 */
+	int size();
+}
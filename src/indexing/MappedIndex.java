@@ -0,0 +1,265 @@
+package indexing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read only inverted index served from a memory mapped IndexFile.
+ * 
+ * Nothing is loaded when the file is opened: a term is found by a binary
+ * search of the mapped term table, and its postings are read from the mapped
+ * file by the cursor. The heap only holds the objects of the current queries,
+ * whatever the size of the index, and pages of the file are loaded by the
+ * operating system as they are read. Safe for concurrent readers.
+ */
+public class MappedIndex extends AbstractInvertedIndex {
+
+	private final ByteBuffer buffer; // only read with absolute gets, shared by all threads
+	private final int docCount;
+	private final int termCount;
+	private final int docOffsets;
+	private final int docBytes;
+	private final int termOffsets;
+	private final int termBytes;
+	private final int termEntries;
+
+	MappedIndex(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.docCount = buffer.getInt(8);
+		this.termCount = buffer.getInt(12);
+		this.docOffsets = (int) buffer.getLong(16);
+		this.docBytes = docOffsets + 4 * (docCount + 1);
+		this.termOffsets = (int) buffer.getLong(24);
+		this.termBytes = termOffsets + 4 * (termCount + 1);
+		this.termEntries = termBytes + buffer.getInt(termOffsets + 4 * termCount);
+	}
+
+	/**
+	 * @return the number of documents
+	 */
+	public int docCount() {
+		return docCount;
+	}
+
+	/**
+	 * @param docId a document id
+	 * @return the document (url)
+	 */
+	public String docName(int docId) {
+		return string(docBytes, docOffsets, docId);
+	}
+
+	@Override
+	public int size() {
+		return termCount;
+	}
+
+	@Override
+	public Postings postings(String term) {
+		int t = find(term);
+		return t < 0 ? null : postings(t);
+	}
+
+	@Override
+	public int docFreq(String term) {
+		int t = find(term);
+		return t < 0 ? 0 : buffer.getInt(termEntries + IndexFile.TERM_ENTRY_SIZE * t);
+	}
+
+	/**
+	 * @return the terms, in the order of their UTF-8 bytes
+	 */
+	@Override
+	public Set<String> terms() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					int next;
+
+					@Override
+					public boolean hasNext() {
+						return next < termCount;
+					}
+
+					@Override
+					public String next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return string(termBytes, termOffsets, next++);
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object term) {
+				return term instanceof String && find((String) term) >= 0;
+			}
+
+			@Override
+			public int size() {
+				return termCount;
+			}
+		};
+	}
+
+	/**
+	 * @return the index of the term in the term table, -1 if it is not in the index
+	 */
+	private int find(String term) {
+		byte[] key = term.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = termCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int c = compare(middle, key);
+			if (c < 0) {
+				low = middle + 1;
+			} else if (c > 0) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Compare the t-th term of the table with key, as IndexFile.compare
+	 */
+	private int compare(int t, byte[] key) {
+		int from = termBytes + buffer.getInt(termOffsets + 4 * t);
+		int length = termBytes + buffer.getInt(termOffsets + 4 * t + 4) - from;
+		int n = Math.min(length, key.length);
+		for (int i = 0; i < n; i++) {
+			int c = (buffer.get(from + i) & 0xFF) - (key[i] & 0xFF);
+			if (c != 0) {
+				return c;
+			}
+		}
+		return length - key.length;
+	}
+
+	private String string(int bytes, int offsets, int i) {
+		int from = buffer.getInt(offsets + 4 * i);
+		byte[] string = new byte[buffer.getInt(offsets + 4 * i + 4) - from];
+		ByteBuffer view = buffer.duplicate(); // the position of the shared buffer never moves
+		view.position(bytes + from);
+		view.get(string);
+		return new String(string, StandardCharsets.UTF_8);
+	}
+
+	private Postings postings(int t) {
+		int entry = termEntries + IndexFile.TERM_ENTRY_SIZE * t;
+		return new MappedPostings(buffer.getInt(entry), (int) buffer.getLong(entry + 4), buffer.getDouble(entry + 12));
+	}
+
+	/**
+	 * The postings of a term, read from the mapped file
+	 */
+	private class MappedPostings implements Postings {
+		private final int size;
+		private final int docIds; // offset of the doc ids
+		private final int scores;
+		private final int ranks;
+		private final double maxScore;
+
+		MappedPostings(int size, int offset, double maxScore) {
+			this.size = size;
+			this.docIds = offset;
+			this.scores = offset + 4 * size;
+			this.ranks = scores + 8 * size;
+			this.maxScore = maxScore;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public double maxScore() {
+			return maxScore;
+		}
+
+		@Override
+		public String docName(int docId) {
+			return MappedIndex.this.docName(docId);
+		}
+
+		@Override
+		public int[] rankedDocIds() {
+			return topDocIds(size);
+		}
+
+		/**
+		 * Reads the first k entries of the ranking stored in the file.
+		 */
+		@Override
+		public int[] topDocIds(int k) {
+			if (k < 0) {
+				throw new IllegalArgumentException("Illegal arguments");
+			}
+			int[] ranked = new int[Math.min(k, size)];
+			for (int r = 0; r < ranked.length; r++) {
+				ranked[r] = buffer.getInt(docIds + 4 * buffer.getInt(ranks + 4 * r));
+			}
+			return ranked;
+		}
+
+		@Override
+		public Cursor cursor() {
+			return new Cursor() {
+				private int position = -1;
+				private int doc = -1;
+
+				@Override
+				public int docId() {
+					return doc;
+				}
+
+				@Override
+				public int nextDoc() {
+					return doc = ++position < size ? buffer.getInt(docIds + 4 * position) : NO_MORE_DOCS;
+				}
+
+				@Override
+				public int advance(int target) {
+					if (doc >= target) {
+						return doc;
+					}
+					// gallop from the current position, then binary search the last step
+					int low = position + 1;
+					int step = 1;
+					int high = low;
+					while (high < size && buffer.getInt(docIds + 4 * high) < target) {
+						low = high + 1;
+						high += step;
+						step <<= 1;
+					}
+					high = Math.min(high, size);
+					while (low < high) {
+						int middle = (low + high) >>> 1;
+						if (buffer.getInt(docIds + 4 * middle) < target) {
+							low = middle + 1;
+						} else {
+							high = middle;
+						}
+					}
+					position = low;
+					return doc = position < size ? buffer.getInt(docIds + 4 * position) : NO_MORE_DOCS;
+				}
+
+				@Override
+				public double score() {
+					return buffer.getDouble(scores + 8 * position);
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package indexing;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The inverted index built by buildInvertedIndex: postings in memory, in a
+ * hash map by term.
+ */
+final class MemoryIndex extends AbstractInvertedIndex {
+
+	private final Map<String, Postings> postings;
+
+	/**
+	 * @param postings term -> postings, not copied
+	 */
+	MemoryIndex(Map<String, Postings> postings) {
+		this.postings = postings;
+	}
+
+	@Override
+	public Postings postings(String term) {
+		return postings.get(term);
+	}
+
+	@Override
+	public Set<String> terms() {
+		return Collections.unmodifiableSet(postings.keySet());
+	}
+
+	@Override
+	public int size() {
+		return postings.size();
+	}
+}
@@ -0,0 +1,153 @@
+package indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import indexing.ForwardIndex.DocVector;
+import indexing.IndexAccumulator.DocTerms;
+
+/**
+ * buildIndex on a fork-join pool.
+ * 
+ * The documents are split in ranges counted in parallel, each range computes
+ * the term counts of its documents and its own document frequencies, merged
+ * when the ranges are joined. IDF is then computed once per term, and the
+ * TF-IDF vectors of the documents are built in parallel. Every value is computed
+ * by the same expression as the serial path, so the result is identical.
+ */
+class ParallelIndexer {
+
+	private final String[] names;
+	private final List<List<String>> words;
+	private final DocTerms[] terms;
+	private final TermDictionary dictionary;
+	private final int leafSize;
+
+	private ParallelIndexer(Map<String, List<String>> docs, TermDictionary dictionary, int parallelism) {
+		this.names = docs.keySet().toArray(new String[0]);
+		this.words = new ArrayList<List<String>>(names.length);
+		for (String name : names) {
+			words.add(docs.get(name));
+		}
+		this.terms = new DocTerms[names.length];
+		this.dictionary = dictionary;
+		this.leafSize = Math.max(1, names.length / (parallelism * 8)); // a few ranges per thread to balance uneven documents
+	}
+
+	/**
+	 * @param docs a map computed by parseFeed
+	 * @param dictionary the dictionary words are interned into
+	 * @param parallelism the number of threads
+	 * @return the forward index, see IIndexBuilder.buildIndex
+	 */
+	static ForwardIndex buildIndex(Map<String, List<String>> docs, TermDictionary dictionary,
+			int parallelism) {
+		ParallelIndexer indexer = new ParallelIndexer(docs, dictionary, parallelism);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			int[] docFreq = pool.invoke(indexer.new Count(0, indexer.names.length));
+			double[] idf = IndexAccumulator.idf(docFreq, indexer.names.length);
+			int[] ranks = ForwardIndex.ranks(dictionary);
+			DocVector[] vectors = new DocVector[indexer.names.length];
+			pool.invoke(indexer.new Weigh(0, indexer.names.length, idf, ranks, vectors));
+
+			Map<String, DocVector> indexMap = new HashMap<String, DocVector>();
+			for (int i = 0; i < vectors.length; i++) {
+				indexMap.put(indexer.names[i], vectors[i]);
+			}
+			return new ForwardIndex(dictionary, indexMap);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Count the terms of a range of documents
+	 * 
+	 * @return the document frequencies of the range, indexed by term id
+	 */
+	private class Count extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+
+		Count(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from > leafSize) {
+				int middle = (from + to) >>> 1;
+				Count left = new Count(from, middle);
+				left.fork();
+				int[] right = new Count(middle, to).compute();
+				return merge(left.join(), right);
+			}
+			int[] docFreq = new int[0];
+			for (int i = from; i < to; i++) {
+				DocTerms doc = DocTerms.count(words.get(i), dictionary);
+				terms[i] = doc;
+				if (doc.ids.length > 0 && doc.ids[doc.ids.length - 1] >= docFreq.length) {
+					docFreq = Arrays.copyOf(docFreq, Math.max(doc.ids[doc.ids.length - 1] + 1, docFreq.length * 2));
+				}
+				for (int term : doc.ids) {
+					docFreq[term]++;
+				}
+			}
+			return docFreq;
+		}
+
+		private int[] merge(int[] a, int[] b) {
+			if (a.length < b.length) {
+				int[] t = a;
+				a = b;
+				b = t;
+			}
+			for (int term = 0; term < b.length; term++) {
+				a[term] += b[term];
+			}
+			return a;
+		}
+	}
+
+	/**
+	 * Compute the TF-IDF vectors of a range of documents
+	 */
+	private class Weigh extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from;
+		private final int to;
+		private final double[] idf;
+		private final int[] ranks;
+		private final DocVector[] vectors;
+
+		Weigh(int from, int to, double[] idf, int[] ranks, DocVector[] vectors) {
+			this.from = from;
+			this.to = to;
+			this.idf = idf;
+			this.ranks = ranks;
+			this.vectors = vectors;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > leafSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Weigh(from, middle, idf, ranks, vectors), new Weigh(middle, to, idf, ranks, vectors));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				vectors[i] = terms[i].vector(idf, ranks, dictionary);
+				terms[i] = null; // counts are no longer needed
+			}
+		}
+	}
+}
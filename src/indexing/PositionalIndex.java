@@ -0,0 +1,352 @@
+package indexing;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The positions of the words of each document, for phrase and proximity
+ * queries (QueryEngine). It is optional: boolean and ranked queries only need
+ * the inverted index, so positions are only kept when one is given to the
+ * IngestPipeline or filled by the caller.
+ * 
+ * A document is a single byte array. Its distinct terms are listed by
+ * increasing id, each as the delta from the previous id, the length in bytes
+ * of its positions, then its positions as deltas from the previous one
+ * (the first from -1), all as varints. Looking up a term skips the positions
+ * of the terms before it by their length. Positions are counted in the words
+ * of the document as tokenized, so two words are adjacent when nothing but
+ * punctuation or spaces separates them.
+ * 
+ * Documents are keyed by name, so the same positions serve any inverted
+ * index of the documents whatever its doc ids. This class is thread safe.
+ */
+public class PositionalIndex {
+
+	private final TermDictionary dictionary;
+	private final Map<String, byte[]> docs = new HashMap<String, byte[]>();
+	private long bytes; // of all the arrays of positions
+	private long positions;
+	private FeedMembership membership = new FeedMembership(); // the links of each feed, see retainListed
+
+	/**
+	 * @param dictionary the dictionary terms are interned into
+	 */
+	public PositionalIndex(TermDictionary dictionary) {
+		if (dictionary == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @return the dictionary terms are interned into
+	 */
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Add a document, or replace it if it is already indexed.
+	 * 
+	 * @param doc the document (url)
+	 * @param words the words of the document, in order
+	 */
+	public void addDocument(String doc, List<String> words) {
+		int[] termIds = new int[words.size()];
+		for (int i = 0; i < termIds.length; i++) {
+			termIds[i] = dictionary.intern(words.get(i));
+		}
+		addDocument(doc, termIds);
+	}
+
+	/**
+	 * Add a document, or replace it if it is already indexed.
+	 * 
+	 * @param doc the document (url)
+	 * @param termIds the ids of the words of the document, in order
+	 */
+	public void addDocument(String doc, int[] termIds) {
+		if (doc == null || termIds == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		byte[] encoded = encode(termIds);
+		synchronized (this) {
+			byte[] old = docs.put(doc, encoded);
+			if (old != null) {
+				bytes -= old.length;
+				positions -= countPositions(old);
+			}
+			bytes += encoded.length;
+			positions += termIds.length;
+		}
+	}
+
+	/**
+	 * @param doc the document (url)
+	 * @return false if the document was not indexed
+	 */
+	public synchronized boolean removeDocument(String doc) {
+		byte[] old = docs.remove(doc);
+		if (old == null) {
+			return false;
+		}
+		bytes -= old.length;
+		positions -= countPositions(old);
+		return true;
+	}
+
+	/**
+	 * Remove the documents not in keep.
+	 * 
+	 * @param keep the documents to keep
+	 * @return the number of documents removed
+	 */
+	public synchronized int retainDocuments(Collection<String> keep) {
+		int removed = 0;
+		for (String doc : new HashSet<String>(docs.keySet())) {
+			if (!keep.contains(doc) && removeDocument(doc)) {
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Remove the documents the feeds no longer list, same as
+	 * IncrementalIndex.retainListed: a document that failed to download, or
+	 * whose feed failed, keeps its previous positions.
+	 * 
+	 * @param listing the feeds of the run
+	 * @return the number of documents removed
+	 */
+	public synchronized int retainListed(FeedListing listing) {
+		if (listing == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		return retainDocuments(membership.update(listing));
+	}
+
+	/**
+	 * A copy to keep updating while this one is read, e.g. by a published
+	 * snapshot. Documents are shared as long as the dictionary is the same,
+	 * they are re-encoded for another one, such as the dictionary of a
+	 * compacted IncrementalIndex.
+	 * 
+	 * @param dictionary the dictionary of the copy
+	 * @return an index of the same documents and positions
+	 */
+	public synchronized PositionalIndex copy(TermDictionary dictionary) {
+		PositionalIndex copy = new PositionalIndex(dictionary);
+		copy.membership = membership.copy();
+		copy.positions = positions;
+		if (dictionary == this.dictionary) {
+			copy.docs.putAll(docs);
+			copy.bytes = bytes;
+			return copy;
+		}
+		int[] newIds = new int[this.dictionary.size()]; // old term id -> new one + 1, 0 until interned
+		for (Map.Entry<String, byte[]> doc : docs.entrySet()) {
+			byte[] encoded = remap(doc.getValue(), newIds, dictionary);
+			copy.docs.put(doc.getKey(), encoded);
+			copy.bytes += encoded.length;
+		}
+		return copy;
+	}
+
+	/**
+	 * @return the number of documents
+	 */
+	public synchronized int size() {
+		return docs.size();
+	}
+
+	/**
+	 * @return the number of positions, the words of all the documents
+	 */
+	public synchronized long positionCount() {
+		return positions;
+	}
+
+	/**
+	 * @return the bytes of the encoded positions, without the map of documents
+	 */
+	public synchronized long sizeInBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @param doc the document (url)
+	 * @param term a term
+	 * @return the positions of the term in the document, increasing, null if it is not in the document
+	 */
+	public int[] positions(String doc, String term) {
+		int termId = dictionary.lookup(term);
+		return termId < 0 ? null : positions(doc, new int[] { termId })[0];
+	}
+
+	/**
+	 * Look up several terms of a document in one pass over its terms.
+	 * 
+	 * @param doc the document (url)
+	 * @param termIds term ids
+	 * @return the positions of each term, null for the terms not in the document
+	 */
+	int[][] positions(String doc, int[] termIds) {
+		int[][] found = new int[termIds.length][];
+		byte[] data;
+		synchronized (this) {
+			data = docs.get(doc);
+		}
+		if (data == null) {
+			return found;
+		}
+		int max = -1;
+		for (int termId : termIds) {
+			max = Math.max(max, termId);
+		}
+		int[] cursor = new int[1];
+		int id = -1;
+		while (cursor[0] < data.length && id < max) {
+			id += readVInt(data, cursor);
+			int length = readVInt(data, cursor);
+			for (int i = 0; i < termIds.length; i++) {
+				if (termIds[i] == id) {
+					found[i] = decode(data, cursor[0], cursor[0] + length);
+				}
+			}
+			cursor[0] += length;
+		}
+		return found;
+	}
+
+	/**
+	 * @param termIds the words of a document
+	 * @return the positions grouped by term
+	 */
+	static byte[] encode(int[] termIds) {
+		// (term id, position) pairs sorted as longs
+		long[] pairs = new long[termIds.length];
+		for (int i = 0; i < termIds.length; i++) {
+			pairs[i] = (long) termIds[i] << 32 | i;
+		}
+		Arrays.sort(pairs);
+		byte[] out = new byte[16 + termIds.length * 3];
+		byte[] run = new byte[16];
+		int n = 0;
+		int previousId = -1;
+		for (int i = 0; i < pairs.length;) {
+			int id = (int) (pairs[i] >>> 32);
+			int length = 0;
+			int previous = -1;
+			for (; i < pairs.length && (int) (pairs[i] >>> 32) == id; i++) {
+				if (run.length - length < 5) {
+					run = Arrays.copyOf(run, run.length * 2);
+				}
+				length = writeVInt(run, length, (int) pairs[i] - previous);
+				previous = (int) pairs[i];
+			}
+			if (out.length - n < length + 10) {
+				out = Arrays.copyOf(out, Math.max(out.length * 2, n + length + 10));
+			}
+			n = writeVInt(out, n, id - previousId);
+			n = writeVInt(out, n, length);
+			System.arraycopy(run, 0, out, n, length);
+			n += length;
+			previousId = id;
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * @param data a document encoded with the term ids of this dictionary
+	 * @param newIds the ids already interned into the other dictionary
+	 * @return the document encoded with the term ids of the other dictionary
+	 */
+	private byte[] remap(byte[] data, int[] newIds, TermDictionary other) {
+		// (new id, offset of the entry) sorted as longs, an entry being its length and positions
+		long[] entries = new long[16];
+		int count = 0;
+		int[] cursor = new int[1];
+		int id = -1;
+		while (cursor[0] < data.length) {
+			id += readVInt(data, cursor);
+			if (newIds[id] == 0) {
+				newIds[id] = other.intern(dictionary.term(id)) + 1;
+			}
+			if (count == entries.length) {
+				entries = Arrays.copyOf(entries, count * 2);
+			}
+			entries[count++] = (long) (newIds[id] - 1) << 32 | cursor[0];
+			int length = readVInt(data, cursor);
+			cursor[0] += length;
+		}
+		Arrays.sort(entries, 0, count);
+		byte[] out = new byte[data.length + 5 * count];
+		int n = 0;
+		int previousId = -1;
+		for (int i = 0; i < count; i++) {
+			int newId = (int) (entries[i] >>> 32);
+			cursor[0] = (int) entries[i];
+			int length = readVInt(data, cursor);
+			n = writeVInt(out, n, newId - previousId);
+			n = writeVInt(out, n, length);
+			System.arraycopy(data, cursor[0], out, n, length);
+			n += length;
+			previousId = newId;
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	private static int[] decode(byte[] data, int from, int to) {
+		int[] positions = new int[to - from]; // at least one byte each
+		int n = 0;
+		int position = -1;
+		int[] cursor = { from };
+		while (cursor[0] < to) {
+			position += readVInt(data, cursor);
+			positions[n++] = position;
+		}
+		return Arrays.copyOf(positions, n);
+	}
+
+	private static long countPositions(byte[] data) {
+		long count = 0;
+		int[] cursor = new int[1];
+		while (cursor[0] < data.length) {
+			readVInt(data, cursor); // term id
+			int end = readVInt(data, cursor);
+			end += cursor[0];
+			for (int i = cursor[0]; i < end; i++) {
+				if (data[i] >= 0) { // last byte of a varint
+					count++;
+				}
+			}
+			cursor[0] = end;
+		}
+		return count;
+	}
+
+	private static int writeVInt(byte[] out, int n, int value) {
+		while ((value & ~0x7F) != 0) {
+			out[n++] = (byte) (value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out[n++] = (byte) value;
+		return n;
+	}
+
+	private static int readVInt(byte[] data, int[] cursor) {
+		int value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = data[cursor[0]++];
+			value |= (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package indexing;
+
+import java.util.Arrays;
+
+/**
+ * The documents of a term in an inverted index, with the TF-IDF of the term
+ * in each document. Documents are ids into a table of names shared by all
+ * the postings of an index.
+ * 
+ * Postings can be read in two orders: by document id with a Cursor, which is
+ * what intersections and skips need, or ranked by reverse TF-IDF.
+ */
+public interface Postings {
+
+	/**
+	 * @return the number of documents
+	 */
+	int size();
+
+	/**
+	 * @return the highest TF-IDF of the term, 0 if there are no documents
+	 */
+	double maxScore();
+
+	/**
+	 * @param docId a document id
+	 * @return the document (url)
+	 */
+	String docName(int docId);
+
+	/**
+	 * @return a new cursor on the first document, by increasing document id
+	 */
+	Cursor cursor();
+
+	/**
+	 * Documents with equal TF-IDF are listed in an order defined by the
+	 * postings: by document id in a PostingsList built by buildInvertedIndex
+	 * and in CompressedPostings, by document name in IncrementalIndex, in the
+	 * order of the index written for an IndexFile.
+	 * 
+	 * @return the document ids sorted by reverse TF-IDF.
+	 *         The array may be shared with the postings, it must not be modified
+	 */
+	int[] rankedDocIds();
+
+	/**
+	 * The best documents only, for callers that show a few of them: postings
+	 * that decode or sort to rank override it to do less work for them.
+	 * 
+	 * @param k the maximum number of documents
+	 * @return the first k document ids of rankedDocIds, all of them if there are fewer
+	 */
+	default int[] topDocIds(int k) {
+		if (k < 0) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		int[] ranked = rankedDocIds();
+		return k >= ranked.length ? ranked : Arrays.copyOf(ranked, k);
+	}
+
+	/**
+	 * Iterates postings by increasing document id.
+	 */
+	interface Cursor {
+
+		/**
+		 * Returned when there are no more documents, greater than every document id
+		 */
+		int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+		/**
+		 * @return the current document id, -1 before the first call to nextDoc or advance
+		 */
+		int docId();
+
+		/**
+		 * @return the next document id, NO_MORE_DOCS at the end
+		 */
+		int nextDoc();
+
+		/**
+		 * Move to the first document whose id is at least target, skipping
+		 * whole blocks when the postings have skip data. Never moves back.
+		 * 
+		 * @param target a document id
+		 * @return the document id reached, NO_MORE_DOCS at the end
+		 */
+		int advance(int target);
+
+		/**
+		 * @return the TF-IDF of the term in the current document
+		 */
+		double score();
+	}
+}
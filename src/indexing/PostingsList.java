@@ -0,0 +1,216 @@
+package indexing;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.RandomAccess;
+
+/**
+ * The documents of a term with their TF-IDF, sorted by reverse TF-IDF, then
+ * by document id for documents with the same TF-IDF (by document name for
+ * the lists of an IncrementalIndex, where ids follow insertion order).
+ * 
+ * Documents and scores are kept in parallel primitive arrays. Documents are
+ * ids into a table of names shared by all the lists of an index. docId(i),
+ * doc(i) and score(i) read a posting without allocating; the List view
+ * creates an entry of document and TF-IDF for each posting it returns.
+ */
+public class PostingsList extends AbstractList<Entry<String, Double>> implements Postings, RandomAccess {
+
+	private final String[] docNames; // doc id -> document (url)
+	private final int[] docIds;
+	private final double[] scores;
+	private volatile int[] byDocId; // positions sorted by doc id, computed by the first cursor
+
+	/**
+	 * @param docNames doc id -> document (url), shared, not copied
+	 * @param docIds the ids of the documents, already sorted
+	 * @param scores the TF-IDF of each document, already sorted
+	 */
+	PostingsList(String[] docNames, int[] docIds, double[] scores) {
+		this.docNames = docNames;
+		this.docIds = docIds;
+		this.scores = scores;
+	}
+
+	/**
+	 * Sort postings in place and wrap them.
+	 * 
+	 * @param docNames doc id -> document (url), shared, not copied
+	 * @param docIds the ids of the documents, in any order
+	 * @param scores the TF-IDF of each document
+	 * @return the sorted postings
+	 */
+	static PostingsList sort(String[] docNames, int[] docIds, double[] scores) {
+		int n = docIds.length;
+		if (n > 1) {
+			// merge sort of the positions, stable and without boxing
+			int[] order = new int[n];
+			int[] buffer = new int[n];
+			for (int i = 0; i < n; i++) {
+				order[i] = i;
+			}
+			mergeSort(order, buffer, 0, n, docIds, scores);
+			int[] ids = docIds.clone();
+			double[] values = scores.clone();
+			for (int i = 0; i < n; i++) {
+				docIds[i] = ids[order[i]];
+				scores[i] = values[order[i]];
+			}
+		}
+		return new PostingsList(docNames, docIds, scores);
+	}
+
+	/**
+	 * @param i an index between 0 and size() - 1
+	 * @return the id of the i-th document
+	 */
+	public int docId(int i) {
+		return docIds[i];
+	}
+
+	/**
+	 * @param i an index between 0 and size() - 1
+	 * @return the i-th document (url)
+	 */
+	public String doc(int i) {
+		return docNames[docIds[i]];
+	}
+
+	/**
+	 * @param i an index between 0 and size() - 1
+	 * @return the TF-IDF of the term in the i-th document
+	 */
+	public double score(int i) {
+		return scores[i];
+	}
+
+	@Override
+	public double maxScore() {
+		return scores.length == 0 ? 0 : scores[0];
+	}
+
+	@Override
+	public String docName(int docId) {
+		return docNames[docId];
+	}
+
+	@Override
+	public int[] rankedDocIds() {
+		return docIds;
+	}
+
+	@Override
+	public Cursor cursor() {
+		int[] order = byDocId;
+		if (order == null) {
+			long[] keys = new long[docIds.length]; // doc id and position packed in a long
+			for (int i = 0; i < keys.length; i++) {
+				keys[i] = (long) docIds[i] << 32 | i;
+			}
+			Arrays.sort(keys);
+			order = new int[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				order[i] = (int) keys[i];
+			}
+			byDocId = order;
+		}
+		int[] positions = order;
+		return new Cursor() {
+			private int next;
+			private int doc = -1;
+
+			@Override
+			public int docId() {
+				return doc;
+			}
+
+			@Override
+			public int nextDoc() {
+				return doc = next < positions.length ? docIds[positions[next++]] : NO_MORE_DOCS;
+			}
+
+			@Override
+			public int advance(int target) {
+				if (doc >= target) {
+					return doc;
+				}
+				// gallop from the current position, then binary search the last step
+				int low = next;
+				int high = low;
+				int step = 1;
+				while (high < positions.length && docIds[positions[high]] < target) {
+					low = high + 1;
+					high += step;
+					step <<= 1;
+				}
+				high = Math.min(high, positions.length);
+				while (low < high) {
+					int middle = (low + high) >>> 1;
+					if (docIds[positions[middle]] < target) {
+						low = middle + 1;
+					} else {
+						high = middle;
+					}
+				}
+				next = low;
+				return nextDoc();
+			}
+
+			@Override
+			public double score() {
+				return scores[positions[next - 1]];
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return docIds.length;
+	}
+
+	@Override
+	public Entry<String, Double> get(int i) {
+		return new AbstractMap.SimpleImmutableEntry<String, Double>(doc(i), scores[i]);
+	}
+
+	private static void mergeSort(int[] order, int[] buffer, int from, int to, int[] docIds, double[] scores) {
+		if (to - from < 16) { // insertion sort for short ranges
+			for (int i = from + 1; i < to; i++) {
+				int p = order[i];
+				int j = i - 1;
+				while (j >= from && before(p, order[j], docIds, scores)) {
+					order[j + 1] = order[j];
+					j--;
+				}
+				order[j + 1] = p;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(order, buffer, from, middle, docIds, scores);
+		mergeSort(order, buffer, middle, to, docIds, scores);
+		if (!before(order[middle], order[middle - 1], docIds, scores)) {
+			return; // already in order
+		}
+		System.arraycopy(order, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right == to || (left < middle && !before(buffer[right], buffer[left], docIds, scores))) {
+				order[i] = buffer[left++];
+			} else {
+				order[i] = buffer[right++];
+			}
+		}
+	}
+
+	/**
+	 * @return true if posting a sorts before posting b
+	 */
+	private static boolean before(int a, int b, int[] docIds, double[] scores) {
+		int c = Double.compare(scores[b], scores[a]); // reverse TF-IDF
+		return c < 0 || (c == 0 && docIds[a] < docIds[b]);
+	}
+}
@@ -0,0 +1,816 @@
+package indexing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import indexing.Postings.Cursor;
+
+/**
+ * Boolean queries over an inverted index of Postings.
+ * 
+ * Query syntax, operators in upper case:
+ * 
+ * supreme court ruling     all the terms (AND is implied)
+ * court AND ruling         same as court ruling
+ * court OR senate          either term
+ * court NOT senate         court without senate, -senate is the same as NOT senate
+ * (court OR senate) vote   parentheses group
+ * "white house"            the words next to each other, in this order
+ * "white house"~3          in this order, with at most 3 other words between them
+ * 
+ * AND binds tighter than OR. Words are normalized like indexed text by the
+ * Tokenizer, and filtered and stemmed by the TokenFilter of the index if one
+ * is set. A group of only NOT terms matches nothing. Results are ranked by
+ * the sum of the TF-IDF of the matching terms, highest first, then by name.
+ * 
+ * Postings are read by document id. An intersection is driven by its
+ * shortest list: every other list is advanced to the candidate document,
+ * galloping (or skipping whole blocks for CompressedPostings) past the
+ * documents in between, so the cost depends on the shortest list and not on
+ * the length of common terms.
+ * 
+ * search(query, limit) only keeps the best limit articles. The matches of an
+ * OR are found with WAND: every node has an upper bound of its score (the
+ * largest TF-IDF of a term, stored with its postings), and the documents whose
+ * terms cannot reach the worst score kept so far are skipped without being
+ * scored, so the cost depends on the rare terms and not on the common ones.
+ * 
+ * Phrases need a PositionalIndex of the documents: the documents containing
+ * all the words are found like an AND, then the position lists of the words
+ * are intersected, only for these documents. Without one, a phrase is the AND
+ * of its words.
+ */
+public class QueryEngine {
+
+	private static final Pattern PHRASE = Pattern.compile("\"([^\"]*)\"(?:~(\\d+))?");
+
+	private final InvertedIndex invertedIndex;
+	private final PositionalIndex positions;
+	private boolean pruning = true;
+	private TokenFilter tokenFilter; // null to keep the words of the query as tokenized
+
+	/**
+	 * @param invertedIndex as returned by buildInvertedIndex,
+	 *        IncrementalIndex.invertedIndex or IndexFile.open
+	 */
+	public QueryEngine(InvertedIndex invertedIndex) {
+		this(invertedIndex, null);
+	}
+
+	/**
+	 * @param invertedIndex as returned by buildInvertedIndex,
+	 *        IncrementalIndex.invertedIndex or IndexFile.open
+	 * @param positions the positions of the words of the same documents, null
+	 *        to match phrases as the AND of their words
+	 */
+	public QueryEngine(InvertedIndex invertedIndex, PositionalIndex positions) {
+		if (invertedIndex == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.invertedIndex = invertedIndex;
+		this.positions = positions;
+	}
+
+	/**
+	 * @param query a boolean query
+	 * @return the matching articles, ranked by reverse summed TF-IDF, empty if none
+	 */
+	public List<String> search(String query) {
+		Parser parser = new Parser(query);
+		Node root = parser.or();
+		List<String> articles = new ArrayList<String>();
+		if (root == null) {
+			return articles;
+		}
+		int[] docIds = new int[16];
+		double[] scores = new double[16];
+		int n = 0;
+		for (int doc = root.nextDoc(); doc != Cursor.NO_MORE_DOCS; doc = root.nextDoc()) {
+			if (n == docIds.length) {
+				docIds = Arrays.copyOf(docIds, n * 2);
+				scores = Arrays.copyOf(scores, n * 2);
+			}
+			docIds[n] = doc;
+			scores[n++] = root.score();
+		}
+		int[] ranked = rank(scores, n);
+		int run = 0; // first article of the current run of equal scores
+		for (int i = 0; i < n; i++) {
+			if (scores[ranked[i]] != scores[ranked[run]]) {
+				if (i - run > 1) {
+					articles.subList(run, i).sort(null);
+				}
+				run = i;
+			}
+			articles.add(parser.names.docName(docIds[ranked[i]]));
+		}
+		// equal scores by name, doc ids are not in the same order for every index
+		articles.subList(run, n).sort(null);
+		return articles;
+	}
+
+	/**
+	 * @param query a boolean query
+	 * @param limit the maximum number of articles
+	 * @return the best limit articles of search(query), in the same order
+	 */
+	public List<String> search(String query, int limit) {
+		List<String> articles = new ArrayList<String>();
+		for (Hit hit : hits(query, limit)) {
+			articles.add(hit.name);
+		}
+		return articles;
+	}
+
+	/**
+	 * @param query a boolean query
+	 * @param limit the maximum number of articles
+	 * @return the best limit articles with their scores, in the order of search(query)
+	 */
+	Hit[] hits(String query, int limit) {
+		if (limit < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		Parser parser = new Parser(query);
+		Node root = parser.or();
+		if (root == null) {
+			return new Hit[0];
+		}
+		TopK top = new TopK(limit, parser.names);
+		if (pruning && root instanceof OrNode) {
+			wand(((OrNode) root).nodes, top);
+		} else {
+			for (int doc = root.nextDoc(); doc != Cursor.NO_MORE_DOCS; doc = root.nextDoc()) {
+				top.offer(doc, root.score());
+			}
+		}
+		return top.hits();
+	}
+
+	/**
+	 * @param pruning false to score every match of search(query, limit), to
+	 *        compare with WAND
+	 */
+	public void setPruning(boolean pruning) {
+		this.pruning = pruning;
+	}
+
+	/**
+	 * @param tokenFilter the filter the indexed words went through, the words
+	 *        of queries it drops are left out and the others stemmed like
+	 *        them, null (the default) to keep them all as they are
+	 */
+	public void setTokenFilter(TokenFilter tokenFilter) {
+		this.tokenFilter = tokenFilter;
+	}
+
+	/**
+	 * @param text words of a query
+	 * @return the words normalized like indexed text
+	 */
+	private List<String> words(String text) {
+		List<String> words = Tokenizer.tokenize(text);
+		if (tokenFilter == null) {
+			return words;
+		}
+		List<String> normalized = new ArrayList<String>(words.size());
+		for (String word : words) {
+			String term = tokenFilter.normalize(word);
+			if (term != null) {
+				normalized.add(term);
+			}
+		}
+		return normalized;
+	}
+
+	/**
+	 * Weak AND: the nodes are kept ordered by document. The first document
+	 * whose nodes up to it can reach the threshold is the pivot: when the
+	 * nodes before it are all on it, it is scored, else they are moved to it,
+	 * skipping the documents that could not enter the top.
+	 * 
+	 * @param nodes the nodes of an OR
+	 * @param top the best matches
+	 */
+	private static void wand(Node[] nodes, TopK top) {
+		Node[] sorted = nodes.clone();
+		for (Node node : sorted) {
+			node.nextDoc();
+		}
+		while (true) {
+			for (int i = 1; i < sorted.length; i++) { // insertion sort, only the moved nodes are out of order
+				Node node = sorted[i];
+				int j = i - 1;
+				while (j >= 0 && sorted[j].docId() > node.docId()) {
+					sorted[j + 1] = sorted[j];
+					j--;
+				}
+				sorted[j + 1] = node;
+			}
+			// the bounds are not summed in the same order as the scores, keep a margin for rounding
+			double threshold = top.threshold() * (1 - 1e-9);
+			double bound = 0;
+			int pivot = -1;
+			for (int i = 0; i < sorted.length && sorted[i].docId() != Cursor.NO_MORE_DOCS; i++) {
+				bound += sorted[i].maxScore();
+				if (bound >= threshold) {
+					pivot = i;
+					break;
+				}
+			}
+			if (pivot < 0) {
+				return;
+			}
+			int doc = sorted[pivot].docId();
+			if (sorted[0].docId() == doc) {
+				double score = 0;
+				for (Node node : nodes) { // in query order, like OrNode
+					if (node.docId() == doc) {
+						score += node.score();
+					}
+				}
+				top.offer(doc, score);
+				for (Node node : sorted) {
+					if (node.docId() == doc) {
+						node.nextDoc();
+					}
+				}
+			} else {
+				for (int i = 0; i < pivot && sorted[i].docId() < doc; i++) {
+					sorted[i].advance(doc);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sort matches by reverse score. Scores are not negative, so the bits of
+	 * their float values are ordered like the values: the matches are sorted
+	 * as primitive (float bits, position) keys, then the rare runs of
+	 * different scores with the same float are put in order.
+	 * 
+	 * @param scores the scores of the matches
+	 * @param n the number of matches
+	 * @return the positions of the matches by reverse score, then by position
+	 */
+	static int[] rank(double[] scores, int n) {
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = (long) (Integer.MAX_VALUE - Float.floatToIntBits((float) scores[i])) << 32 | i;
+		}
+		Arrays.sort(keys);
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = (int) keys[i];
+		}
+		int run = 0;
+		for (int i = 1; i <= n; i++) {
+			if (i == n || keys[i] >>> 32 != keys[run] >>> 32) {
+				for (int j = run + 1; j < i; j++) { // insertion sort, stable, linear when the scores are equal
+					int p = order[j];
+					int k = j - 1;
+					while (k >= run && scores[order[k]] < scores[p]) {
+						order[k + 1] = order[k];
+						k--;
+					}
+					order[k + 1] = p;
+				}
+				run = i;
+			}
+		}
+		return order;
+	}
+
+	/**
+	 * @param query a boolean query
+	 * @return the number of matching articles, without ranking them
+	 */
+	public int count(String query) {
+		Node root = new Parser(query).or();
+		int n = 0;
+		if (root != null) {
+			while (root.nextDoc() != Cursor.NO_MORE_DOCS) {
+				n++;
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * A cursor over the documents matching part of a query
+	 */
+	private abstract static class Node implements Cursor {
+		/**
+		 * @return an upper bound of the number of documents
+		 */
+		abstract long cost();
+
+		/**
+		 * @return an upper bound of the scores
+		 */
+		abstract double maxScore();
+	}
+
+	/**
+	 * The best matches: a heap of the given size with the worst match on top,
+	 * equal scores by name like search(query)
+	 */
+	private static class TopK {
+		private final int limit;
+		private final Postings names;
+		private final PriorityQueue<Hit> heap;
+
+		TopK(int limit, Postings names) {
+			this.limit = limit;
+			this.names = names;
+			this.heap = new PriorityQueue<Hit>(Math.min(limit, 1024), Hit.BEST_FIRST.reversed());
+		}
+
+		/**
+		 * @return the score a match needs to enter, -1 until the heap is full
+		 */
+		double threshold() {
+			return heap.size() < limit ? -1 : heap.peek().score;
+		}
+
+		void offer(int doc, double score) {
+			if (heap.size() == limit) {
+				Hit worst = heap.peek();
+				if (score < worst.score) {
+					return;
+				}
+				String name = names.docName(doc);
+				if (score == worst.score && name.compareTo(worst.name) >= 0) {
+					return;
+				}
+				heap.poll();
+				heap.add(new Hit(name, score));
+			} else {
+				heap.add(new Hit(names.docName(doc), score));
+			}
+		}
+
+		/**
+		 * @return the matches, best first
+		 */
+		Hit[] hits() {
+			Hit[] hits = new Hit[heap.size()];
+			for (int i = hits.length - 1; i >= 0; i--) {
+				hits[i] = heap.poll();
+			}
+			return hits;
+		}
+	}
+
+	/**
+	 * An article and its score
+	 */
+	static class Hit {
+		/**
+		 * By reverse score, then by name, the order of search(query)
+		 */
+		static final Comparator<Hit> BEST_FIRST = (a, b) -> {
+			int c = Double.compare(b.score, a.score);
+			return c != 0 ? c : a.name.compareTo(b.name);
+		};
+
+		final String name;
+		final double score;
+
+		Hit(String name, double score) {
+			this.name = name;
+			this.score = score;
+		}
+	}
+
+	private static class TermNode extends Node {
+		private final Postings postings;
+		private final Cursor cursor;
+
+		TermNode(Postings postings) {
+			this.postings = postings;
+			this.cursor = postings.cursor();
+		}
+
+		@Override
+		long cost() {
+			return postings.size();
+		}
+
+		@Override
+		double maxScore() {
+			return postings.maxScore();
+		}
+
+		@Override
+		public int docId() {
+			return cursor.docId();
+		}
+
+		@Override
+		public int nextDoc() {
+			return cursor.nextDoc();
+		}
+
+		@Override
+		public int advance(int target) {
+			return cursor.advance(target);
+		}
+
+		@Override
+		public double score() {
+			return cursor.score();
+		}
+	}
+
+	/**
+	 * Documents in all the required nodes and in none of the excluded ones
+	 */
+	private static class AndNode extends Node {
+		private final Node[] required; // by increasing cost, the first one leads
+		private final Node[] excluded;
+		private int doc = -1;
+
+		AndNode(List<Node> required, List<Node> excluded) {
+			this.required = required.toArray(new Node[0]);
+			Arrays.sort(this.required, Comparator.comparingLong(Node::cost));
+			this.excluded = excluded.toArray(new Node[0]);
+		}
+
+		@Override
+		long cost() {
+			return required[0].cost();
+		}
+
+		@Override
+		double maxScore() {
+			double max = 0;
+			for (Node node : required) {
+				max += node.maxScore();
+			}
+			return max;
+		}
+
+		@Override
+		public int docId() {
+			return doc;
+		}
+
+		@Override
+		public int nextDoc() {
+			return doNext(required[0].nextDoc());
+		}
+
+		@Override
+		public int advance(int target) {
+			return doNext(required[0].advance(target));
+		}
+
+		/**
+		 * @param candidate a document of the lead
+		 * @return the first document from candidate on matching every node
+		 */
+		private int doNext(int candidate) {
+			next: while (candidate != NO_MORE_DOCS) {
+				for (int i = 1; i < required.length; i++) {
+					int d = required[i].docId() < candidate ? required[i].advance(candidate) : required[i].docId();
+					if (d > candidate) { // the lead catches up with the document found
+						candidate = required[0].advance(d);
+						continue next;
+					}
+				}
+				for (Node node : excluded) {
+					int d = node.docId() < candidate ? node.advance(candidate) : node.docId();
+					if (d == candidate) {
+						candidate = required[0].nextDoc();
+						continue next;
+					}
+				}
+				return doc = candidate;
+			}
+			return doc = NO_MORE_DOCS;
+		}
+
+		@Override
+		public double score() {
+			double score = 0;
+			for (Node node : required) {
+				score += node.score();
+			}
+			return score;
+		}
+	}
+
+	/**
+	 * Documents containing the words of a phrase, in order, with at most slop
+	 * other words between the first and the last one
+	 */
+	private class PhraseNode extends Node {
+		private final AndNode all; // the documents containing every word
+		private final int[] termIds; // of the words, in order
+		private final int slop;
+		private final Postings names;
+		private int doc = -1;
+
+		PhraseNode(List<Node> nodes, String[] words, int slop, Postings names) {
+			this.all = new AndNode(nodes, List.of());
+			this.termIds = new int[words.length];
+			for (int i = 0; i < words.length; i++) {
+				termIds[i] = positions.getDictionary().lookup(words[i]); // -1 when only the inverted index has the word
+			}
+			this.slop = slop;
+			this.names = names;
+		}
+
+		@Override
+		long cost() {
+			return all.cost();
+		}
+
+		@Override
+		double maxScore() {
+			return all.maxScore();
+		}
+
+		@Override
+		public int docId() {
+			return doc;
+		}
+
+		@Override
+		public int nextDoc() {
+			return doNext(all.nextDoc());
+		}
+
+		@Override
+		public int advance(int target) {
+			return doNext(all.advance(target));
+		}
+
+		private int doNext(int candidate) {
+			while (candidate != NO_MORE_DOCS && !matches(names.docName(candidate))) {
+				candidate = all.nextDoc();
+			}
+			return doc = candidate;
+		}
+
+		/**
+		 * For each position of the first word, the next word is taken at its
+		 * first position after the previous word: that gives the closest last
+		 * word. Every list is read once, as the positions only move forward.
+		 */
+		private boolean matches(String name) {
+			int[][] lists = positions.positions(name, termIds);
+			for (int[] list : lists) {
+				if (list == null) {
+					return false;
+				}
+			}
+			int[] next = new int[lists.length];
+			for (int start : lists[0]) {
+				int previous = start;
+				for (int i = 1; i < lists.length; i++) {
+					int[] list = lists[i];
+					while (next[i] < list.length && list[next[i]] <= previous) {
+						next[i]++;
+					}
+					if (next[i] == list.length) {
+						return false; // no later start can do better
+					}
+					previous = list[next[i]];
+				}
+				if (previous - start - (lists.length - 1) <= slop) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public double score() {
+			return all.score();
+		}
+	}
+
+	/**
+	 * Documents in any of the nodes
+	 */
+	private static class OrNode extends Node {
+		private final Node[] nodes;
+		private int doc = -1;
+
+		OrNode(List<Node> nodes) {
+			this.nodes = nodes.toArray(new Node[0]);
+		}
+
+		@Override
+		long cost() {
+			long cost = 0;
+			for (Node node : nodes) {
+				cost += node.cost();
+			}
+			return cost;
+		}
+
+		@Override
+		double maxScore() {
+			double max = 0;
+			for (Node node : nodes) {
+				max += node.maxScore();
+			}
+			return max;
+		}
+
+		@Override
+		public int docId() {
+			return doc;
+		}
+
+		@Override
+		public int nextDoc() {
+			if (doc == NO_MORE_DOCS) {
+				return doc;
+			}
+			int min = NO_MORE_DOCS;
+			for (Node node : nodes) {
+				int d = node.docId() <= doc ? node.nextDoc() : node.docId();
+				min = Math.min(min, d);
+			}
+			return doc = min;
+		}
+
+		@Override
+		public int advance(int target) {
+			if (doc >= target) {
+				return doc;
+			}
+			int min = NO_MORE_DOCS;
+			for (Node node : nodes) {
+				int d = node.docId() < target ? node.advance(target) : node.docId();
+				min = Math.min(min, d);
+			}
+			return doc = min;
+		}
+
+		@Override
+		public double score() {
+			double score = 0;
+			for (Node node : nodes) {
+				if (node.docId() == doc) {
+					score += node.score();
+				}
+			}
+			return score;
+		}
+	}
+
+	/**
+	 * Recursive descent parser building the nodes of a query:
+	 * or := and (OR and)*, and := unary ([AND] unary)*,
+	 * unary := (NOT | -) unary | ( or ) | "words"[~slop] | word
+	 */
+	private class Parser {
+		private final List<String> tokens = new ArrayList<String>(); // operators, parentheses, normalized terms and " for phrases
+		private final List<String[]> phrases = new ArrayList<String[]>(); // the words of each ", in order
+		private final List<Integer> slops = new ArrayList<Integer>();
+		private int next;
+		private int nextPhrase;
+		private int depth; // of parentheses
+		Postings names; // any postings of the query, they all share the doc table
+
+		Parser(String query) {
+			Matcher phrase = PHRASE.matcher(query);
+			int from = 0;
+			while (phrase.find()) {
+				split(query.substring(from, phrase.start()));
+				tokens.add("\"");
+				phrases.add(words(phrase.group(1)).toArray(new String[0]));
+				slops.add(phrase.group(2) == null ? 0 : Integer.parseInt(phrase.group(2)));
+				from = phrase.end();
+			}
+			split(query.substring(from));
+		}
+
+		private void split(String query) {
+			if (query.isBlank()) {
+				return;
+			}
+			for (String token : query.replace("(", " ( ").replace(")", " ) ").trim().split("\\s+")) {
+				if (token.equals("AND") || token.equals("OR") || token.equals("NOT") || token.equals("(") || token.equals(")")) {
+					tokens.add(token);
+					continue;
+				}
+				if (token.equals("-")) { // -(a OR b)
+					tokens.add("NOT");
+					continue;
+				}
+				List<String> words = words(token); // nothing for punctuation only or noise
+				if (token.startsWith("-") && !words.isEmpty()) {
+					tokens.add("NOT");
+				}
+				tokens.addAll(words);
+			}
+		}
+
+		/**
+		 * @return the nodes of an or expression, null if it matches nothing
+		 */
+		Node or() {
+			List<Node> nodes = new ArrayList<Node>();
+			do {
+				Node node = and();
+				if (node != null) {
+					nodes.add(node);
+				}
+			} while (accept("OR"));
+			return nodes.isEmpty() ? null : nodes.size() == 1 ? nodes.get(0) : new OrNode(nodes);
+		}
+
+		private Node and() {
+			List<Node> required = new ArrayList<Node>();
+			List<Node> excluded = new ArrayList<Node>();
+			boolean empty = false; // a required part matches nothing
+			while (next < tokens.size() && !tokens.get(next).equals("OR") && !(depth > 0 && tokens.get(next).equals(")"))) {
+				if (accept("AND") || accept(")")) { // a ) without ( is ignored
+					continue;
+				}
+				boolean negated = false;
+				while (accept("NOT")) {
+					negated = !negated;
+				}
+				Node node = unary();
+				if (negated) {
+					if (node != null) {
+						excluded.add(node);
+					}
+				} else if (node == null) {
+					empty = true;
+				} else {
+					required.add(node);
+				}
+			}
+			if (empty || required.isEmpty()) {
+				return null;
+			}
+			return required.size() == 1 && excluded.isEmpty() ? required.get(0) : new AndNode(required, excluded);
+		}
+
+		private Node unary() {
+			if (next >= tokens.size() || tokens.get(next).equals("OR") || tokens.get(next).equals("AND")
+					|| tokens.get(next).equals(")")) {
+				return null; // NOT without a term
+			}
+			if (accept("(")) {
+				depth++;
+				Node node = or();
+				accept(")");
+				depth--;
+				return node;
+			}
+			if (accept("\"")) {
+				return phrase(phrases.get(nextPhrase), slops.get(nextPhrase++));
+			}
+			Postings postings = invertedIndex.postings(tokens.get(next++));
+			if (postings == null) {
+				return null;
+			}
+			names = postings;
+			return new TermNode(postings);
+		}
+
+		/**
+		 * @return the node of a phrase, null if it matches nothing
+		 */
+		private Node phrase(String[] words, int slop) {
+			List<Node> nodes = new ArrayList<Node>();
+			for (String word : words) {
+				Postings postings = invertedIndex.postings(word);
+				if (postings == null) {
+					return null;
+				}
+				names = postings;
+				nodes.add(new TermNode(postings));
+			}
+			if (nodes.isEmpty()) {
+				return null;
+			}
+			if (nodes.size() == 1) {
+				return nodes.get(0);
+			}
+			return positions == null ? new AndNode(nodes, List.of()) : new PhraseNode(nodes, words, slop, names);
+		}
+
+		private boolean accept(String token) {
+			if (next < tokens.size() && tokens.get(next).equals(token)) {
+				next++;
+				return true;
+			}
+			return false;
+		}
+	}
+}
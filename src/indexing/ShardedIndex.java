@@ -0,0 +1,157 @@
+package indexing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import indexing.QueryEngine.Hit;
+
+/**
+ * An inverted index split by document into shards, as returned by
+ * IndexBuilder.buildShardedIndex.
+ * 
+ * Every shard is an inverted index of its own documents, with the TF-IDF of
+ * the whole forward index, so a document has the same score in its shard as
+ * in a single index. A query is sent to every shard at once on the executor
+ * (scatter), each shard finds its best limit articles, and these sorted lists
+ * are merged with a heap (gather): search(query, limit) returns the same
+ * articles as QueryEngine.search(query, limit) on a single index. The
+ * calling thread searches the first shard itself while the others run.
+ */
+public class ShardedIndex {
+
+	private final List<InvertedIndex> shards;
+	private final PositionalIndex positions;
+	private Executor executor = ForkJoinPool.commonPool();
+	private TokenFilter tokenFilter;
+
+	/**
+	 * @param shards the inverted index of each shard
+	 */
+	public ShardedIndex(List<? extends InvertedIndex> shards) {
+		this(shards, null);
+	}
+
+	/**
+	 * @param shards the inverted index of each shard
+	 * @param positions the positions of the words of all the documents, null to match phrases as AND
+	 */
+	public ShardedIndex(List<? extends InvertedIndex> shards, PositionalIndex positions) {
+		if (shards == null || shards.isEmpty() || shards.contains(null)) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.shards = new ArrayList<InvertedIndex>(shards);
+		this.positions = positions;
+	}
+
+	/**
+	 * @param executor runs the searches of the shards, the common fork-join pool by default
+	 */
+	public void setExecutor(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.executor = executor;
+	}
+
+	/**
+	 * @param tokenFilter the filter the indexed words went through, see QueryEngine.setTokenFilter
+	 */
+	public void setTokenFilter(TokenFilter tokenFilter) {
+		this.tokenFilter = tokenFilter;
+	}
+
+	/**
+	 * @return the number of shards
+	 */
+	public int shardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * @param shard a shard number
+	 * @return the inverted index of the shard
+	 */
+	public InvertedIndex shard(int shard) {
+		return shards.get(shard);
+	}
+
+	/**
+	 * @param query a boolean query, see QueryEngine
+	 * @param limit the maximum number of articles
+	 * @return the best limit articles of all the shards, best first
+	 */
+	public List<String> search(String query, int limit) {
+		if (query == null || limit < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		List<CompletableFuture<Hit[]>> scattered = new ArrayList<CompletableFuture<Hit[]>>();
+		for (int s = 1; s < shards.size(); s++) {
+			QueryEngine engine = engine(s);
+			scattered.add(CompletableFuture.supplyAsync(() -> engine.hits(query, limit), executor));
+		}
+		List<Hit[]> gathered = new ArrayList<Hit[]>();
+		gathered.add(engine(0).hits(query, limit));
+		for (CompletableFuture<Hit[]> shard : scattered) {
+			gathered.add(shard.join());
+		}
+		return merge(gathered, limit);
+	}
+
+	/**
+	 * @param query a boolean query, see QueryEngine
+	 * @return the number of matching articles in all the shards
+	 */
+	public int count(String query) {
+		if (query == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		List<CompletableFuture<Integer>> scattered = new ArrayList<CompletableFuture<Integer>>();
+		for (int s = 1; s < shards.size(); s++) {
+			QueryEngine engine = engine(s);
+			scattered.add(CompletableFuture.supplyAsync(() -> engine.count(query), executor));
+		}
+		int count = engine(0).count(query);
+		for (CompletableFuture<Integer> shard : scattered) {
+			count += shard.join();
+		}
+		return count;
+	}
+
+	private QueryEngine engine(int shard) {
+		QueryEngine engine = new QueryEngine(shards.get(shard), positions);
+		engine.setTokenFilter(tokenFilter);
+		return engine;
+	}
+
+	/**
+	 * Merge lists of hits sorted best first: a heap holds the next hit of
+	 * each list, the best one is taken and replaced by the next of its list.
+	 * 
+	 * @param lists the best hits of each shard
+	 * @param limit the maximum number of articles
+	 * @return the best limit articles
+	 */
+	static List<String> merge(List<Hit[]> lists, int limit) {
+		PriorityQueue<int[]> heap = new PriorityQueue<int[]>(lists.size(), // {list, position in the list}
+				(a, b) -> Hit.BEST_FIRST.compare(lists.get(a[0])[a[1]], lists.get(b[0])[b[1]]));
+		for (int l = 0; l < lists.size(); l++) {
+			if (lists.get(l).length > 0) {
+				heap.add(new int[] { l, 0 });
+			}
+		}
+		List<String> articles = new ArrayList<String>();
+		while (articles.size() < limit && !heap.isEmpty()) {
+			int[] next = heap.poll();
+			Hit[] list = lists.get(next[0]);
+			articles.add(list[next[1]].name);
+			if (++next[1] < list.length) {
+				heap.add(next);
+			}
+		}
+		return articles;
+	}
+}
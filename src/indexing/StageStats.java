@@ -0,0 +1,116 @@
+package indexing;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of one stage of an IngestPipeline.
+ */
+public class StageStats {
+
+	private final String name;
+	private final int threads;
+	private final BlockingQueue<?> input;
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	private volatile long startNanos;
+	private volatile long endNanos;
+
+	StageStats(String name, int threads, BlockingQueue<?> input) {
+		this.name = name;
+		this.threads = threads;
+		this.input = input;
+	}
+
+	/**
+	 * @return the name of the stage
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of worker threads of the stage
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * @return the number of items waiting in the input queue of the stage
+	 */
+	public int getQueueDepth() {
+		return input.size();
+	}
+
+	/**
+	 * @return the capacity of the input queue of the stage
+	 */
+	public int getQueueCapacity() {
+		return input.size() + input.remainingCapacity();
+	}
+
+	/**
+	 * @return the number of items the stage has processed
+	 */
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	/**
+	 * @return the number of items the stage failed on (and dropped)
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return items processed per second since the stage started
+	 */
+	public double getThroughput() {
+		long start = startNanos;
+		if (start == 0) {
+			return 0;
+		}
+		long end = endNanos != 0 ? endNanos : System.nanoTime();
+		return processed.get() / Math.max((end - start) / 1e9, 1e-9);
+	}
+
+	/**
+	 * @return the fraction of the stage's thread time spent working rather than waiting on queues
+	 */
+	public double getUtilization() {
+		long start = startNanos;
+		if (start == 0) {
+			return 0;
+		}
+		long end = endNanos != 0 ? endNanos : System.nanoTime();
+		return busyNanos.get() / (double) Math.max((end - start) * threads, 1);
+	}
+
+	void started() {
+		startNanos = System.nanoTime();
+		endNanos = 0;
+	}
+
+	void finished() {
+		endNanos = System.nanoTime();
+	}
+
+	void processed(long nanos) {
+		processed.incrementAndGet();
+		busyNanos.addAndGet(nanos);
+	}
+
+	void failed(long nanos) {
+		failed.incrementAndGet();
+		busyNanos.addAndGet(nanos);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%-9s threads=%-3d queue=%d/%d processed=%d failed=%d %.1f/s busy=%.0f%%", name, threads,
+				getQueueDepth(), getQueueCapacity(), getProcessed(), getFailed(), getThroughput(), getUtilization() * 100);
+	}
+}
@@ -0,0 +1,479 @@
+package indexing;
+
+/**
+ * The Porter stemmer (M.F. Porter, An algorithm for suffix stripping, 1980):
+ * strips the suffixes of english words so that inflected forms share one
+ * term, trees -> tree, structures -> structur, connection -> connect.
+ * 
+ * Only words made of the letters a-z are stemmed, words with digits are
+ * returned unchanged. Stems are cached in a fixed table indexed by the hash
+ * of the word, a word replaces the one in its slot: the frequent words stay
+ * in the table and are stemmed without any allocation, the table never grows.
+ * This class is thread safe, the slots hold immutable entries.
+ */
+public class Stemmer {
+
+	private final Entry[] cache;
+
+	/**
+	 * A stemmer caching the stems of 16384 words.
+	 */
+	public Stemmer() {
+		this(1 << 14);
+	}
+
+	/**
+	 * @param cacheSize the number of slots of the cache, rounded up to a power of 2
+	 */
+	public Stemmer(int cacheSize) {
+		if (cacheSize < 1 || cacheSize > 1 << 30) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		cache = new Entry[cacheSize == 1 ? 1 : Integer.highestOneBit(cacheSize - 1) << 1];
+	}
+
+	/**
+	 * @param word a word as returned by the Tokenizer
+	 * @return the stem of the word
+	 */
+	public String stem(String word) {
+		String stem = new String(stem(word.toCharArray(), 0, word.length()));
+		return stem.equals(word) ? word : stem;
+	}
+
+	/**
+	 * @param buffer holds the word
+	 * @param offset index of the first character of the word
+	 * @param length number of characters of the word
+	 * @return the stem of the word, shared with the cache: it must not be modified
+	 */
+	public char[] stem(char[] buffer, int offset, int length) {
+		int hash = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		int slot = (hash ^ hash >>> 16) & (cache.length - 1);
+		Entry entry = cache[slot];
+		if (entry != null && entry.hash == hash && entry.is(buffer, offset, length)) {
+			return entry.stem;
+		}
+		char[] word = new char[length];
+		System.arraycopy(buffer, offset, word, 0, length);
+		entry = new Entry(hash, word, new Word(word).stem());
+		cache[slot] = entry;
+		return entry.stem;
+	}
+
+	/**
+	 * A word and its stem
+	 */
+	private static final class Entry {
+		final int hash;
+		final char[] word;
+		final char[] stem;
+
+		Entry(int hash, char[] word, char[] stem) {
+			this.hash = hash;
+			this.word = word;
+			this.stem = stem;
+		}
+
+		boolean is(char[] buffer, int offset, int length) {
+			if (word.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (word[i] != buffer[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * The steps of the algorithm on one word. b[0..k] is the word being
+	 * stemmed, j the end of the stem left when a suffix is removed.
+	 */
+	private static final class Word {
+		private final char[] b;
+		private int k;
+		private int j;
+
+		Word(char[] word) {
+			b = word.clone();
+			k = word.length - 1;
+		}
+
+		char[] stem() {
+			for (char c : b) {
+				if (c < 'a' || c > 'z') {
+					return b; // numbers and words with digits are kept as they are
+				}
+			}
+			if (k > 1) {
+				step1ab();
+				if (k > 0) {
+					step1c();
+					step2();
+					step3();
+					step4();
+					step5();
+				}
+			}
+			if (k + 1 == b.length) {
+				return b;
+			}
+			char[] stem = new char[k + 1];
+			System.arraycopy(b, 0, stem, 0, k + 1);
+			return stem;
+		}
+
+		/**
+		 * @return true if b[i] is a consonant
+		 */
+		private boolean cons(int i) {
+			switch (b[i]) {
+			case 'a':
+			case 'e':
+			case 'i':
+			case 'o':
+			case 'u':
+				return false;
+			case 'y':
+				return i == 0 || !cons(i - 1);
+			default:
+				return true;
+			}
+		}
+
+		/**
+		 * @return the number of vowel-consonant sequences in b[0..j]: m in [C](VC)^m[V]
+		 */
+		private int m() {
+			int n = 0;
+			int i = 0;
+			while (true) {
+				if (i > j) {
+					return n;
+				}
+				if (!cons(i)) {
+					break;
+				}
+				i++;
+			}
+			i++;
+			while (true) {
+				while (true) {
+					if (i > j) {
+						return n;
+					}
+					if (cons(i)) {
+						break;
+					}
+					i++;
+				}
+				i++;
+				n++;
+				while (true) {
+					if (i > j) {
+						return n;
+					}
+					if (!cons(i)) {
+						break;
+					}
+					i++;
+				}
+				i++;
+			}
+		}
+
+		/**
+		 * @return true if b[0..j] contains a vowel
+		 */
+		private boolean vowelInStem() {
+			for (int i = 0; i <= j; i++) {
+				if (!cons(i)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return true if b[i-1..i] is a double consonant
+		 */
+		private boolean doubleC(int i) {
+			return i >= 1 && b[i] == b[i - 1] && cons(i);
+		}
+
+		/**
+		 * @return true if b[i-2..i] is consonant-vowel-consonant and b[i] is not w, x or y: hop, not hoop
+		 */
+		private boolean cvc(int i) {
+			if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2)) {
+				return false;
+			}
+			return b[i] != 'w' && b[i] != 'x' && b[i] != 'y';
+		}
+
+		/**
+		 * @return true if b[0..k] ends with s, j is then the end of the stem before it
+		 */
+		private boolean ends(String s) {
+			int length = s.length();
+			int start = k - length + 1;
+			if (start < 0) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (b[start + i] != s.charAt(i)) {
+					return false;
+				}
+			}
+			j = k - length;
+			return true;
+		}
+
+		/**
+		 * Replace b[j+1..k] by s, it fits in b: s is only longer than b[j+1..k] right after -ed or -ing was removed
+		 */
+		private void setTo(String s) {
+			for (int i = 0; i < s.length(); i++) {
+				b[j + 1 + i] = s.charAt(i);
+			}
+			k = j + s.length();
+		}
+
+		private void r(String s) {
+			if (m() > 0) {
+				setTo(s);
+			}
+		}
+
+		/**
+		 * Plurals and -ed or -ing: caresses -> caress, ponies -> poni,
+		 * cats -> cat, agreed -> agree, motoring -> motor, hopping -> hop
+		 */
+		private void step1ab() {
+			if (b[k] == 's') {
+				if (ends("sses")) {
+					k -= 2;
+				} else if (ends("ies")) {
+					setTo("i");
+				} else if (b[k - 1] != 's') {
+					k--;
+				}
+			}
+			if (ends("eed")) {
+				if (m() > 0) {
+					k--;
+				}
+			} else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+				k = j;
+				if (ends("at")) {
+					setTo("ate");
+				} else if (ends("bl")) {
+					setTo("ble");
+				} else if (ends("iz")) {
+					setTo("ize");
+				} else if (doubleC(k)) {
+					k--;
+					if (b[k] == 'l' || b[k] == 's' || b[k] == 'z') {
+						k++;
+					}
+				} else if (m() == 1 && cvc(k)) {
+					setTo("e");
+				}
+			}
+		}
+
+		/**
+		 * A final y after a vowel in the stem becomes i: happy -> happi
+		 */
+		private void step1c() {
+			if (ends("y") && vowelInStem()) {
+				b[k] = 'i';
+			}
+		}
+
+		/**
+		 * Double suffixes to single ones: relational -> relate, ization -> ize
+		 */
+		private void step2() {
+			switch (b[k - 1]) {
+			case 'a':
+				if (ends("ational")) {
+					r("ate");
+				} else if (ends("tional")) {
+					r("tion");
+				}
+				break;
+			case 'c':
+				if (ends("enci")) {
+					r("ence");
+				} else if (ends("anci")) {
+					r("ance");
+				}
+				break;
+			case 'e':
+				if (ends("izer")) {
+					r("ize");
+				}
+				break;
+			case 'l':
+				if (ends("bli")) {
+					r("ble");
+				} else if (ends("alli")) {
+					r("al");
+				} else if (ends("entli")) {
+					r("ent");
+				} else if (ends("eli")) {
+					r("e");
+				} else if (ends("ousli")) {
+					r("ous");
+				}
+				break;
+			case 'o':
+				if (ends("ization")) {
+					r("ize");
+				} else if (ends("ation")) {
+					r("ate");
+				} else if (ends("ator")) {
+					r("ate");
+				}
+				break;
+			case 's':
+				if (ends("alism")) {
+					r("al");
+				} else if (ends("iveness")) {
+					r("ive");
+				} else if (ends("fulness")) {
+					r("ful");
+				} else if (ends("ousness")) {
+					r("ous");
+				}
+				break;
+			case 't':
+				if (ends("aliti")) {
+					r("al");
+				} else if (ends("iviti")) {
+					r("ive");
+				} else if (ends("biliti")) {
+					r("ble");
+				}
+				break;
+			case 'g':
+				if (ends("logi")) {
+					r("log");
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * -ic-, -full, -ness: electrical -> electric, hopeful -> hope
+		 */
+		private void step3() {
+			switch (b[k]) {
+			case 'e':
+				if (ends("icate")) {
+					r("ic");
+				} else if (ends("ative")) {
+					r("");
+				} else if (ends("alize")) {
+					r("al");
+				}
+				break;
+			case 'i':
+				if (ends("iciti")) {
+					r("ic");
+				}
+				break;
+			case 'l':
+				if (ends("ical")) {
+					r("ic");
+				} else if (ends("ful")) {
+					r("");
+				}
+				break;
+			case 's':
+				if (ends("ness")) {
+					r("");
+				}
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * -ant, -ence, -ment... when the stem is long enough: adjustment -> adjust
+		 */
+		private void step4() {
+			boolean found;
+			switch (b[k - 1]) {
+			case 'a':
+				found = ends("al");
+				break;
+			case 'c':
+				found = ends("ance") || ends("ence");
+				break;
+			case 'e':
+				found = ends("er");
+				break;
+			case 'i':
+				found = ends("ic");
+				break;
+			case 'l':
+				found = ends("able") || ends("ible");
+				break;
+			case 'n':
+				found = ends("ant") || ends("ement") || ends("ment") || ends("ent");
+				break;
+			case 'o':
+				found = (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) || ends("ou");
+				break;
+			case 's':
+				found = ends("ism");
+				break;
+			case 't':
+				found = ends("ate") || ends("iti");
+				break;
+			case 'u':
+				found = ends("ous");
+				break;
+			case 'v':
+				found = ends("ive");
+				break;
+			case 'z':
+				found = ends("ize");
+				break;
+			default:
+				found = false;
+				break;
+			}
+			if (found && m() > 1) {
+				k = j;
+			}
+		}
+
+		/**
+		 * A final -e and a double l when the stem is long enough: probate -> probat, controll -> control
+		 */
+		private void step5() {
+			j = k;
+			if (b[k] == 'e') {
+				int a = m();
+				if (a > 1 || (a == 1 && !cvc(k - 1))) {
+					k--;
+				}
+			}
+			if (b[k] == 'l' && doubleC(k) && m() > 1) {
+				k--;
+			}
+		}
+	}
+}
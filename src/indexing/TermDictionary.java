@@ -0,0 +1,329 @@
+package indexing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Maps each distinct term to a dense int id (0, 1, 2, ...) and back.
+ * 
+ * A term is stored once, as a single String, however many documents contain
+ * it. Terms can be looked up straight from a Tokenizer buffer without
+ * building a String, one is only created the first time a term is seen.
+ * Ids are never reused or removed. This class is thread safe: looking up
+ * known terms takes no lock, so many threads can tokenize at once, only
+ * new terms are added under a lock.
+ */
+public class TermDictionary {
+
+	private final StampedLock lock = new StampedLock(); // lookups of known terms take no lock at all
+	private String[] terms = new String[1024]; // id -> term
+	private int[] hashes = new int[1024]; // id -> hash of the term
+	private int[] table = new int[2048]; // open addressing, id + 1 or 0 for an empty slot
+	private int size;
+	private int[] order = new int[0]; // the ids of the first terms by lexicographic order, see ranks
+	private int[] ranks = new int[0];
+
+	/**
+	 * @param term a term
+	 * @return the id of the term, a new one if the term was unknown
+	 */
+	public int intern(String term) {
+		int hash = term.hashCode();
+		int id = lookup(hash, term, null, 0, 0);
+		if (id >= 0) {
+			return id;
+		}
+		long stamp = lock.writeLock();
+		try {
+			int slot = probe(table, hashes, terms, hash, term, null, 0, 0);
+			return table[slot] != 0 ? table[slot] - 1 : add(slot, hash, term);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @param buffer holds the term
+	 * @param offset index of the first character of the term
+	 * @param length number of characters of the term
+	 * @return the id of the term, a new one if the term was unknown
+	 */
+	public int intern(char[] buffer, int offset, int length) {
+		int hash = hash(buffer, offset, length);
+		int id = lookup(hash, null, buffer, offset, length);
+		if (id >= 0) {
+			return id;
+		}
+		long stamp = lock.writeLock();
+		try {
+			int slot = probe(table, hashes, terms, hash, null, buffer, offset, length);
+			return table[slot] != 0 ? table[slot] - 1 : add(slot, hash, new String(buffer, offset, length));
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * @param term a term
+	 * @return the id of the term, -1 if it is unknown
+	 */
+	public int lookup(String term) {
+		return lookup(term.hashCode(), term, null, 0, 0);
+	}
+
+	/**
+	 * @param buffer holds the term
+	 * @param offset index of the first character of the term
+	 * @param length number of characters of the term
+	 * @return the id of the term, -1 if it is unknown
+	 */
+	public int lookup(char[] buffer, int offset, int length) {
+		return lookup(hash(buffer, offset, length), null, buffer, offset, length);
+	}
+
+	/**
+	 * @param id an id returned by intern
+	 * @return the term
+	 */
+	public String term(int id) {
+		long stamp = lock.tryOptimisticRead();
+		String[] t = terms;
+		int n = size;
+		String term = id >= 0 && id < n && id < t.length ? t[id] : null;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				term = id >= 0 && id < size ? terms[id] : null;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		if (term == null) {
+			throw new IndexOutOfBoundsException("No term with id " + id);
+		}
+		return term;
+	}
+
+	/**
+	 * @return the number of terms, ids are 0 to size() - 1
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int n = size;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				n = size;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Rank the terms by lexicographic order. The order is kept from one call
+	 * to the next: only the terms added since the last call are sorted, then
+	 * merged into it, and nothing is done when no term was added.
+	 * 
+	 * @return term id -> rank of the term among the terms of the dictionary,
+	 *         shared by the callers so not to be modified
+	 */
+	synchronized int[] ranks() {
+		int n = size();
+		if (ranks.length == n) {
+			return ranks;
+		}
+		String[] added = new String[n - order.length];
+		for (int i = 0; i < added.length; i++) {
+			added[i] = term(order.length + i);
+		}
+		Arrays.sort(added);
+		int[] merged = new int[n];
+		int i = 0;
+		int j = 0;
+		String next = order.length > 0 ? term(order[0]) : null;
+		for (int rank = 0; rank < n; rank++) {
+			if (j == added.length || i < order.length && next.compareTo(added[j]) < 0) {
+				merged[rank] = order[i++];
+				next = i < order.length ? term(order[i]) : null;
+			} else {
+				merged[rank] = lookup(added[j++]);
+			}
+		}
+		int[] newRanks = new int[n];
+		for (int rank = 0; rank < n; rank++) {
+			newRanks[merged[rank]] = rank;
+		}
+		order = merged;
+		ranks = newRanks;
+		return ranks;
+	}
+
+	/**
+	 * @return a sink interning every token into this dictionary and appending its id to ids
+	 */
+	public Tokenizer.TokenSink sink(IdList ids) {
+		return (buffer, offset, length) -> ids.add(intern(buffer, offset, length));
+	}
+
+	/**
+	 * Intern every word of a document.
+	 * 
+	 * @param words the words of a document
+	 * @return the ids of the words, in the same order
+	 */
+	public int[] intern(List<String> words) {
+		int[] ids = new int[words.size()];
+		int i = 0;
+		for (String word : words) {
+			ids[i++] = intern(word);
+		}
+		return ids;
+	}
+
+	private int add(int slot, int hash, String term) {
+		if (size == terms.length) {
+			terms = Arrays.copyOf(terms, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int id = size++;
+		terms[id] = term;
+		hashes[id] = hash;
+		table[slot] = id + 1;
+		if (size * 2 > table.length) { // keep the load factor under 1/2
+			rehash();
+		}
+		return id;
+	}
+
+	/**
+	 * Find a known term without locking. The fields are read optimistically
+	 * and the result only trusted if no term was added meanwhile, otherwise
+	 * the lookup is done again under the read lock.
+	 * 
+	 * @return the id of the term, -1 if unknown
+	 */
+	private int lookup(int hash, String term, char[] buffer, int offset, int length) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			int[] t = table;
+			int slot = probe(t, hashes, terms, hash, term, buffer, offset, length);
+			int id = slot < 0 ? -1 : t[slot] - 1;
+			if (lock.validate(stamp)) {
+				return id;
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return table[probe(table, hashes, terms, hash, term, buffer, offset, length)] - 1;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Look for a term given either as a String or as a buffer range. Never
+	 * throws even if the arrays are being changed by a concurrent add, the
+	 * caller then validates and retries.
+	 * 
+	 * @return the slot holding the term or the empty slot where it belongs,
+	 *         -1 if the arrays were seen in an inconsistent state
+	 */
+	private static int probe(int[] table, int[] hashes, String[] terms, int hash, String term, char[] buffer,
+			int offset, int length) {
+		int mask = table.length - 1;
+		int slot = mix(hash) & mask;
+		for (int probes = 0; probes < table.length; probes++) {
+			int id = table[slot] - 1;
+			if (id < 0) {
+				return slot;
+			}
+			if (id < hashes.length && id < terms.length && hashes[id] == hash) {
+				String candidate = terms[id];
+				if (candidate != null
+						&& (term != null ? candidate.equals(term) : equals(candidate, buffer, offset, length))) {
+					return slot;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash() {
+		int[] bigger = new int[table.length * 2];
+		int mask = bigger.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = mix(hashes[id]) & mask;
+			while (bigger[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			bigger[slot] = id + 1;
+		}
+		table = bigger;
+	}
+
+	/**
+	 * Same value as String.hashCode, so both kinds of lookups agree
+	 */
+	private static int hash(char[] buffer, int offset, int length) {
+		int h = 0;
+		for (int i = offset, end = offset + length; i < end; i++) {
+			h = 31 * h + buffer[i];
+		}
+		return h;
+	}
+
+	/**
+	 * Spread the hash over all the bits, hashes of similar short words differ
+	 * in a few low bits and would pile up in long probe runs
+	 */
+	private static int mix(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equals(String term, char[] buffer, int offset, int length) {
+		if (term.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (term.charAt(i) != buffer[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * A growable list of term ids
+	 */
+	public static class IdList {
+		private int[] ids = new int[256];
+		private int size;
+
+		public void add(int id) {
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @return a copy of the ids
+		 */
+		public int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+
+		public void clear() {
+			size = 0;
+		}
+	}
+}
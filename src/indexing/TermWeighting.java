@@ -0,0 +1,46 @@
+package indexing;
+
+/**
+ * How createAutocompleteFile weighs the terms of an inverted index, the
+ * autocomplete suggestions of a prefix being ranked by reverse weight.
+ */
+public enum TermWeighting {
+
+	/**
+	 * The number of documents containing the term.
+	 */
+	DOC_FREQ {
+		@Override
+		public long weight(InvertedIndex index, String term) {
+			return index.docFreq(term);
+		}
+	},
+
+	/**
+	 * The TF-IDF of the term summed over the documents containing it, in
+	 * thousandths: frequent terms that are specific to a few documents rank
+	 * above terms spread evenly across the corpus.
+	 */
+	TF_IDF {
+		@Override
+		public long weight(InvertedIndex index, String term) {
+			Postings postings = index.postings(term);
+			if (postings == null) {
+				return 0;
+			}
+			double sum = 0;
+			Postings.Cursor cursor = postings.cursor();
+			while (cursor.nextDoc() != Postings.Cursor.NO_MORE_DOCS) {
+				sum += cursor.score();
+			}
+			return Math.round(Math.max(sum, 0) * 1000);
+		}
+	};
+
+	/**
+	 * @param index an inverted index
+	 * @param term a term of the index
+	 * @return the weight of the term, not negative, 0 if no document contains it
+	 */
+	public abstract long weight(InvertedIndex index, String term);
+}
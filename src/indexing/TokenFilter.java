@@ -0,0 +1,207 @@
+package indexing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import indexing.Tokenizer.TokenSink;
+
+/**
+ * Drops noise words between the Tokenizer and the index, before they are
+ * counted or scored: stopwords (IIndexBuilder.STOPWORDS), words shorter or
+ * longer than given lengths, numbers (words of digits only) and the words of
+ * a document past a maximum count. The words kept can then be stemmed, so
+ * that trees and tree are one term.
+ * 
+ * A new TokenFilter keeps every word as it is, each rule is switched on by
+ * its setter; standard() switches them all on but stemming. The rules apply
+ * to the words before they are stemmed. Words are checked on the Tokenizer buffer,
+ * so a dropped word never becomes a String or a term id. Positions are
+ * counted in the words kept, so a query must be filtered and stemmed the same
+ * way (QueryEngine.setTokenFilter): "war on terror" then matches the indexed
+ * words war terror. Set the rules before the filter is used, it can then be
+ * shared by any number of threads.
+ */
+public class TokenFilter {
+
+	private final TermDictionary stopwords = new TermDictionary(); // looked up straight from the buffer
+	private boolean keepStopwords = true;
+	private boolean keepNumbers = true;
+	private int minLength = 1;
+	private int maxLength = Integer.MAX_VALUE;
+	private int maxTokens = Integer.MAX_VALUE;
+	private Stemmer stemmer; // null to keep the words as they are
+
+	/**
+	 * A filter keeping every word.
+	 */
+	public TokenFilter() {
+		for (String stopword : IIndexBuilder.STOPW) {
+			for (String word : Tokenizer.tokenize(stopword)) {
+				stopwords.intern(word);
+			}
+		}
+	}
+
+	/**
+	 * @return a filter dropping stopwords, numbers, words of 1 or more than
+	 *         32 characters (urls and other glued words) and the words of a
+	 *         document after its first 20000
+	 */
+	public static TokenFilter standard() {
+		TokenFilter filter = new TokenFilter();
+		filter.setKeepStopwords(false);
+		filter.setKeepNumbers(false);
+		filter.setLengths(2, 32);
+		filter.setMaxTokens(20000);
+		return filter;
+	}
+
+	/**
+	 * @param keepStopwords false to drop the stopwords, true by default
+	 */
+	public void setKeepStopwords(boolean keepStopwords) {
+		this.keepStopwords = keepStopwords;
+	}
+
+	/**
+	 * @param keepNumbers false to drop the words made of digits only, true by default
+	 */
+	public void setKeepNumbers(boolean keepNumbers) {
+		this.keepNumbers = keepNumbers;
+	}
+
+	/**
+	 * @param minLength the length of the shortest word kept, 1 by default
+	 * @param maxLength the length of the longest word kept, unlimited by default
+	 */
+	public void setLengths(int minLength, int maxLength) {
+		if (minLength < 1 || maxLength < minLength) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.minLength = minLength;
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * @param maxTokens the number of words kept of a document, the next ones are dropped, unlimited by default
+	 */
+	public void setMaxTokens(int maxTokens) {
+		if (maxTokens < 1) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.maxTokens = maxTokens;
+	}
+
+	/**
+	 * @param stemmer stems the words kept, null (the default) to keep them as they are
+	 */
+	public void setStemmer(Stemmer stemmer) {
+		this.stemmer = stemmer;
+	}
+
+	/**
+	 * Check a word against every rule but the maximum number of words.
+	 * 
+	 * @param buffer holds the word
+	 * @param offset index of the first character of the word
+	 * @param length number of characters of the word
+	 * @return true if the word is kept
+	 */
+	public boolean accept(char[] buffer, int offset, int length) {
+		if (length < minLength || length > maxLength) {
+			return false;
+		}
+		if (!keepNumbers && isNumber(buffer, offset, length)) {
+			return false;
+		}
+		return keepStopwords || stopwords.lookup(buffer, offset, length) < 0;
+	}
+
+	/**
+	 * @param word a word as returned by the Tokenizer
+	 * @return true if the word is kept, see accept(char[], int, int)
+	 */
+	public boolean accept(String word) {
+		return accept(word.toCharArray(), 0, word.length());
+	}
+
+	/**
+	 * @param word a word of a query as returned by the Tokenizer
+	 * @return the word as indexed, stemmed if a stemmer is set, null if it is dropped
+	 */
+	public String normalize(String word) {
+		if (!accept(word)) {
+			return null;
+		}
+		return stemmer == null ? word : stemmer.stem(word);
+	}
+
+	/**
+	 * @param sink the sink the words kept are pushed to
+	 * @return a sink filtering and stemming the words of one document
+	 */
+	public TokenSink sink(TokenSink sink) {
+		if (keepsEverything()) {
+			return sink;
+		}
+		return new TokenSink() {
+			private int tokens;
+
+			@Override
+			public void token(char[] buffer, int offset, int length) {
+				if (tokens < maxTokens && accept(buffer, offset, length)) {
+					tokens++;
+					if (stemmer == null) {
+						sink.token(buffer, offset, length);
+					} else {
+						char[] stem = stemmer.stem(buffer, offset, length);
+						sink.token(stem, 0, stem.length);
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Tokenize a whole text into the list of the words kept.
+	 * 
+	 * @param text the text
+	 * @return the words kept, in order
+	 */
+	public List<String> tokenize(CharSequence text) {
+		List<String> words = new ArrayList<String>();
+		Tokenizer tokenizer = new Tokenizer(sink(Tokenizer.listSink(words)));
+		tokenizer.append(text);
+		tokenizer.end();
+		return words;
+	}
+
+	/**
+	 * Tokenize a whole text into the term ids of the words kept.
+	 * 
+	 * @param text the text
+	 * @param dictionary the dictionary the words are interned into
+	 * @return the ids of the words kept, in order
+	 */
+	public int[] tokenize(CharSequence text, TermDictionary dictionary) {
+		TermDictionary.IdList ids = new TermDictionary.IdList();
+		Tokenizer tokenizer = new Tokenizer(sink(dictionary.sink(ids)));
+		tokenizer.append(text);
+		tokenizer.end();
+		return ids.toArray();
+	}
+
+	private boolean keepsEverything() {
+		return keepStopwords && keepNumbers && minLength == 1 && maxLength == Integer.MAX_VALUE
+				&& maxTokens == Integer.MAX_VALUE && stemmer == null;
+	}
+
+	private static boolean isNumber(char[] buffer, int offset, int length) {
+		for (int i = offset, end = offset + length; i < end; i++) {
+			if (buffer[i] < '0' || buffer[i] > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
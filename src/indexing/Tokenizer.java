@@ -0,0 +1,159 @@
+package indexing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits text into lowercase words made of the characters [a-z0-9].
+ * 
+ * The text is scanned once: letters are lowercased and other characters
+ * dropped as they are read, and each finished word is pushed to a TokenSink
+ * as a slice of an internal buffer. No copy of the text is made, so the only
+ * allocations left are the ones the sink decides to do.
+ * 
+ * This gives the words of
+ * text.toLowerCase().replaceAll("[^a-zA-Z0-9 ]", "").split("\\s+")
+ * with two differences: empty words are never produced, and tabs, line
+ * breaks and form feeds separate words like spaces do. The regex removed
+ * them before splitting, so "end\nof line" became "endof", "line".
+ * 
+ * Text can be handed over in several chunks (a word may span two chunks),
+ * end() must be called after the last one. A Tokenizer is not thread safe.
+ */
+public class Tokenizer {
+
+	/**
+	 * Receives the words found by a Tokenizer.
+	 */
+	public interface TokenSink {
+		/**
+		 * @param buffer holds the word, only valid until this method returns
+		 * @param offset index of the first character of the word
+		 * @param length number of characters of the word, never 0
+		 */
+		void token(char[] buffer, int offset, int length);
+	}
+
+	private final TokenSink sink;
+	private char[] buffer = new char[32];
+	private int length; // characters of the word being read
+
+	/**
+	 * @param sink the sink words are pushed to
+	 */
+	public Tokenizer(TokenSink sink) {
+		if (sink == null) {
+			throw new IllegalArgumentException("Illegal arguments");
+		}
+		this.sink = sink;
+	}
+
+	/**
+	 * Tokenize the next chunk of text.
+	 * 
+	 * @param text the chunk
+	 */
+	public void append(CharSequence text) {
+		for (int i = 0, n = text.length(); i < n; i++) {
+			accept(text.charAt(i));
+		}
+	}
+
+	/**
+	 * Tokenize the next chunk of text.
+	 * 
+	 * @param chars holds the chunk
+	 * @param offset index of the first character of the chunk
+	 * @param count number of characters of the chunk
+	 */
+	public void append(char[] chars, int offset, int count) {
+		for (int i = offset, end = offset + count; i < end; i++) {
+			accept(chars[i]);
+		}
+	}
+
+	/**
+	 * Flush the last word. The tokenizer can then be reused for another text.
+	 */
+	public void end() {
+		if (length > 0) {
+			sink.token(buffer, 0, length);
+			length = 0;
+		}
+	}
+
+	/**
+	 * Tokenize a whole text into a list of words.
+	 * 
+	 * @param text the text
+	 * @return the words of the text in order
+	 */
+	public static List<String> tokenize(CharSequence text) {
+		List<String> words = new ArrayList<String>();
+		Tokenizer tokenizer = new Tokenizer(listSink(words));
+		tokenizer.append(text);
+		tokenizer.end();
+		return words;
+	}
+
+	/**
+	 * Tokenize a whole text into term ids, no String is created for known terms.
+	 * 
+	 * @param text the text
+	 * @param dictionary the dictionary the words are interned into
+	 * @return the ids of the words of the text in order
+	 */
+	public static int[] tokenize(CharSequence text, TermDictionary dictionary) {
+		TermDictionary.IdList ids = new TermDictionary.IdList();
+		Tokenizer tokenizer = new Tokenizer(dictionary.sink(ids));
+		tokenizer.append(text);
+		tokenizer.end();
+		return ids.toArray();
+	}
+
+	/**
+	 * @param words the list to fill
+	 * @return a sink adding every word to the list
+	 */
+	public static TokenSink listSink(List<String> words) {
+		return new TokenSink() {
+			@Override
+			public void token(char[] buffer, int offset, int length) {
+				words.add(new String(buffer, offset, length));
+			}
+		};
+	}
+
+	private void accept(char c) {
+		char lower = lower(c);
+		if (lower != 0) {
+			if (length == buffer.length) {
+				char[] bigger = new char[buffer.length * 2];
+				System.arraycopy(buffer, 0, bigger, 0, length);
+				buffer = bigger;
+			}
+			buffer[length++] = lower;
+		} else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f') {
+			end(); // a separator, anything else is dropped and glues the letters around it
+		}
+	}
+
+	/**
+	 * @return the lowercase form of c if it is kept in a word, 0 otherwise
+	 */
+	private static char lower(char c) {
+		if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+			return c;
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return (char) (c + ('a' - 'A'));
+		}
+		if (c < 0x80) {
+			return 0;
+		}
+		// String.toLowerCase turns a few non ascii letters into ascii ones (KELVIN SIGN -> k,
+		// capital I with dot -> i + combining dot), keep them like the regex version did
+		char l = c == '\u0130' ? 'i' : Character.toLowerCase(c);
+		return l >= 'a' && l <= 'z' ? l : 0;
+	}
+}
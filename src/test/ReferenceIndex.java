@@ -0,0 +1,58 @@
+package test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The original implementation of buildIndex, before the term dictionary: a
+ * HashSet per document for DF, containsKey/get/put on boxed counters for TF.
+ * The tests check buildIndex against it, bench.BuildIndexBenchmark measures
+ * buildIndex against it.
+ */
+public class ReferenceIndex {
+
+	private ReferenceIndex() {
+	}
+
+	/**
+	 * @param docs the words of each document
+	 * @return the forward index, see IIndexBuilder.buildIndex
+	 */
+	public static Map<String, Map<String, Double>> buildIndex(Map<String, List<String>> docs) {
+		Map<String, Map<String, Double>> indexMap = new HashMap<String, Map<String, Double>>();
+		int totalDoc = docs.size();
+		Map<String, Integer> exist = new HashMap<String, Integer>();
+		for (Entry<String, List<String>> htmlE : docs.entrySet()) {
+			Set<String> terms = new HashSet<String>(htmlE.getValue());
+			for (String term : terms) {
+				if (!exist.containsKey(term)) {
+					exist.put(term, 0);
+				}
+				exist.put(term, exist.get(term) + 1);
+			}
+		}
+		for (Entry<String, List<String>> htmlF : docs.entrySet()) {
+			int totalTerm = htmlF.getValue().size();
+			Map<String, Integer> numOfTerm = new HashMap<String, Integer>();
+			Map<String, Double> TFIDF = new TreeMap<String, Double>();
+			for (String term : htmlF.getValue()) {
+				if (!numOfTerm.containsKey(term)) {
+					numOfTerm.put(term, 0);
+				}
+				numOfTerm.put(term, numOfTerm.get(term) + 1);
+			}
+			for (Entry<String, Integer> num : numOfTerm.entrySet()) {
+				String term = num.getKey();
+				double data = ((double) num.getValue() / (double) totalTerm) * Math.log((double) totalDoc / (double) exist.get(term));
+				TFIDF.put(term, data);
+			}
+			indexMap.put(htmlF.getKey(), TFIDF);
+		}
+		return indexMap;
+	}
+}
@@ -0,0 +1,82 @@
+package test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local http server standing in for the news sites in tests. Pages are
+ * served with an ETag and If-None-Match is answered with 304. "{base}" in a
+ * page is replaced by the address of the server. Paths in statuses are
+ * answered with that status and no body.
+ */
+public class StubServer {
+
+	public final Map<String, String> pages = new ConcurrentHashMap<String, String>();
+	public final Map<String, Integer> statuses = new ConcurrentHashMap<String, Integer>();
+	public final AtomicInteger requests = new AtomicInteger();
+	public final AtomicInteger notModified = new AtomicInteger();
+	private final HttpServer server;
+
+	public StubServer() throws IOException {
+		pages.put("/feed.xml", "<rss><channel><item><link>{base}/page1.html</link></item>"
+				+ "<item><link>{base}/page2.html</link></item></channel></rss>");
+		pages.put("/page1.html", "<html><body>binary trees</body></html>");
+		pages.put("/page2.html", "<html><body>red black trees</body></html>");
+
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::handle);
+		server.start();
+	}
+
+	/**
+	 * @return http://localhost:port
+	 */
+	public String base() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	public void stop() {
+		server.stop(0);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		requests.incrementAndGet();
+		Integer status = statuses.get(exchange.getRequestURI().getPath());
+		if (status != null) {
+			exchange.sendResponseHeaders(status, -1);
+			exchange.close();
+			return;
+		}
+		String body = pages.get(exchange.getRequestURI().getPath());
+		if (body == null) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		body = body.replace("{base}", base());
+		String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+		exchange.getResponseHeaders().set("ETag", etag);
+		if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+			notModified.incrementAndGet();
+			exchange.sendResponseHeaders(304, -1);
+			exchange.close();
+			return;
+		}
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		String path = exchange.getRequestURI().getPath();
+		String type = path.endsWith(".xml") ? "text/xml" : path.endsWith(".pdf") ? "application/pdf" : "text/html";
+		exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import autocomplete.Autocomplete;
+import autocomplete.ITerm;
+import autocomplete.Term;
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.TermWeighting;
+
+/**
+ * Checks the weights of the terms of an index and the best first top-k of the trie.
+ */
+public class TestAutocomplete {
+
+	@Test
+	public void testTermWeighting() {
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, Map<String, Double>> forward = builder.buildIndex(Map.of(
+				"http://news.com/0.html", List.of("war", "war", "court"),
+				"http://news.com/1.html", List.of("war", "coast"),
+				"http://news.com/2.html", List.of("court", "coast", "coast")));
+		InvertedIndex inverted = builder.buildInvertedIndex(forward);
+		assertEquals(2, TermWeighting.DOC_FREQ.weight(inverted, "war"));
+		assertEquals(0, TermWeighting.DOC_FREQ.weight(inverted, "peace"));
+		double sum = forward.get("http://news.com/0.html").get("war") + forward.get("http://news.com/1.html").get("war");
+		assertEquals(Math.round(sum * 1000), TermWeighting.TF_IDF.weight(inverted, "war"));
+		assertTrue(TermWeighting.TF_IDF.weight(inverted, "coast") > 0);
+		assertEquals(0, TermWeighting.TF_IDF.weight(inverted, "peace"));
+	}
+
+	@Test
+	public void testReverseWeightOrder() {
+		List<ITerm> terms = new ArrayList<ITerm>(List.of(new Term("a", 0), new Term("b", Long.MAX_VALUE),
+				new Term("c", 1L << 32), new Term("d", 1)));
+		Collections.sort(terms, ITerm.byReverseWeightOrder());
+		assertEquals("[" + Long.MAX_VALUE + "\tb, " + (1L << 32) + "\tc, 1\td, 0\ta]", terms.toString());
+	}
+
+	/**
+	 * topSuggestions returns the first k words of getSuggestions sorted by reverse weight
+	 */
+	@Test
+	public void testTopSuggestions() {
+		Random random = new Random(7);
+		Autocomplete auto = new Autocomplete();
+		for (int w = 0; w < 3000; w++) {
+			StringBuilder word = new StringBuilder();
+			for (int i = 1 + random.nextInt(6); i > 0; i--) {
+				word.append((char) ('a' + random.nextInt(4)));
+			}
+			auto.addWord(word.toString(), random.nextInt(50)); // ties, and words added twice
+		}
+		for (String prefix : List.of("", "a", "ab", "dcb", "abcd")) {
+			List<ITerm> all = auto.getSuggestions(prefix);
+			Collections.sort(all, ITerm.byReverseWeightOrder()); // stable: lexicographic among ties
+			for (int k : new int[] { 1, 10, 100, all.size() + 1 }) {
+				assertEquals(all.subList(0, Math.min(k, all.size())), auto.topSuggestions(prefix, k));
+			}
+		}
+		assertEquals(0, auto.topSuggestions("z", 10).size());
+		assertEquals(0, auto.topSuggestions("a", 0).size());
+	}
+}
@@ -0,0 +1,162 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import autocomplete.Autocomplete;
+import autocomplete.DictionaryFile;
+import autocomplete.ITerm;
+import autocomplete.Node;
+import autocomplete.Term;
+
+/**
+ * Checks that a trie loaded from a binary dictionary file is the trie of the text file.
+ */
+public class TestDictionaryFile {
+
+	Map<String, Long> weights;
+	Path dir;
+	Path file;
+	Path text;
+
+	@Before
+	public void setUp() throws Exception {
+		weights = new HashMap<String, Long>();
+		for (String word : new String[] { "tree", "trees", "treetop", "trie", "try", "a", "ab", "abc", "b", "zebra",
+				"covid19", "2020", "x-ray", "\u00e9t\u00e9", "Court" }) {
+			weights.put(word, (long) word.hashCode() & 0xFFFF);
+		}
+		weights.put("max", Long.MAX_VALUE);
+		dir = Files.createTempDirectory("dictionary");
+		file = dir.resolve("autocomplete.dict");
+		text = dir.resolve("autocomplete.txt");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(text);
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		DictionaryFile.write(weights, file);
+		assertTrue(DictionaryFile.isDictionary(file));
+		Map<String, Long> read = new TreeMap<String, Long>();
+		List<String> order = new ArrayList<String>();
+		DictionaryFile.read(file, (term, length, shared, weight) -> {
+			String word = new String(term, 0, length, StandardCharsets.UTF_8);
+			order.add(word);
+			read.put(word, weight);
+		});
+		assertEquals(weights, read);
+		List<String> sorted = new ArrayList<String>(order);
+		sorted.sort(null); // the ascii words sort the same as their bytes, the accented one last
+		assertEquals(sorted, order);
+
+		DictionaryFile.writeText(weights, text);
+		assertFalse(DictionaryFile.isDictionary(text));
+		assertEquals(weights.size() + 1, Files.readAllLines(text).size());
+	}
+
+	@Test
+	public void testSameTrieAsText() throws Exception {
+		DictionaryFile.write(weights, file);
+		DictionaryFile.writeText(weights, text);
+		Autocomplete binary = new Autocomplete();
+		Autocomplete plain = new Autocomplete();
+		binary.buildTrie(file.toString(), 6); // detected by its header
+		plain.buildTrie(text.toString(), 6);
+		assertEquals(6, binary.numberSuggestions());
+		assertSameTrie(plain.getRoot(), binary.getRoot());
+		assertEquals(12, binary.countPrefixes(""));
+		assertEquals(3, binary.countPrefixes("tree"));
+		List<ITerm> suggestions = binary.getSuggestions("tr");
+		assertEquals(5, suggestions.size());
+		assertEquals("tree", ((Term) suggestions.get(0)).getTerm());
+		assertEquals(Long.MAX_VALUE, ((Term) binary.getSuggestions("max").get(0)).getWeight());
+	}
+
+	@Test
+	public void testReplace() throws Exception {
+		DictionaryFile.write(weights, file);
+		byte[] before = Files.readAllBytes(file);
+		weights.put("bad", -1L);
+		try {
+			DictionaryFile.write(weights, file);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(List.of(file), list(dir));
+		assertArrayEquals(before, Files.readAllBytes(file));
+
+		weights.remove("bad");
+		weights.remove("zebra");
+		DictionaryFile.write(weights, file);
+		Autocomplete auto = new Autocomplete();
+		auto.buildTrie(file, 6);
+		assertEquals(0, auto.countPrefixes("z"));
+		assertEquals(List.of(file), list(dir));
+	}
+
+	@Test
+	public void testCorrupt() throws Exception {
+		DictionaryFile.write(weights, file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+		try {
+			new Autocomplete().buildTrie(file, 6);
+			fail();
+		} catch (IOException e) {
+		}
+		bytes[7] = 99; // version
+		Files.write(file, bytes);
+		try {
+			DictionaryFile.read(file, (term, length, shared, weight) -> {
+			});
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	private static List<Path> list(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.collect(Collectors.toList());
+		}
+	}
+
+	private static void assertSameTrie(Node expected, Node actual) {
+		assertEquals(expected.getWords(), actual.getWords());
+		assertEquals(expected.getPrefixes(), actual.getPrefixes());
+		assertEquals(String.valueOf(expected.getTerm()), String.valueOf(actual.getTerm()));
+		for (int i = 0; i < 26; i++) {
+			Node child = expected.getReferences()[i];
+			if (child == null) {
+				assertEquals(null, actual.getReferences()[i]);
+			} else {
+				assertSameTrie(child, actual.getReferences()[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,84 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import feed.LiveFeedSource;
+import feed.RecordingFeedSource;
+import feed.ReplayFeedSource;
+import indexing.FeedListing;
+import indexing.IndexBuilder;
+
+/**
+ * Records a feed served locally, then replays it without the server
+ */
+public class TestFeedSource {
+
+	StubServer server;
+	List<String> feeds;
+	Path corpus;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		feeds = List.of(server.base() + "/feed.xml");
+		corpus = Files.createTempDirectory("corpus");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		try (Stream<Path> files = Files.walk(corpus)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testReplayMatchesLive() throws Exception {
+		Map<String, List<String>> live = new IndexBuilder(
+				new RecordingFeedSource(new LiveFeedSource(), corpus), 0, 0).parseFeed(feeds);
+		server.pages.clear(); // a request reaching the server now fails
+		int requests = server.requests.get();
+
+		ReplayFeedSource replay = new ReplayFeedSource(corpus);
+		assertEquals(3, replay.getUrls().size());
+		assertEquals(live, new IndexBuilder(replay, 0, 0).parseFeed(feeds));
+		assertEquals(live, new IndexBuilder(replay, 4, 2).parseFeed(feeds));
+		assertEquals(requests, server.requests.get());
+	}
+
+	/**
+	 * An article or feed that fails is skipped, sequentially and concurrently,
+	 * and the listing tells which feeds were read
+	 */
+	@Test
+	public void testFailuresSkipped() throws Exception {
+		server.pages.put("/feed.xml", "<rss><channel><item><link>{base}/page1.html</link></item>"
+				+ "<item><link>{base}/missing.html</link></item><item><link>{base}/page2.html</link></item></channel></rss>");
+		List<String> withMissing = List.of(server.base() + "/missing.xml", server.base() + "/feed.xml");
+		for (IndexBuilder builder : List.of(new IndexBuilder(new LiveFeedSource(), 0, 0),
+				new IndexBuilder(new LiveFeedSource(), 4, 2))) {
+			FeedListing listing = new FeedListing(withMissing);
+			Map<String, List<String>> parsed = builder.parseFeed(listing);
+			assertEquals(Set.of(server.base() + "/page1.html", server.base() + "/page2.html"), parsed.keySet());
+			assertEquals(List.of("red", "black", "trees"), parsed.get(server.base() + "/page2.html"));
+			assertFalse(listing.isComplete(withMissing.get(0)));
+			assertTrue(listing.isComplete(withMissing.get(1)));
+			assertEquals(Set.of(server.base() + "/page1.html", server.base() + "/missing.html", server.base() + "/page2.html"),
+					listing.links(withMissing.get(1))); // listed, even when the download failed
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.jsoup.HttpStatusException;
+import org.jsoup.UnsupportedMimeTypeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import feed.FeedSource;
+import feed.HttpCache;
+import feed.LiveFeedSource;
+import feed.Page;
+import indexing.IndexBuilder;
+
+/**
+ * Runs the cache against a local server answering If-None-Match with 304
+ */
+public class TestHttpCache {
+
+	StubServer server;
+	String base;
+	Path dir;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		base = server.base();
+		dir = Files.createTempDirectory("httpcache");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testRevalidate() throws Exception {
+		HttpCache cache = new HttpCache(dir, 1 << 20);
+		Page first = cache.fetch(base + "/page1.html");
+		Page second = cache.fetch(base + "/page1.html");
+		assertFalse(first.isFromCache());
+		assertTrue(second.isFromCache());
+		assertArrayEquals(first.getBody().readAllBytes(), second.getBody().readAllBytes());
+		assertEquals(2, server.requests.get());
+		assertEquals(1, server.notModified.get());
+	}
+
+	@Test
+	public void testPersistedAcrossInstances() throws Exception {
+		HttpCache cache = new HttpCache(dir, 1 << 20);
+		cache.fetch(base + "/page1.html");
+		cache.flush();
+
+		HttpCache reopened = new HttpCache(dir, 1 << 20);
+		assertTrue(reopened.fetch(base + "/page1.html").isFromCache());
+		assertEquals(1, server.notModified.get());
+	}
+
+	@Test
+	public void testRebuildOnlyDownloadsChangedPages() throws Exception {
+		HttpCache cache = new HttpCache(dir, 1 << 20);
+		IndexBuilder builder = new IndexBuilder(new LiveFeedSource(cache), 4, 2);
+		List<String> feeds = List.of(base + "/feed.xml");
+		builder.parseFeed(feeds);
+		assertEquals(3, cache.getDownloaded());
+
+		server.pages.put("/page2.html", "<html><body>avl trees</body></html>");
+		Map<String, List<String>> parsed = builder.parseFeed(feeds);
+		assertEquals(4, cache.getDownloaded());
+		assertEquals(2, cache.getRevalidated());
+		assertEquals(List.of("avl", "trees"), parsed.get(base + "/page2.html"));
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		int size = Math.max(server.pages.get("/page1.html").length(), server.pages.get("/page2.html").length());
+		HttpCache cache = new HttpCache(dir, size + 1); // room for a single page
+		cache.fetch(base + "/page1.html");
+		cache.fetch(base + "/page2.html");
+		assertEquals(1, cache.getEntryCount());
+		assertFalse(cache.fetch(base + "/page1.html").isFromCache());
+	}
+
+	@Test
+	public void testStatusWithoutBody() throws Exception {
+		server.statuses.put("/empty.html", 204);
+		server.statuses.put("/stale.html", 304); // nothing cached to revalidate
+		HttpCache cache = new HttpCache(dir, 1 << 20);
+		for (String path : List.of("/empty.html", "/stale.html")) {
+			try {
+				cache.fetch(base + path);
+				fail(path);
+			} catch (HttpStatusException e) {
+				assertEquals(server.statuses.get(path).intValue(), e.getStatusCode());
+			}
+		}
+		assertEquals(0, cache.getDownloaded());
+		assertEquals(0, cache.getEntryCount());
+	}
+
+	@Test
+	public void testSameChecksAsLive() throws Exception {
+		server.pages.put("/file.pdf", "%PDF-1.4");
+		HttpCache cache = new HttpCache(dir, 1 << 20);
+		for (FeedSource source : List.of(new LiveFeedSource(), new LiveFeedSource(cache))) {
+			try {
+				source.fetch(base + "/file.pdf");
+				fail();
+			} catch (UnsupportedMimeTypeException e) {
+				// not text, as without the cache
+			}
+		}
+		assertEquals(0, cache.getEntryCount());
+	}
+}
@@ -0,0 +1,202 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import indexing.FeedListing;
+import indexing.HomePage;
+import indexing.IncrementalIndex;
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.Postings;
+import indexing.TermDictionary;
+
+/**
+ * Checks that an index updated one document at a time matches a full rebuild.
+ */
+public class TestIncrementalIndex {
+
+	Map<String, List<String>> docs;
+	IndexBuilder tIndex;
+	IncrementalIndex index;
+
+	@Before
+	public void setUp() {
+		tIndex = new IndexBuilder();
+		docs = TestIndexEngine.corpus(200, 500, 3000, 11);
+		index = new IncrementalIndex(new TermDictionary());
+		for (Entry<String, List<String>> doc : docs.entrySet()) {
+			assertTrue(index.addDocument(doc.getKey(), doc.getValue()));
+		}
+	}
+
+	@Test
+	public void testMatchesRebuild() {
+		assertRebuilt();
+	}
+
+	@Test
+	public void testAddRemoveUpdate() {
+		Map<String, List<String>> other = TestIndexEngine.corpus(20, 500, 3000, 12);
+		List<String> names = new ArrayList<String>(docs.keySet());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(index.removeDocument(names.get(i)));
+			docs.remove(names.get(i));
+		}
+		assertFalse(index.removeDocument(names.get(0)));
+		for (int i = 20; i < 40; i++) {
+			List<String> words = other.get("http://news.com/article" + (i - 20) + ".html");
+			assertTrue(index.updateDocument(names.get(i), words));
+			docs.put(names.get(i), words);
+		}
+		assertFalse(index.updateDocument(names.get(40), docs.get(names.get(40)))); // unchanged
+		index.addDocument("http://news.com/new.html", List.of("trees", "binary", "trees"));
+		docs.put("http://news.com/new.html", List.of("trees", "binary", "trees"));
+		assertEquals(1, index.docFreq("trees"));
+		assertRebuilt();
+	}
+
+	@Test
+	public void testSync() {
+		Map<String, List<String>> next = new HashMap<String, List<String>>(docs);
+		List<String> names = new ArrayList<String>(docs.keySet());
+		next.remove(names.get(0));
+		next.put(names.get(1), List.of("red", "black", "trees"));
+		next.put("http://news.com/new.html", List.of("trees"));
+		assertEquals(3, index.sync(next));
+		docs = next;
+		assertRebuilt();
+	}
+
+	@Test
+	public void testSyncListing() {
+		List<String> names = new ArrayList<String>(docs.keySet());
+		FeedListing listing = new FeedListing(List.of("feed1", "feed2"));
+		for (int i = 0; i < names.size(); i++) {
+			listing.listed(i < 100 ? "feed1" : "feed2", names.get(i));
+		}
+		listing.complete("feed1");
+		listing.complete("feed2");
+		assertEquals(0, index.sync(docs, listing));
+
+		// feed1 fails after its first 10 links, feed2 drops one link and one download fails
+		Map<String, List<String>> parsed = new HashMap<String, List<String>>(docs);
+		listing = new FeedListing(List.of("feed1", "feed2"));
+		for (int i = 0; i < names.size(); i++) {
+			if (i < 10 || i >= 101) {
+				listing.listed(i < 100 ? "feed1" : "feed2", names.get(i));
+			}
+			if (i >= 10 && i < 100 || i == 100 || i == 150) {
+				parsed.remove(names.get(i));
+			}
+		}
+		listing.complete("feed2");
+		assertEquals(1, index.sync(parsed, listing));
+		docs.remove(names.get(100));
+		assertRebuilt(); // the other documents kept their words
+
+		parsed.keySet().retainAll(names.subList(0, 100));
+		assertEquals(99, index.sync(parsed, new FeedListing(List.of("feed1")))); // feed1 fails again, feed2 no longer read
+		docs.keySet().retainAll(names.subList(0, 100));
+		assertRebuilt();
+	}
+
+	@Test
+	public void testCompact() {
+		List<String> names = new ArrayList<String>(docs.keySet());
+		for (int i = 0; i < 150; i++) {
+			index.removeDocument(names.get(i));
+			docs.remove(names.get(i));
+		}
+		int interned = index.getDictionary().size();
+		IncrementalIndex compacted = index.compact();
+		assertEquals(interned, index.getDictionary().size()); // left as it was
+		assertEquals(compacted.termCount(), compacted.getDictionary().size());
+		assertTrue(compacted.getDictionary().size() < interned);
+		index = compacted;
+		assertRebuilt();
+		index.addDocument("http://news.com/new.html", List.of("trees", "binary", "trees"));
+		docs.put("http://news.com/new.html", List.of("trees", "binary", "trees"));
+		assertRebuilt();
+
+		int size = tIndex.getDictionary().size();
+		tIndex.buildInvertedIndex(tIndex.buildIndex(docs));
+		assertEquals(size, tIndex.getDictionary().size()); // each build interns into its own dictionary
+	}
+
+	@Test
+	public void testCachedPostings() {
+		index = new IncrementalIndex(new TermDictionary());
+		docs = new HashMap<String, List<String>>();
+		docs.put("c", List.of("trees", "trees", "red"));
+		docs.put("a", List.of("trees", "red", "black"));
+		docs.put("b", List.of("trees", "binary"));
+		docs.forEach(index::addDocument);
+		Postings trees = index.invertedIndex().postings("trees");
+		assertSame(trees, index.invertedIndex().postings("trees"));
+		assertEquals(List.of("a", "b", "c"), names(trees)); // in every document, TF-IDF 0
+		assertRebuilt();
+
+		index.addDocument("d", List.of("binary")); // only the document count changes for trees
+		docs.put("d", List.of("binary"));
+		assertEquals(List.of("c", "b", "a"), names(index.invertedIndex().postings("trees")));
+		assertEquals(List.of("a", "b", "c"), names(trees)); // lists already read do not change
+		assertRebuilt();
+
+		index.removeDocument("a"); // c moves into the slot of a
+		docs.remove("a");
+		index.updateDocument("c", List.of("trees", "binary"));
+		docs.put("c", List.of("trees", "binary"));
+		assertRebuilt();
+	}
+
+	static List<String> names(Postings postings) {
+		List<String> names = new ArrayList<String>();
+		for (int docId : postings.rankedDocIds()) {
+			names.add(postings.docName(docId));
+		}
+		return names;
+	}
+
+	@Test
+	public void testHomePage() {
+		HomePage homePage = index.homePage(); // updated with the documents from now on
+		List<String> names = new ArrayList<String>(docs.keySet());
+		for (int i = 0; i < 10; i++) {
+			index.removeDocument(names.get(i));
+			docs.remove(names.get(i));
+		}
+		index.updateDocument(names.get(10), List.of("a", "red", "black", "trees"));
+		docs.put(names.get(10), List.of("a", "red", "black", "trees"));
+		InvertedIndex inverted = tIndex.buildInvertedIndex(tIndex.buildIndex(docs));
+		List<Entry<String, List<String>>> expected = new ArrayList<Entry<String, List<String>>>(tIndex.buildHomePage(inverted));
+		assertEquals(expected.size(), homePage.size());
+		assertEquals(0, homePage.docFreq("a")); // stopword
+		assertEquals(expected, homePage.page(inverted, 0, Integer.MAX_VALUE));
+		assertEquals(expected.subList(40, 60), homePage.page(index.invertedIndex(), 40, 20));
+		assertEquals(expected.subList(0, 5), homePage.top(5).page(inverted, 0, 20));
+		assertEquals(0, homePage.terms(expected.size(), 20).size());
+		Entry<String, List<String>> best = homePage.page(inverted, 0, 1, 3).get(0);
+		assertEquals(expected.get(0).getValue().subList(0, 3), best.getValue());
+	}
+
+	/**
+	 * Compare with buildIndex and buildInvertedIndex on the current documents
+	 */
+	void assertRebuilt() {
+		Map<String, Map<String, Double>> forward = tIndex.buildIndex(docs);
+		assertEquals(forward, index.forwardIndex());
+		assertEquals(tIndex.buildInvertedIndex(forward), index.invertedIndex());
+	}
+}
@@ -3,6 +3,7 @@ package test;
 import org.junit.Test;
 
 import indexing.IndexBuilder;
+import indexing.InvertedIndex;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -120,16 +121,16 @@ public class TestIndexBuilder {
 		
 		// Test if the map is of the correct type (of Map)		
 		// Test if the associates the correct files to a term
-		HashMap<String, TreeSet<Entry<String, Double>>> InvertedIndex = (HashMap<String, TreeSet<Entry<String, Double>>>) tIndex.buildInvertedIndex(buildIndex);
+		InvertedIndex invertedIndex = tIndex.buildInvertedIndex(buildIndex);
 		
-		assertEquals(InvertedIndex.get("data").size(), 3); // Test term "data" page1-3
-		assertEquals(InvertedIndex.get("structures").size(), 2); // Test term "structures" page4
-		assertEquals(InvertedIndex.get("completely").size(), 1); // Test term "completely" page5
-		assertEquals(InvertedIndex.get("mallarme").size(), 1); // Test term "mallarme" page4
+		assertEquals(invertedIndex.docFreq("data"), 3); // Test term "data" page1-3
+		assertEquals(invertedIndex.docFreq("structures"), 2); // Test term "structures" page4
+		assertEquals(invertedIndex.docFreq("completely"), 1); // Test term "completely" page5
+		assertEquals(invertedIndex.docFreq("mallarme"), 1); // Test term "mallarme" page4
 		
 		// Test if the map stores the documents in the correct order 
-		assertTrue(InvertedIndex.get("data").first().getKey().equals("http://cit594.ericfouh.com/page1.html"));
-		assertTrue(InvertedIndex.get("structures").first().getKey().equals("http://cit594.ericfouh.com/page1.html"));				
+		assertTrue(tIndex.searchArticles("data", invertedIndex).get(0).equals("http://cit594.ericfouh.com/page1.html"));
+		assertTrue(tIndex.searchArticles("structures", invertedIndex).get(0).equals("http://cit594.ericfouh.com/page1.html"));				
 	}
 	
 	/**
@@ -140,11 +141,11 @@ public class TestIndexBuilder {
 		
 		Map<String, List<String>> parsedFeed = tIndex.parseFeed(feeds);
 		Map<String, Map<String, Double>> buildIndex = tIndex.buildIndex(parsedFeed);
-		HashMap<String, TreeSet<Entry<String, Double>>> InvertedIndex = (HashMap<String, TreeSet<Entry<String, Double>>>) tIndex.buildInvertedIndex(buildIndex);
+		InvertedIndex invertedIndex = tIndex.buildInvertedIndex(buildIndex);
 		
 		// Test if the collection is the correct type 
 		// Test if collection stores the entries are in the correct order
-		TreeSet<Entry<String, List<String>>> homePage = (TreeSet<Entry<String, List<String>>>) tIndex.buildHomePage(InvertedIndex);
+		TreeSet<Entry<String, List<String>>> homePage = (TreeSet<Entry<String, List<String>>>) tIndex.buildHomePage(invertedIndex);
 		ArrayList<Entry<String, List<String>>> homePageList = new ArrayList<Entry<String, List<String>>>(homePage);
 		assertEquals(homePageList.get(0).getKey(), "data");
 		assertEquals(homePageList.get(1).getKey(), "trees");
@@ -159,7 +160,7 @@ public class TestIndexBuilder {
 	public void testsearchArticles(){ 
 		Map<String, List<String>> parsedFeed = tIndex.parseFeed(feeds);
 		Map<String, Map<String, Double>> buildIndex = tIndex.buildIndex(parsedFeed);
-		HashMap<String, TreeSet<Entry<String, Double>>> invertedIndex = (HashMap<String, TreeSet<Entry<String, Double>>>) tIndex.buildInvertedIndex(buildIndex);
+		InvertedIndex invertedIndex = tIndex.buildInvertedIndex(buildIndex);
 		
 		
 		// test if Your list contains the correct number of articles
@@ -182,7 +183,7 @@ public class TestIndexBuilder {
 	public void testcreateAutocompleteFile(){ 
 		Map<String, List<String>> parsedFeed = tIndex.parseFeed(feeds);
 		Map<String, Map<String, Double>> buildIndex = tIndex.buildIndex(parsedFeed);
-		HashMap<String, TreeSet<Entry<String, Double>>> invertedIndex = (HashMap<String, TreeSet<Entry<String, Double>>>) tIndex.buildInvertedIndex(buildIndex);
+		InvertedIndex invertedIndex = tIndex.buildInvertedIndex(buildIndex);
 		
 		// Test if your collection is of the correct type
 		// Test if your collection contains the correct number of words
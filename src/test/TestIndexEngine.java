@@ -0,0 +1,135 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import indexing.ForwardIndex;
+import indexing.IndexBuilder;
+import indexing.PostingsList;
+import indexing.TermDictionary;
+
+/**
+ * Checks the indexing engine against the original string based buildIndex,
+ * on a generated corpus so no network is needed.
+ */
+public class TestIndexEngine {
+
+	Map<String, List<String>> docs;
+	IndexBuilder tIndex;
+
+	@Before
+	public void setUp() {
+		tIndex = new IndexBuilder();
+		docs = corpus(200, 500, 3000, 7);
+	}
+
+	/**
+	 * Random documents whose word frequencies follow a Zipf-like law
+	 */
+	static Map<String, List<String>> corpus(int numDocs, int maxWords, int vocabulary, long seed) {
+		Random random = new Random(seed);
+		Map<String, List<String>> docs = new HashMap<String, List<String>>();
+		for (int d = 0; d < numDocs; d++) {
+			List<String> words = new ArrayList<String>();
+			int length = random.nextInt(maxWords);
+			for (int w = 0; w < length; w++) {
+				int rank = (int) Math.pow(vocabulary, random.nextDouble()); // favors small ranks
+				words.add("w" + Integer.toString(rank, 36));
+			}
+			docs.put("http://news.com/article" + d + ".html", words);
+		}
+		return docs;
+	}
+
+	@Test
+	public void testBuildIndexMatchesOriginal() {
+		Map<String, Map<String, Double>> expected = ReferenceIndex.buildIndex(docs);
+		Map<String, Map<String, Double>> actual = tIndex.buildIndex(docs);
+		assertEquals(expected, actual); // exact, not within a tolerance
+		for (String doc : expected.keySet()) { // same lexicographic order of the terms
+			assertEquals(new ArrayList<String>(expected.get(doc).keySet()), new ArrayList<String>(actual.get(doc).keySet()));
+		}
+	}
+
+	@Test
+	public void testFailedDocumentLeavesNoCounts() {
+		List<String> bad = new ArrayList<String>(List.of("w1", "w2", "w1"));
+		bad.add(null);
+		try {
+			tIndex.buildIndex(Map.of("http://news.com/bad.html", bad));
+			fail();
+		} catch (NullPointerException e) {
+		}
+		assertEquals(ReferenceIndex.buildIndex(docs), tIndex.buildIndex(docs)); // same thread, same counter
+	}
+
+	@Test
+	public void testParallelBuildIndexMatchesSerial() {
+		Map<String, Map<String, Double>> expected = tIndex.buildIndex(docs);
+		for (int parallelism : new int[] { 1, 2, 3, 8 }) {
+			assertEquals(expected, new IndexBuilder().buildIndex(docs, parallelism)); // fresh dictionary, ids differ
+			assertEquals(expected, tIndex.buildIndex(docs, parallelism));
+		}
+	}
+
+	@Test
+	public void testCompactForwardIndex() {
+		Map<String, Map<String, Double>> index = tIndex.buildIndex(docs);
+		assertTrue(index instanceof ForwardIndex);
+		String doc = docs.keySet().iterator().next();
+		assertNull(index.get(doc).get("notaterm"));
+		assertNull(index.get("http://news.com/missing.html"));
+		try {
+			index.get(doc).put("w1", 1.0);
+			fail("the index is read only");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		// the fast path on term ids gives the same postings as the generic one
+		assertEquals(tIndex.buildInvertedIndex(ReferenceIndex.buildIndex(docs)), tIndex.buildInvertedIndex(index));
+	}
+
+	@Test
+	public void testPostingsKeepTies() {
+		Map<String, List<String>> tied = new HashMap<String, List<String>>();
+		tied.put("http://news.com/b.html", List.of("red", "trees"));
+		tied.put("http://news.com/a.html", List.of("black", "trees"));
+		tied.put("http://news.com/c.html", List.of("red", "trees", "trees", "trees"));
+		tied.put("http://news.com/d.html", List.of("binary", "heap"));
+		PostingsList trees = (PostingsList) tIndex.buildInvertedIndex(tIndex.buildIndex(tied)).postings("trees");
+		assertEquals(3, trees.size()); // a and b have the same score, both are kept
+		assertEquals("http://news.com/c.html", trees.doc(0));
+		assertEquals("http://news.com/a.html", trees.doc(1));
+		assertEquals("http://news.com/b.html", trees.doc(2));
+		assertEquals(trees.score(1), trees.score(2), 0);
+		assertEquals(trees.score(0), trees.maxScore(), 0);
+		assertEquals(List.of("http://news.com/c.html", "http://news.com/a.html", "http://news.com/b.html"),
+				tIndex.searchArticles("trees", tIndex.buildInvertedIndex(tIndex.buildIndex(tied))));
+	}
+
+	@Test
+	public void testDictionary() {
+		TermDictionary dictionary = new TermDictionary();
+		int data = dictionary.intern("data");
+		assertEquals(data, dictionary.intern("xdatax".toCharArray(), 1, 4));
+		assertEquals(data, dictionary.lookup("data"));
+		assertEquals(-1, dictionary.lookup("trees"));
+		assertEquals("data", dictionary.term(data));
+		for (int i = 0; i < 10000; i++) { // several rehashes
+			assertEquals(i + 1, dictionary.intern("t" + i));
+		}
+		assertEquals(10001, dictionary.size());
+		assertEquals("t1234", dictionary.term(dictionary.lookup("t1234")));
+	}
+}
@@ -0,0 +1,182 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+import indexing.MappedIndex;
+import indexing.Postings;
+import indexing.Postings.Cursor;
+import indexing.PostingsFormat;
+
+/**
+ * Checks that an index read back from a mapped file answers like the index written.
+ */
+public class TestIndexFile {
+
+	IndexBuilder tIndex;
+	Map<String, Map<String, Double>> forward;
+	Path dir;
+	Path file;
+
+	@Before
+	public void setUp() throws Exception {
+		tIndex = new IndexBuilder();
+		forward = tIndex.buildIndex(TestIndexEngine.corpus(300, 300, 2000, 13));
+		dir = Files.createTempDirectory("indexfile");
+		file = dir.resolve("news.idx");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path left : files.toArray(Path[]::new)) {
+				Files.delete(left);
+			}
+		}
+		Files.deleteIfExists(dir);
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		InvertedIndex inverted = tIndex.buildInvertedIndex(forward);
+		IndexFile.write(inverted, file);
+		MappedIndex mapped = IndexFile.open(file);
+		assertEquals(inverted.terms(), mapped.terms());
+		for (String term : inverted.terms()) {
+			Postings expected = inverted.postings(term);
+			Postings actual = mapped.postings(term);
+			assertEquals(expected.size(), actual.size());
+			assertEquals(expected.maxScore(), actual.maxScore(), 0);
+			assertEquals(scores(expected), scores(actual));
+			TestPostings.assertTopDocIds(actual);
+			assertEquals(tIndex.searchArticles(term, inverted), tIndex.searchArticles(term, mapped));
+		}
+		assertEquals(inverted, mapped); // same documents and scores, whatever the backend
+		assertEquals(mapped, inverted);
+		assertEquals(inverted.hashCode(), mapped.hashCode());
+		assertNull(mapped.postings("notaterm"));
+		assertFalse(mapped.terms().contains(""));
+		assertEquals(inverted.docFreq("w1"), mapped.docFreq("w1"));
+		assertEquals(new ArrayList<Object>(tIndex.buildHomePage(inverted)), new ArrayList<Object>(tIndex.buildHomePage(mapped)));
+	}
+
+	@Test
+	public void testAdvance() throws Exception {
+		IndexFile.write(tIndex.buildInvertedIndex(forward), file);
+		Postings postings = IndexFile.open(file).postings("w1"); // in most documents
+		List<Integer> docs = new ArrayList<Integer>();
+		Cursor cursor = postings.cursor();
+		while (cursor.nextDoc() != Cursor.NO_MORE_DOCS) {
+			docs.add(cursor.docId());
+		}
+		for (int from = 0; from < docs.size(); from += 7) {
+			cursor = postings.cursor();
+			assertEquals((int) docs.get(from), cursor.advance(docs.get(from)));
+			if (from + 3 < docs.size()) {
+				assertEquals((int) docs.get(from + 3), cursor.advance(docs.get(from + 2) + 1));
+			}
+		}
+		cursor = postings.cursor();
+		assertEquals(Cursor.NO_MORE_DOCS, cursor.advance(docs.get(docs.size() - 1) + 1));
+	}
+
+	@Test
+	public void testReplaceAndReject() throws Exception {
+		tIndex.setPostingsFormat(PostingsFormat.COMPRESSED);
+		IndexFile.write(tIndex.buildInvertedIndex(forward), file);
+		Map<String, Map<String, Double>> small = new HashMap<String, Map<String, Double>>();
+		small.put("http://news.com/a.html", Map.of("trees", 0.5));
+		IndexFile.write(tIndex.buildInvertedIndex(small), file);
+		MappedIndex mapped = IndexFile.open(file);
+		assertEquals(1, mapped.size());
+		assertEquals(List.of("http://news.com/a.html"), tIndex.searchArticles("trees", mapped));
+		assertFalse(Files.exists(dir.resolve("news.idx.tmp")));
+
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+				24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40 });
+		try {
+			IndexFile.open(file);
+			fail("not an index file");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testCorruptTables() throws Exception {
+		IndexFile.write(tIndex.buildInvertedIndex(forward), file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 1)); // the postings of the last term
+		assertCorrupt();
+		ByteBuffer header = ByteBuffer.wrap(bytes);
+		int docTable = (int) header.getLong(16);
+		for (int[] change : new int[][] { { 8, -1 }, { 12, 1 << 20 }, { docTable + 4, Integer.MAX_VALUE } }) {
+			byte[] corrupt = bytes.clone();
+			ByteBuffer.wrap(corrupt).putInt(change[0], change[1]);
+			Files.write(file, corrupt);
+			assertCorrupt();
+		}
+		byte[] corrupt = bytes.clone();
+		ByteBuffer.wrap(corrupt).putLong(24, bytes.length); // the term table
+		Files.write(file, corrupt);
+		assertCorrupt();
+	}
+
+	@Test
+	public void testGenerations() throws Exception {
+		InvertedIndex inverted = tIndex.buildInvertedIndex(forward);
+		assertNull(IndexFile.latestGeneration(file));
+		IndexFile.write(inverted, file);
+		assertEquals(file, IndexFile.latestGeneration(file));
+		MappedIndex first = IndexFile.open(file);
+		Path second = IndexFile.writeGeneration(inverted, file);
+		assertEquals(dir.resolve("news.idx.1"), second);
+		assertEquals(second, IndexFile.latestGeneration(file));
+		assertEquals(dir.resolve("news.idx.2"), IndexFile.writeGeneration(inverted, file));
+		Files.write(dir.resolve("news.idx.x1"), new byte[0]); // not a generation
+		Path third = IndexFile.writeGeneration(inverted, file);
+		assertEquals(dir.resolve("news.idx.3"), third);
+		try (Stream<Path> files = Files.list(dir)) {
+			assertEquals(Set.of(third, dir.resolve("news.idx.x1")), Set.of(files.toArray()));
+		}
+		assertEquals(inverted, IndexFile.open(third));
+		assertEquals(inverted, first); // still mapped after its file was deleted
+	}
+
+	private void assertCorrupt() {
+		try {
+			IndexFile.open(file);
+			fail("corrupt index file");
+		} catch (IOException e) {
+		}
+	}
+
+	static Map<String, Double> scores(Postings postings) {
+		Map<String, Double> scores = new HashMap<String, Double>();
+		Cursor cursor = postings.cursor();
+		while (cursor.nextDoc() != Cursor.NO_MORE_DOCS) {
+			scores.put(postings.docName(cursor.docId()), cursor.score());
+		}
+		return scores;
+	}
+}
@@ -0,0 +1,95 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import indexing.IndexBuilder;
+import indexing.IndexSnapshot;
+import indexing.IndexSnapshot.Snapshot;
+import indexing.InvertedIndex;
+import indexing.QueryEngine;
+
+/**
+ * Checks that pinned snapshots are never released under their readers.
+ */
+public class TestIndexSnapshot {
+
+	@Test
+	public void testPinAndRelease() {
+		IndexBuilder tIndex = new IndexBuilder();
+		InvertedIndex first = tIndex.buildInvertedIndex(tIndex.buildIndex(Map.of("http://news.com/a.html", List.of("court"))));
+		InvertedIndex second = tIndex.buildInvertedIndex(tIndex.buildIndex(Map.of("http://news.com/b.html", List.of("vote"))));
+		IndexSnapshot index = new IndexSnapshot();
+		assertNull(index.pin());
+		assertEquals(0, index.version());
+
+		AtomicInteger released = new AtomicInteger();
+		assertEquals(1, index.publish(first, null, released::incrementAndGet));
+		Snapshot reader = index.pin();
+		assertEquals(1, reader.getVersion());
+		assertEquals(2, index.publish(second, null));
+		assertFalse(reader.isReleased()); // still read
+		assertEquals(List.of("http://news.com/a.html"), new QueryEngine(reader.getInvertedIndex()).search("court"));
+		try (Snapshot next = index.pin()) {
+			assertEquals(2, next.getVersion());
+			assertEquals(second, next.getInvertedIndex());
+		}
+		assertEquals(0, released.get());
+		reader.close();
+		assertTrue(reader.isReleased());
+		assertEquals(1, released.get());
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		IndexBuilder tIndex = new IndexBuilder();
+		IndexSnapshot index = new IndexSnapshot();
+		AtomicInteger released = new AtomicInteger();
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicInteger errors = new AtomicInteger();
+		index.publish(tIndex.buildInvertedIndex(tIndex.buildIndex(Map.of("http://news.com/0.html", List.of("w0")))), null,
+				released::incrementAndGet);
+
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			Thread reader = new Thread(() -> {
+				long last = 0;
+				while (!done.get()) {
+					try (Snapshot snapshot = index.pin()) {
+						// each version holds the article of its number, seen in order
+						String term = "w" + (snapshot.getVersion() - 1);
+						if (snapshot.isReleased() || snapshot.getVersion() < last
+								|| new QueryEngine(snapshot.getInvertedIndex()).count(term) != 1) {
+							errors.incrementAndGet();
+						}
+						last = snapshot.getVersion();
+					}
+				}
+			});
+			readers.add(reader);
+			reader.start();
+		}
+		for (int v = 1; v < 200; v++) {
+			String doc = "http://news.com/" + v + ".html";
+			index.publish(tIndex.buildInvertedIndex(tIndex.buildIndex(Map.of(doc, List.of("w" + v)))), null,
+					released::incrementAndGet);
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertEquals(0, errors.get());
+		assertEquals(200, index.version());
+		assertEquals(199, released.get()); // all but the current one
+	}
+}
@@ -0,0 +1,168 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import feed.FeedSource;
+import feed.LiveFeedSource;
+import feed.Page;
+import indexing.FeedListing;
+import indexing.IncrementalIndex;
+import indexing.IndexBuilder;
+import indexing.IngestPipeline;
+import indexing.PositionalIndex;
+import indexing.StageStats;
+import indexing.TermDictionary;
+
+public class TestIngestPipeline {
+
+	StubServer server;
+	List<String> feeds;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new StubServer();
+		server.pages.put("/feed2.xml", "<rss><channel><item><link>{base}/page2.html</link></item>"
+				+ "<item><link>{base}/page3.html</link></item><item><link>{base}/missing.html</link></item></channel></rss>");
+		server.pages.put("/page3.html", "<html><body>Trees can be used to compress files.</body></html>");
+		feeds = List.of(server.base() + "/feed.xml", server.base() + "/feed2.xml");
+	}
+
+	@After
+	public void tearDown() {
+		server.stop();
+	}
+
+	@Test
+	public void testSameIndexAsParseFeed() throws Exception {
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, Map<String, Double>> expected = builder.buildIndex(builder.parseFeed(feeds));
+
+		IngestPipeline pipeline = new IngestPipeline(new LiveFeedSource(), 1); // smallest queues, maximum backpressure
+		pipeline.setFetchThreads(3);
+		pipeline.setTokenizeThreads(2);
+		assertEquals(expected, pipeline.run(feeds));
+
+		List<StageStats> stats = pipeline.getStats();
+		assertEquals(5, stats.size());
+		assertEquals(2, stats.get(0).getProcessed()); // feeds
+		assertEquals(3, stats.get(1).getProcessed()); // articles
+		assertEquals(1, stats.get(1).getFailed()); // missing.html
+		assertEquals(3, stats.get(4).getProcessed());
+		for (StageStats stage : stats) {
+			assertEquals(0, stage.getQueueDepth());
+		}
+	}
+
+	@Test
+	public void testIncrementalRun() throws Exception {
+		IngestPipeline pipeline = new IngestPipeline(new LiveFeedSource(), 4);
+		IncrementalIndex index = new IncrementalIndex(pipeline.getDictionary());
+		PositionalIndex positions = new PositionalIndex(pipeline.getDictionary());
+		pipeline.setPositionalIndex(positions);
+		assertEquals(3, pipeline.run(feeds, index));
+		assertEquals(3, positions.size());
+		assertEquals(pipeline.run(feeds), index.forwardIndex());
+		assertEquals(0, pipeline.run(feeds, index)); // nothing changed
+
+		server.pages.put("/page3.html", "<html><body>Binary trees</body></html>");
+		assertEquals(2, pipeline.run(List.of(server.base() + "/feed2.xml"), index)); // page1 dropped, page3 changed
+		assertEquals(2, index.size());
+		assertEquals(2, index.docFreq("trees"));
+		assertEquals(2, positions.size());
+		assertEquals(1, positions.positions(server.base() + "/page3.html", "trees")[0]);
+	}
+
+	@Test
+	public void testFailuresKeepArticles() throws Exception {
+		IngestPipeline pipeline = new IngestPipeline(new LiveFeedSource(), 4);
+		IncrementalIndex index = new IncrementalIndex(pipeline.getDictionary());
+		PositionalIndex positions = new PositionalIndex(pipeline.getDictionary());
+		pipeline.setPositionalIndex(positions);
+		assertEquals(3, pipeline.run(feeds, index));
+		Map<String, Map<String, Double>> before = index.forwardIndex();
+
+		server.pages.remove("/feed.xml"); // page1 and page2 are still listed as last read
+		server.pages.remove("/page3.html"); // page3 keeps its words
+		assertEquals(0, pipeline.run(feeds, index));
+		assertEquals(before, index.forwardIndex());
+		assertEquals(3, positions.size());
+
+		server.pages.put("/feed.xml", "<rss><channel><item><link>{base}/page2.html</link></item>"
+				+ "<item><link>{base}/page1.html</link></item><item>"); // page1 read, then the feed breaks
+		assertEquals(0, pipeline.run(feeds, index));
+		server.pages.put("/feed.xml", "<rss><channel><item><link>{base}/page2.html</link></item></channel></rss>");
+		assertEquals(1, pipeline.run(feeds, index)); // read to the end, page1 dropped
+		assertEquals(2, index.size());
+		assertEquals(before.get(server.base() + "/page3.html").keySet(),
+				index.forwardIndex().get(server.base() + "/page3.html").keySet()); // never downloaded again
+		assertEquals(2, positions.size());
+		assertEquals(5, positions.positions(server.base() + "/page3.html", "compress")[0]); // kept from the first run
+	}
+
+	@Test
+	public void testCopyPositions() throws Exception {
+		IngestPipeline pipeline = new IngestPipeline(new LiveFeedSource(), 4);
+		PositionalIndex positions = new PositionalIndex(pipeline.getDictionary());
+		pipeline.setPositionalIndex(positions);
+		pipeline.run(feeds);
+		PositionalIndex same = positions.copy(pipeline.getDictionary());
+		PositionalIndex other = positions.copy(new TermDictionary()); // as after IncrementalIndex.compact
+		for (PositionalIndex copy : List.of(same, other)) {
+			assertEquals(3, copy.size());
+			assertEquals(positions.positionCount(), copy.positionCount());
+			for (String page : List.of("/page1.html", "/page2.html", "/page3.html")) {
+				for (String word : List.of("binary", "red", "black", "trees", "compress", "files")) {
+					assertArrayEquals(positions.positions(server.base() + page, word), copy.positions(server.base() + page, word));
+				}
+			}
+		}
+		assertEquals(positions.sizeInBytes(), same.sizeInBytes());
+
+		// the copies remember the links of each feed, feed2 failing keeps its articles
+		assertEquals(1, other.retainListed(new FeedListing(List.of(server.base() + "/feed2.xml"))));
+		assertEquals(2, other.size());
+		assertEquals(3, positions.size());
+	}
+
+	@Test(timeout = 10000)
+	public void testErrorFailsRun() throws Exception {
+		StackOverflowError error = new StackOverflowError();
+		FeedSource live = new LiveFeedSource();
+		FeedSource failing = new FeedSource() {
+			@Override
+			public Page fetch(String url) throws IOException {
+				if (url.endsWith("/page3.html")) {
+					throw error;
+				}
+				return live.fetch(url);
+			}
+		};
+		IngestPipeline pipeline = new IngestPipeline(failing, 1);
+		IncrementalIndex index = new IncrementalIndex(pipeline.getDictionary());
+		new IngestPipeline(live, 1).run(feeds, index);
+		Map<String, Map<String, Double>> before = index.forwardIndex();
+		pipeline.setFetchThreads(1); // the failed worker was the only one draining its queue
+		try {
+			pipeline.run(List.of(server.base() + "/feed2.xml"), index);
+			fail();
+		} catch (StackOverflowError e) {
+			assertSame(error, e);
+		}
+		assertEquals(before.keySet(), index.forwardIndex().keySet()); // page1 is not removed
+		for (StageStats stage : pipeline.getStats()) {
+			assertEquals(0, stage.getQueueDepth());
+		}
+	}
+}
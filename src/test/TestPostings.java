@@ -0,0 +1,127 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import indexing.CompressedPostings;
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.Postings;
+import indexing.Postings.Cursor;
+import indexing.PostingsFormat;
+
+/**
+ * Checks the compressed postings against the uncompressed ones.
+ */
+public class TestPostings {
+
+	String[] names;
+	int[] docIds;
+	double[] scores;
+	CompressedPostings postings;
+
+	@Before
+	public void setUp() {
+		Random random = new Random(3);
+		names = new String[2000000];
+		docIds = new int[1000];
+		scores = new double[docIds.length];
+		int doc = -1;
+		for (int i = 0; i < docIds.length; i++) {
+			doc += 1 + (i % 100 == 0 ? random.nextInt(100000) : random.nextInt(50)); // some deltas need 3 bytes
+			docIds[i] = doc;
+			names[doc] = "http://news.com/article" + doc + ".html";
+			scores[i] = random.nextDouble() * 0.3;
+		}
+		postings = CompressedPostings.encode(names, docIds, scores);
+	}
+
+	@Test
+	public void testCursor() {
+		assertEquals(docIds.length, postings.size());
+		Cursor cursor = postings.cursor();
+		assertEquals(-1, cursor.docId());
+		for (int i = 0; i < docIds.length; i++) {
+			assertEquals(docIds[i], cursor.nextDoc());
+			assertEquals(scores[i], cursor.score(), postings.maxScore() / 255 / 2 + 1e-12);
+		}
+		assertEquals(Cursor.NO_MORE_DOCS, cursor.nextDoc());
+		assertEquals(names[docIds[7]], postings.docName(docIds[7]));
+	}
+
+	@Test
+	public void testAdvance() {
+		Cursor cursor = postings.cursor();
+		assertEquals(docIds[0], cursor.advance(0));
+		assertEquals(docIds[5], cursor.advance(docIds[5]));
+		assertEquals(docIds[5], cursor.advance(docIds[3])); // never moves back
+		assertEquals(docIds[300], cursor.advance(docIds[299] + 1)); // skips blocks
+		assertEquals(docIds[301], cursor.nextDoc());
+		assertEquals(docIds[999], cursor.advance(docIds[999]));
+		assertEquals(Cursor.NO_MORE_DOCS, cursor.advance(docIds[999] + 1));
+		assertEquals(Cursor.NO_MORE_DOCS, cursor.nextDoc());
+	}
+
+	@Test
+	public void testRanked() {
+		int[] ranked = postings.rankedDocIds();
+		assertEquals(docIds.length, ranked.length);
+		int[] sorted = ranked.clone();
+		Arrays.sort(sorted);
+		assertEquals(true, Arrays.equals(docIds, sorted));
+		Cursor cursor = postings.cursor();
+		cursor.advance(ranked[0]);
+		assertEquals(postings.maxScore(), cursor.score(), 1e-12);
+	}
+
+	@Test
+	public void testCompressedIndex() {
+		Map<String, List<String>> docs = TestIndexEngine.corpus(300, 200, 500, 5);
+		IndexBuilder builder = new IndexBuilder();
+		Map<String, Map<String, Double>> index = builder.buildIndex(docs);
+		InvertedIndex arrays = builder.buildInvertedIndex(index);
+		builder.setPostingsFormat(PostingsFormat.COMPRESSED);
+		InvertedIndex compressed = builder.buildInvertedIndex(index);
+		assertEquals(arrays.terms(), compressed.terms());
+		assertEquals(compressed, builder.buildInvertedIndex(index));
+		assertFalse(arrays.equals(compressed)); // rounded scores
+		for (String term : arrays.terms()) {
+			Postings expected = arrays.postings(term);
+			Postings actual = compressed.postings(term);
+			assertEquals(expected.maxScore(), actual.maxScore(), 0);
+			Cursor e = expected.cursor();
+			Cursor a = actual.cursor();
+			while (e.nextDoc() != Cursor.NO_MORE_DOCS) {
+				assertEquals(e.docId(), a.nextDoc());
+				assertEquals(e.score(), a.score(), expected.maxScore() / 255 / 2 + 1e-12);
+			}
+			assertEquals(Cursor.NO_MORE_DOCS, a.nextDoc());
+			assertTopDocIds(expected);
+			assertTopDocIds(actual);
+			assertEquals(new HashSet<String>(builder.searchArticles(term, arrays)),
+					new HashSet<String>(builder.searchArticles(term, compressed)));
+		}
+	}
+
+	/**
+	 * topDocIds(k) is the first k of rankedDocIds, ties included
+	 */
+	static void assertTopDocIds(Postings postings) {
+		int[] ranked = postings.rankedDocIds();
+		for (int k : new int[] { 0, 1, 3, ranked.length / 2, ranked.length - 1, ranked.length, ranked.length + 5 }) {
+			if (k >= 0) {
+				assertArrayEquals(Arrays.copyOf(ranked, Math.min(k, ranked.length)), postings.topDocIds(k));
+			}
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import indexing.IncrementalIndex;
+import indexing.IndexBuilder;
+import indexing.IndexFile;
+import indexing.InvertedIndex;
+import indexing.PositionalIndex;
+import indexing.PostingsFormat;
+import indexing.QueryEngine;
+import indexing.TermDictionary;
+
+/**
+ * Checks boolean queries against a brute force evaluation on the documents.
+ */
+public class TestQueryEngine {
+
+	static final String A = "http://news.com/a.html";
+	static final String B = "http://news.com/b.html";
+	static final String C = "http://news.com/c.html";
+	static final String D = "http://news.com/d.html";
+
+	IndexBuilder tIndex;
+	Map<String, List<String>> docs;
+	QueryEngine engine;
+
+	@Before
+	public void setUp() {
+		tIndex = new IndexBuilder();
+		docs = new HashMap<String, List<String>>();
+		docs.put(A, List.of("supreme", "court", "ruling", "on", "trees"));
+		docs.put(B, List.of("supreme", "court", "court", "vote"));
+		docs.put(C, List.of("senate", "vote", "on", "ruling"));
+		docs.put(D, List.of("binary", "trees", "and", "heaps"));
+		engine = new QueryEngine(tIndex.buildInvertedIndex(tIndex.buildIndex(docs)));
+	}
+
+	@Test
+	public void testOperators() {
+		assertEquals(List.of(A), engine.search("supreme court ruling"));
+		assertEquals(List.of(A), engine.search("Supreme AND Court, ruling"));
+		assertEquals(List.of(B, A), engine.search("court")); // b has court twice
+		assertEquals(Set.of(A, B, C), new HashSet<String>(engine.search("court OR senate")));
+		assertEquals(List.of(B), engine.search("court NOT ruling"));
+		assertEquals(List.of(B), engine.search("court -ruling"));
+		assertEquals(Set.of(B, C), new HashSet<String>(engine.search("(court OR senate) vote")));
+		assertEquals(List.of(), engine.search("court unknown"));
+		assertEquals(Set.of(A, B), new HashSet<String>(engine.search("court OR unknown")));
+		assertEquals(List.of(), engine.search("NOT court"));
+		assertEquals(List.of(), engine.search(""));
+		assertEquals(List.of(D), engine.search("trees -(court OR senate)"));
+	}
+
+	@Test
+	public void testRandomQueries() throws Exception {
+		docs = TestIndexEngine.corpus(400, 300, 200, 17);
+		IncrementalIndex incremental = new IncrementalIndex(new TermDictionary());
+		incremental.sync(docs);
+		List<InvertedIndex> indexes = new ArrayList<InvertedIndex>();
+		Map<String, Map<String, Double>> forward = tIndex.buildIndex(docs);
+		indexes.add(tIndex.buildInvertedIndex(forward));
+		indexes.add(incremental.invertedIndex());
+		tIndex.setPostingsFormat(PostingsFormat.COMPRESSED);
+		indexes.add(tIndex.buildInvertedIndex(forward));
+		Path file = Files.createTempFile("query", ".idx");
+		try {
+			IndexFile.write(indexes.get(0), file);
+			indexes.add(IndexFile.open(file));
+
+			String[] words = { "w1", "w2", "w5", "wa", "w1m", "w3x", "w10" };
+			for (String a : words) {
+				for (String b : words) {
+					for (String c : words) {
+						String[] queries = { a + " " + b, a + " OR " + b + " " + c, a + " " + b + " -" + c };
+						for (String query : queries) {
+							Set<String> expected = bruteForce(query, a, b, c);
+							List<String> ranked = new QueryEngine(indexes.get(0)).search(query);
+							assertEquals(query, expected, new TreeSet<String>(ranked));
+							assertEquals(query, ranked, new QueryEngine(indexes.get(1)).search(query));
+							assertEquals(query, ranked, new QueryEngine(indexes.get(3)).search(query));
+							assertEquals(query, expected, new TreeSet<String>(new QueryEngine(indexes.get(2)).search(query)));
+						}
+					}
+				}
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testTopK() throws Exception {
+		docs = TestIndexEngine.corpus(600, 300, 300, 23);
+		Map<String, Map<String, Double>> forward = tIndex.buildIndex(docs);
+		List<InvertedIndex> indexes = new ArrayList<InvertedIndex>();
+		indexes.add(tIndex.buildInvertedIndex(forward));
+		tIndex.setPostingsFormat(PostingsFormat.COMPRESSED);
+		indexes.add(tIndex.buildInvertedIndex(forward));
+
+		Random random = new Random(5);
+		String[] words = { "w1", "w2", "w5", "wa", "w1m", "w3x", "w10", "w7", "w2k", "unknown" };
+		for (InvertedIndex index : indexes) {
+			QueryEngine engine = new QueryEngine(index);
+			for (int q = 0; q < 300; q++) {
+				String a = words[random.nextInt(words.length)];
+				String b = words[random.nextInt(words.length)];
+				String c = words[random.nextInt(words.length)];
+				String query = q % 3 == 0 ? a + " OR " + b + " OR " + c : q % 3 == 1 ? a + " OR " + b + " " + c : a + " " + b;
+				List<String> ranked = engine.search(query);
+				assertEquals(query, bruteForce(query, a, b, c), new TreeSet<String>(ranked));
+				for (int limit : new int[] { 1, 3, 10, 100 }) {
+					List<String> expected = ranked.subList(0, Math.min(limit, ranked.size()));
+					engine.setPruning(true);
+					assertEquals(query, expected, engine.search(query, limit));
+					engine.setPruning(false);
+					assertEquals(query, expected, engine.search(query, limit));
+				}
+			}
+		}
+
+		InvertedIndex index = indexes.get(0);
+		assertEquals(new QueryEngine(index).search("w1 OR w5", 4), tIndex.searchArticles("w1 w5", index, 4));
+		assertEquals(tIndex.searchArticles("w1", index).subList(0, 4), tIndex.searchArticles("w1", index, 4));
+		assertEquals(null, tIndex.searchArticles("unknown", index, 4));
+	}
+
+	@Test
+	public void testPhrases() {
+		PositionalIndex positions = new PositionalIndex(new TermDictionary());
+		for (Map.Entry<String, List<String>> doc : docs.entrySet()) {
+			positions.addDocument(doc.getKey(), doc.getValue());
+		}
+		assertEquals(17, positions.positionCount());
+		assertEquals(List.of(1, 2), List.of(positions.positions(B, "court")[0], positions.positions(B, "court")[1]));
+		assertEquals(null, positions.positions(B, "trees"));
+
+		QueryEngine phrases = new QueryEngine(tIndex.buildInvertedIndex(tIndex.buildIndex(docs)), positions);
+		assertEquals(Set.of(A, B), new HashSet<String>(phrases.search("\"Supreme court\"")));
+		assertEquals(List.of(), phrases.search("\"court supreme\""));
+		assertEquals(List.of(A), phrases.search("\"supreme ruling\"~1"));
+		assertEquals(List.of(), phrases.search("\"supreme ruling\""));
+		assertEquals(List.of(A), phrases.search("\"court ruling\" OR \"ruling court\""));
+		assertEquals(List.of(B), phrases.search("\"supreme court\" -\"court ruling\""));
+		assertEquals(List.of(B), phrases.search("\"court court\""));
+		assertEquals(List.of(C), phrases.search("(\"senate vote\" OR heaps) ruling"));
+		assertEquals(Set.of(A, B), new HashSet<String>(engine.search("\"court supreme\""))); // no positions: AND
+
+		positions.removeDocument(B);
+		assertEquals(List.of(A), phrases.search("\"supreme court\""));
+		assertEquals(13, positions.positionCount());
+	}
+
+	@Test
+	public void testRandomPhrases() {
+		docs = TestIndexEngine.corpus(300, 200, 30, 29);
+		PositionalIndex positions = new PositionalIndex(new TermDictionary());
+		for (Map.Entry<String, List<String>> doc : docs.entrySet()) {
+			positions.addDocument(doc.getKey(), doc.getValue());
+		}
+		QueryEngine phrases = new QueryEngine(tIndex.buildInvertedIndex(tIndex.buildIndex(docs)), positions);
+		Random random = new Random(3);
+		for (int q = 0; q < 200; q++) {
+			String[] words = new String[2 + random.nextInt(2)];
+			for (int i = 0; i < words.length; i++) {
+				words[i] = "w" + Integer.toString(random.nextInt(30), 36);
+			}
+			int slop = random.nextInt(3);
+			String query = "\"" + String.join(" ", words) + "\"~" + slop;
+			Set<String> expected = new TreeSet<String>();
+			for (Map.Entry<String, List<String>> doc : docs.entrySet()) {
+				if (near(doc.getValue(), words, slop)) {
+					expected.add(doc.getKey());
+				}
+			}
+			assertEquals(query, expected, new TreeSet<String>(phrases.search(query)));
+		}
+	}
+
+	/**
+	 * @return true if the words are in order with at most slop other words between the first and the last
+	 */
+	static boolean near(List<String> text, String[] words, int slop) {
+		for (int start = 0; start < text.size(); start++) {
+			if (near(text, words, 0, start, start + words.length - 1 + slop)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	static boolean near(List<String> text, String[] words, int i, int at, int last) {
+		if (at > last || at >= text.size() || !text.get(at).equals(words[i])) {
+			return false;
+		}
+		for (int next = at + 1; i + 1 < words.length && next <= last; next++) {
+			if (near(text, words, i + 1, next, last)) {
+				return true;
+			}
+		}
+		return i + 1 == words.length;
+	}
+
+	Set<String> bruteForce(String query, String a, String b, String c) {
+		Set<String> matches = new TreeSet<String>();
+		for (Map.Entry<String, List<String>> doc : docs.entrySet()) {
+			List<String> w = doc.getValue();
+			boolean match;
+			if (query.contains(" OR " + b + " OR ")) {
+				match = w.contains(a) || w.contains(b) || w.contains(c);
+			} else if (query.contains(" OR ")) {
+				match = w.contains(a) || (w.contains(b) && w.contains(c));
+			} else if (query.contains(" -")) {
+				match = w.contains(a) && w.contains(b) && !w.contains(c);
+			} else {
+				match = w.contains(a) && w.contains(b);
+			}
+			if (match) {
+				matches.add(doc.getKey());
+			}
+		}
+		return matches;
+	}
+}
@@ -0,0 +1,62 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import feed.FeedItem;
+import feed.RssReader;
+
+public class TestRssReader {
+
+	private static List<FeedItem> read(String xml) throws IOException {
+		List<FeedItem> items = new ArrayList<FeedItem>();
+		RssReader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), null, items::add);
+		return items;
+	}
+
+	@Test
+	public void testRss() throws IOException {
+		List<FeedItem> items = read("<?xml version=\"1.0\"?>"
+				+ "<rss xmlns:atom=\"http://www.w3.org/2005/Atom\"><channel><link>http://site.com/</link>"
+				+ "<atom:link href=\"http://site.com/rss\" rel=\"self\"/>"
+				+ "<item><title>One</title><link> http://site.com/1.html </link>"
+				+ "<guid isPermaLink=\"false\">id-1</guid><pubDate>Mon, 06 Apr 2020 10:00:00 GMT</pubDate></item>"
+				+ "<item><guid>http://site.com/2.html</guid></item>"
+				+ "<item><title>no link</title></item>"
+				+ "<item><link><![CDATA[http://site.com/3.html]]></link></item>"
+				+ "</channel></rss>");
+		assertEquals(3, items.size()); // the channel link and the item without link are skipped
+		assertEquals("http://site.com/1.html", items.get(0).getLink());
+		assertEquals("id-1", items.get(0).getGuid());
+		assertEquals("Mon, 06 Apr 2020 10:00:00 GMT", items.get(0).getPubDate());
+		assertEquals("http://site.com/2.html", items.get(1).getLink());
+		assertEquals("http://site.com/3.html", items.get(2).getLink());
+		assertNull(items.get(2).getPubDate());
+	}
+
+	@Test
+	public void testAtom() throws IOException {
+		List<FeedItem> items = read("<feed xmlns=\"http://www.w3.org/2005/Atom\">"
+				+ "<link href=\"http://site.com/\"/>"
+				+ "<entry><id>tag:1</id><link rel=\"edit\" href=\"http://site.com/edit/1\"/>"
+				+ "<link href=\"http://site.com/1.html\"/><updated>2020-04-06T10:00:00Z</updated></entry>"
+				+ "</feed>");
+		assertEquals(1, items.size());
+		assertEquals("http://site.com/1.html", items.get(0).getLink());
+		assertEquals("tag:1", items.get(0).getGuid());
+		assertEquals("2020-04-06T10:00:00Z", items.get(0).getPubDate());
+	}
+
+	@Test(expected = IOException.class)
+	public void testMalformed() throws IOException {
+		read("<rss><channel><item><link>http://site.com/1.html</link></item>");
+	}
+}
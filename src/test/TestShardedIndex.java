@@ -0,0 +1,71 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.Postings;
+import indexing.QueryEngine;
+import indexing.ShardedIndex;
+
+/**
+ * Checks that a sharded index gives the results of a single index.
+ */
+public class TestShardedIndex {
+
+	@Test
+	public void testSameResults() {
+		Map<String, List<String>> docs = TestIndexEngine.corpus(500, 200, 300, 31);
+		IndexBuilder tIndex = new IndexBuilder();
+		Map<String, Map<String, Double>> forward = tIndex.buildIndex(docs);
+		InvertedIndex whole = tIndex.buildInvertedIndex(forward);
+		QueryEngine single = new QueryEngine(whole);
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		try {
+			for (int shards : new int[] { 1, 3, 7 }) {
+				// the forward index of the builder, and a copy read through the Map interface
+				for (Map<String, Map<String, Double>> index : List.of(forward, new HashMap<String, Map<String, Double>>(forward))) {
+					ShardedIndex sharded = tIndex.buildShardedIndex(index, shards);
+					sharded.setExecutor(pool);
+					assertEquals(shards, sharded.shardCount());
+					Set<String> all = new HashSet<String>();
+					int total = 0;
+					for (int s = 0; s < shards; s++) {
+						Postings w1 = sharded.shard(s).postings("w1");
+						for (int doc : w1.rankedDocIds()) {
+							all.add(w1.docName(doc));
+						}
+						total += w1.size();
+					}
+					assertEquals(whole.postings("w1").size(), total);
+					assertEquals(total, all.size()); // no document in two shards
+
+					Random random = new Random(shards);
+					String[] words = { "w1", "w2", "w5", "wa", "w1m", "w3x", "w10", "w7", "w2k", "unknown" };
+					for (int q = 0; q < 100; q++) {
+						String a = words[random.nextInt(words.length)];
+						String b = words[random.nextInt(words.length)];
+						String query = q % 3 == 0 ? a + " OR " + b : q % 3 == 1 ? a + " " + b : a + " -" + b;
+						assertEquals(query, single.count(query), sharded.count(query));
+						for (int limit : new int[] { 1, 10, 1000 }) {
+							assertEquals(query, single.search(query, limit), sharded.search(query, limit));
+						}
+					}
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.QueryEngine;
+import indexing.Stemmer;
+import indexing.TokenFilter;
+
+public class TestStemmer {
+
+	/**
+	 * Words and stems from the paper and the reference implementation
+	 */
+	@Test
+	public void testPorter() {
+		String[][] stems = { { "caresses", "caress" }, { "ponies", "poni" }, { "ties", "ti" }, { "caress", "caress" },
+				{ "cats", "cat" }, { "feed", "feed" }, { "agreed", "agre" }, { "plastered", "plaster" }, { "bled", "bled" },
+				{ "motoring", "motor" }, { "sing", "sing" }, { "conflated", "conflat" }, { "troubled", "troubl" },
+				{ "sized", "size" }, { "hopping", "hop" }, { "tanned", "tan" }, { "falling", "fall" }, { "hissing", "hiss" },
+				{ "fizzed", "fizz" }, { "failing", "fail" }, { "filing", "file" }, { "happy", "happi" }, { "sky", "sky" },
+				{ "relational", "relat" }, { "conditional", "condit" }, { "rational", "ration" }, { "valenci", "valenc" },
+				{ "digitizer", "digit" }, { "generalization", "gener" }, { "electrical", "electr" }, { "hopeful", "hope" },
+				{ "goodness", "good" }, { "adjustment", "adjust" }, { "adoption", "adopt" }, { "controlling", "control" },
+				{ "probate", "probat" }, { "rate", "rate" }, { "cease", "ceas" }, { "trees", "tree" },
+				{ "structures", "structur" }, { "structure", "structur" }, { "connections", "connect" }, { "is", "is" },
+				{ "covid19", "covid19" }, { "2020", "2020" } };
+		Stemmer stemmer = new Stemmer();
+		for (String[] stem : stems) {
+			assertEquals(stem[0], stem[1], stemmer.stem(stem[0]));
+		}
+	}
+
+	@Test
+	public void testCache() {
+		Stemmer stemmer = new Stemmer(1);
+		char[] buffer = " trees ".toCharArray();
+		char[] stem = stemmer.stem(buffer, 1, 5);
+		assertEquals("tree", new String(stem));
+		assertSame(stem, stemmer.stem("xtreesx".toCharArray(), 1, 5)); // cached
+		assertEquals("structur", stemmer.stem("structures")); // replaces trees in the only slot
+		assertEquals("tree", new String(stemmer.stem(buffer, 1, 5)));
+	}
+
+	/**
+	 * Indexed words and queries are stemmed alike
+	 */
+	@Test
+	public void testQueries() {
+		IndexBuilder builder = new IndexBuilder();
+		TokenFilter filter = TokenFilter.standard();
+		filter.setStemmer(new Stemmer());
+		builder.setTokenFilter(filter);
+		Map<String, List<String>> docs = Map.of("http://news.com/0.html", filter.tokenize("Binary trees and data structures"),
+				"http://news.com/1.html", filter.tokenize("A tree is a connected structure"));
+		assertEquals(List.of("binari", "tree", "data", "structur"), docs.get("http://news.com/0.html"));
+		InvertedIndex inverted = builder.buildInvertedIndex(builder.buildIndex(docs));
+		QueryEngine engine = new QueryEngine(inverted);
+		engine.setTokenFilter(filter);
+		assertEquals(2, engine.search("trees structure").size());
+		assertEquals(2, builder.searchArticles("structures", inverted).size());
+		assertEquals(2, builder.searchArticles("the structures of trees", inverted, 10).size());
+	}
+}
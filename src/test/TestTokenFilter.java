@@ -0,0 +1,85 @@
+package test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import indexing.IndexBuilder;
+import indexing.InvertedIndex;
+import indexing.PositionalIndex;
+import indexing.QueryEngine;
+import indexing.TermDictionary;
+import indexing.TokenFilter;
+import indexing.Tokenizer;
+
+public class TestTokenFilter {
+
+	private static final String TEXT = "The Court ruled on 000107 cases: war on terror, "
+			+ "x-rays and httpwwwnytimescomsectionusnewsarticle2020 COVID19";
+
+	@Test
+	public void testKeepsEverythingByDefault() {
+		assertEquals(Tokenizer.tokenize(TEXT), new TokenFilter().tokenize(TEXT));
+	}
+
+	@Test
+	public void testRules() {
+		TokenFilter filter = TokenFilter.standard();
+		assertEquals(List.of("court", "ruled", "cases", "war", "terror", "xrays", "covid19"), filter.tokenize(TEXT));
+		assertFalse(filter.accept("the"));
+		assertFalse(filter.accept("2020"));
+		assertFalse(filter.accept("x"));
+		assertTrue(filter.accept("trees"));
+
+		filter.setKeepStopwords(true);
+		assertTrue(filter.accept("the"));
+		filter.setKeepNumbers(true);
+		assertTrue(filter.accept("2020"));
+		filter.setLengths(1, 4);
+		assertTrue(filter.accept("x"));
+		assertFalse(filter.accept("trees"));
+
+		filter = new TokenFilter();
+		filter.setMaxTokens(3);
+		assertEquals(List.of("the", "court", "ruled"), filter.tokenize(TEXT));
+		assertEquals(List.of("the", "court", "ruled"), filter.tokenize(TEXT)); // counted per text
+	}
+
+	@Test
+	public void testTermIds() {
+		TermDictionary dictionary = new TermDictionary();
+		TokenFilter filter = TokenFilter.standard();
+		assertArrayEquals(dictionary.intern(filter.tokenize(TEXT)), filter.tokenize(TEXT, dictionary));
+		assertEquals(-1, dictionary.lookup("the"));
+		assertEquals(-1, dictionary.lookup("000107"));
+	}
+
+	/**
+	 * Queries drop the same words as the index, phrases match across dropped words
+	 */
+	@Test
+	public void testQueries() {
+		IndexBuilder builder = new IndexBuilder();
+		TokenFilter filter = TokenFilter.standard();
+		builder.setTokenFilter(filter);
+		Map<String, List<String>> docs = Map.of("http://news.com/0.html", filter.tokenize(TEXT),
+				"http://news.com/1.html", filter.tokenize("The war on the coast, terror in the Court"));
+		InvertedIndex inverted = builder.buildInvertedIndex(builder.buildIndex(docs));
+		PositionalIndex positions = new PositionalIndex(builder.getDictionary());
+		for (Map.Entry<String, List<String>> doc : docs.entrySet()) {
+			positions.addDocument(doc.getKey(), doc.getValue());
+		}
+		QueryEngine engine = new QueryEngine(inverted, positions);
+		assertEquals(0, engine.search("the court").size());
+		engine.setTokenFilter(filter);
+		assertEquals(2, engine.search("the court").size());
+		assertEquals(List.of("http://news.com/0.html"), engine.search("\"war on terror\""));
+		assertEquals(0, engine.search("the").size());
+	}
+}
@@ -0,0 +1,61 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import indexing.Tokenizer;
+
+public class TestTokenizer {
+
+	/**
+	 * The words parseFeed used to produce with the regular expressions
+	 */
+	private static List<String> regex(String text) {
+		List<String> words = new ArrayList<String>(Arrays.asList(
+				text.toLowerCase().replaceAll("[^a-zA-Z0-9 ]", "").split("\\s+")));
+		words.remove(""); // the regex version could return an empty first word
+		return words;
+	}
+
+	@Test
+	public void testSameWordsAsRegex() {
+		String[] texts = { "data structures: linear data structures Lists: arraylist, linkedlist, stacks, queues",
+				"Let's see how this categorization will work. three files talked about CIT594 topics",
+				"  leading spaces, trailing spaces  ", "--- Mallarm\u00e9? 12-hour News!!", "", "KELVIN \u212a" };
+		for (String text : texts) {
+			assertEquals(regex(text), Tokenizer.tokenize(text));
+		}
+	}
+
+	@Test
+	public void testChunks() {
+		List<String> words = new ArrayList<String>();
+		Tokenizer tokenizer = new Tokenizer(Tokenizer.listSink(words));
+		tokenizer.append("binary tr");
+		tokenizer.append("ees are ".toCharArray(), 0, 8);
+		tokenizer.append("Sorted");
+		tokenizer.end();
+		assertEquals(Arrays.asList("binary", "trees", "are", "sorted"), words);
+	}
+
+	/**
+	 * Unlike the regex, which removed them and glued the words around them
+	 */
+	@Test
+	public void testWhitespaceSeparates() {
+		assertEquals(Arrays.asList("end", "of", "line", "tab", "separated", "page", "break"),
+				Tokenizer.tokenize("end\nof line\ttab\r\nseparated\tpage\fbreak"));
+		assertEquals(Arrays.asList("endof", "line"), regex("end\nof line"));
+	}
+
+	@Test
+	public void testNoEmptyWords() {
+		assertTrue(Tokenizer.tokenize("  ... , ").isEmpty());
+	}
+}